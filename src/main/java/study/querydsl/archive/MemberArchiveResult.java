@@ -0,0 +1,14 @@
+package study.querydsl.archive;
+
+import lombok.Data;
+
+/**
+ * 아카이브 한번 실행한 결과. completed 가 false 면 (복제 지연 등) 중간에 멈춘 것이고, 다시 실행하면 남은 회원부터 옮긴다.
+ */
+@Data
+public class MemberArchiveResult {
+
+  private final long archived;
+  private final int chunks;
+  private final boolean completed;
+}
@@ -0,0 +1,33 @@
+package study.querydsl.archive;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+
+/**
+ * --member.archive.run=true 로 기동하면 아카이브를 실행한다. 조건은 member.archive.condition.* (username, team-name,
+ * age-goe, age-loe)
+ * <p>
+ * 예: --member.archive.run=true --member.archive.condition.age-goe=90
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "member.archive.run", havingValue = "true")
+public class MemberArchiveRunner implements ApplicationRunner {
+
+  private final MemberArchiver archiver;
+  private final Environment environment;
+
+  @Override
+  public void run(ApplicationArguments args) throws Exception {
+    MemberSearchCondition condition = Binder.get(environment)
+        .bind("member.archive.condition", MemberSearchCondition.class)
+        .orElseGet(MemberSearchCondition::new);
+    archiver.archive(condition);
+  }
+}
@@ -0,0 +1,188 @@
+package study.querydsl.archive;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QMemberArchive.memberArchive;
+import static study.querydsl.entity.QTeam.team;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.event.spi.EventSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.event.ChangeType;
+import study.querydsl.event.MemberChange;
+import study.querydsl.event.MemberChangeDispatcher;
+import study.querydsl.event.MemberState;
+
+/**
+ * 조건에 맞는 회원을 member 에서 member_archive 로 옮긴다.
+ * <p>
+ * member_id 순서로 chunkSize 건씩, chunk 하나가 트랜잭션 하나다. (insert ... select 후 delete) 옮긴 행은 hot 테이블에서 없어지므로
+ * 중간에 멈춰도 다시 실행하면 남은 회원부터 이어서 옮긴다.
+ * <p>
+ * chunk 사이에 pause 만큼 쉬고, replica 지연이 max-replica-lag 을 넘으면 줄어들 때까지 기다린다. (max-lag-wait 을 넘으면 멈춘다)
+ * 벌크 delete 는 Hibernate 이벤트가 없으므로 지운 회원을 MemberChangeDispatcher 로 직접 알린다. (검색 캐시, outbox)
+ * <p>
+ * chunk 를 고를 때 행을 잠근다. (select ... for update) 고른 뒤 커밋 전에 다른 트랜잭션이 나이나 팀을 바꿔서 조건에서 벗어난 회원을
+ * 옮기거나, 바뀐 값으로 옮기지 않는다. 팀 이름도 조건이므로 join 한 team 행도 같이 잠긴다.
+ */
+@Slf4j
+@Component
+public class MemberArchiver {
+
+  private final EntityManager em;
+  private final JPAQueryFactory queryFactory;
+  private final TransactionTemplate transactionTemplate;
+  private final MemberChangeDispatcher changeDispatcher;
+  private final ReplicationLagProbe lagProbe;
+  private final int chunkSize;
+  private final Duration pause;
+  private final long maxReplicaLagSeconds;
+  private final Duration maxLagWait;
+
+  public MemberArchiver(EntityManager em, PlatformTransactionManager transactionManager,
+      MemberChangeDispatcher changeDispatcher, ReplicationLagProbe lagProbe,
+      @Value("${member.archive.chunk-size:1000}") int chunkSize,
+      @Value("${member.archive.pause:200ms}") Duration pause,
+      @Value("${member.archive.max-replica-lag:5}") long maxReplicaLagSeconds,
+      @Value("${member.archive.max-lag-wait:5m}") Duration maxLagWait) {
+    this.em = em;
+    this.queryFactory = new JPAQueryFactory(em);
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setPropagationBehavior(
+        TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.changeDispatcher = changeDispatcher;
+    this.lagProbe = lagProbe;
+    this.chunkSize = chunkSize;
+    this.pause = pause;
+    this.maxReplicaLagSeconds = maxReplicaLagSeconds;
+    this.maxLagWait = maxLagWait;
+  }
+
+  /**
+   * @param condition 옮길 회원 (검색 조건과 같은 의미). 조건이 하나도 없으면 전체가 옮겨지므로 거절한다.
+   */
+  public MemberArchiveResult archive(MemberSearchCondition condition) throws InterruptedException {
+    if (!hasText(condition.getUsername()) && !hasText(condition.getTeamName())
+        && condition.getAgeGoe() == null && condition.getAgeLoe() == null) {
+      throw new IllegalArgumentException("archive condition is empty");
+    }
+    long archived = 0;
+    int chunks = 0;
+    long cursor = 0;
+    while (true) {
+      if (!awaitReplica()) {
+        log.warn("member archive paused by replication lag. archived={}, lastId={}", archived,
+            cursor);
+        return new MemberArchiveResult(archived, chunks, false);
+      }
+      long lastId = cursor;
+      List<Long> moved = transactionTemplate.execute(status -> moveChunk(condition, lastId));
+      if (moved == null || moved.isEmpty()) {
+        break;
+      }
+      archived += moved.size();
+      chunks++;
+      cursor = moved.get(moved.size() - 1);
+      if (moved.size() < chunkSize) {
+        break;
+      }
+      Thread.sleep(pause.toMillis());
+    }
+    log.info("member archive finished. archived={}, chunks={}", archived, chunks);
+    return new MemberArchiveResult(archived, chunks, true);
+  }
+
+  /**
+   * @return 옮긴 member_id (오름차순). 잠근 행만 옮기므로 insert, delete 에 조건을 다시 걸지 않는다.
+   */
+  private List<Long> moveChunk(MemberSearchCondition condition, long afterId) {
+    List<Tuple> rows = queryFactory
+        .select(member.id, member.username, member.age, member.team.id, team.name)
+        .from(member)
+        .leftJoin(member.team, team)
+        .where(
+            member.id.gt(afterId),
+            usernameEqual(condition.getUsername()),
+            teamNameEqual(condition.getTeamName()),
+            ageGoe(condition.getAgeGoe()),
+            ageLoe(condition.getAgeLoe()))
+        .orderBy(member.id.asc())
+        .limit(chunkSize)
+        .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+        .fetch();
+    if (rows.isEmpty()) {
+      return List.of();
+    }
+    List<Long> ids = new ArrayList<>(rows.size());
+    List<MemberChange> changes = new ArrayList<>(rows.size());
+    for (Tuple row : rows) {
+      Long id = row.get(member.id);
+      ids.add(id);
+      changes.add(new MemberChange(ChangeType.DELETE, id, new MemberState(
+          row.get(member.username), row.get(member.age), row.get(member.team.id),
+          row.get(team.name)), null));
+    }
+
+    queryFactory.insert(memberArchive)
+        .columns(memberArchive.id, memberArchive.username, memberArchive.age,
+            memberArchive.teamId, memberArchive.archivedAt)
+        .select(JPAExpressions
+            .select(member.id, member.username, member.age, member.team.id,
+                Expressions.dateTimeTemplate(LocalDateTime.class, "current_timestamp()"))
+            .from(member)
+            .where(member.id.in(ids)))
+        .execute();
+    queryFactory.delete(member)
+        .where(member.id.in(ids))
+        .execute();
+
+    changeDispatcher.membersDeleted(changes, em.unwrap(EventSource.class));
+    return ids;
+  }
+
+  /**
+   * @return 지연이 허용 범위로 돌아오면 true, maxLagWait 동안 기다려도 안 되면 false
+   */
+  private boolean awaitReplica() throws InterruptedException {
+    long deadline = System.nanoTime() + maxLagWait.toNanos();
+    while (lagProbe.lagSeconds() > maxReplicaLagSeconds) {
+      if (System.nanoTime() > deadline) {
+        return false;
+      }
+      Thread.sleep(Math.max(pause.toMillis(), 1000));
+    }
+    return true;
+  }
+
+  private BooleanExpression usernameEqual(String username) {
+    return hasText(username) ? member.username.eq(username) : null;
+  }
+
+  private BooleanExpression teamNameEqual(String teamName) {
+    return hasText(teamName) ? team.name.eq(teamName) : null;
+  }
+
+  private BooleanExpression ageGoe(Integer ageGoe) {
+    return ageGoe != null ? member.age.goe(ageGoe) : null;
+  }
+
+  private BooleanExpression ageLoe(Integer ageLoe) {
+    return ageLoe != null ? member.age.loe(ageLoe) : null;
+  }
+}
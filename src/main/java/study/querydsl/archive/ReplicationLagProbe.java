@@ -0,0 +1,50 @@
+package study.querydsl.archive;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * replica 의 복제 지연 (초). member.archive.replica-url 이 없으면 항상 0
+ * <p>
+ * SHOW SLAVE STATUS 의 Seconds_Behind_Master 를 읽는다. 복제가 멈춰서 값이 NULL 이면 지연이 무한대인 것으로 본다.
+ */
+@Slf4j
+@Component
+public class ReplicationLagProbe {
+
+  private final String replicaUrl;
+  private final String username;
+  private final String password;
+
+  public ReplicationLagProbe(@Value("${member.archive.replica-url:}") String replicaUrl,
+      @Value("${spring.datasource.username:}") String username,
+      @Value("${spring.datasource.password:}") String password) {
+    this.replicaUrl = replicaUrl;
+    this.username = username;
+    this.password = password;
+  }
+
+  public long lagSeconds() {
+    if (replicaUrl.isBlank()) {
+      return 0;
+    }
+    try (Connection connection = DriverManager.getConnection(replicaUrl, username, password);
+        Statement statement = connection.createStatement();
+        ResultSet rs = statement.executeQuery("SHOW SLAVE STATUS")) {
+      if (!rs.next()) {
+        return 0;
+      }
+      long lag = rs.getLong("Seconds_Behind_Master");
+      return rs.wasNull() ? Long.MAX_VALUE : lag;
+    } catch (SQLException e) {
+      log.warn("replication lag check failed. treat as lagging : {}", e.getMessage());
+      return Long.MAX_VALUE;
+    }
+  }
+}
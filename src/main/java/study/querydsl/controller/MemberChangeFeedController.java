@@ -0,0 +1,44 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.MemberChangeFeed;
+import study.querydsl.event.MemberOutboxWriter;
+import study.querydsl.repository.MemberOutboxRepository;
+
+@RestController
+@RequiredArgsConstructor
+public class MemberChangeFeedController {
+
+  private static final int MAX_LIMIT = 1000;
+  private static final long MAX_WAIT_MILLIS = 30_000;
+  private static final long POLL_MILLIS = 500;
+
+  private final MemberOutboxRepository outboxRepository;
+  private final MemberOutboxWriter outboxWriter;
+
+  /**
+   * since 이후의 변경. waitMs 를 주면 변경이 생길 때까지 (최대 30초) 기다린다. (long-poll)
+   * <p>
+   * 다른 인스턴스의 커밋은 알 수 없으므로 POLL_MILLIS 마다 다시 조회한다.
+   */
+  @GetMapping("/members/changes")
+  public MemberChangeFeed changes(@RequestParam(defaultValue = "0") long since,
+      @RequestParam(defaultValue = "100") int limit,
+      @RequestParam(defaultValue = "0") long waitMs) throws InterruptedException {
+    int size = Math.max(1, Math.min(limit, MAX_LIMIT));
+    long deadline = System.currentTimeMillis() + Math.min(waitMs, MAX_WAIT_MILLIS);
+    MemberChangeFeed feed = outboxRepository.findSince(since, size);
+    while (feed.getChanges().isEmpty()) {
+      long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0) {
+        break;
+      }
+      outboxWriter.awaitCommit(Math.min(remaining, POLL_MILLIS));
+      feed = outboxRepository.findSince(since, size);
+    }
+    return feed;
+  }
+}
@@ -2,39 +2,132 @@ package study.querydsl.controller;
 
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.MemberFacetPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberArchiveRepository;
+import study.querydsl.repository.MemberBatchSearchRepository;
 import study.querydsl.repository.MemberJpaRepository;
-import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberPagePrefetcher;
+import study.querydsl.repository.MemberProjectionRepository;
+import study.querydsl.repository.MemberRepositoryCustom;
+import study.querydsl.repository.MemberSearchRouter;
 
+/**
+ * 검색은 모두 Callable 로 member-request 스레드에서 실행한다. 클라이언트가 연결을 끊으면 실행 중인 쿼리를 취소하기 위해서다.
+ * (DeadlineCallableInterceptor)
+ */
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
   private final MemberJpaRepository memberJpaRepository;
-  private final MemberRepository memberRepository;
+  private final MemberSearchRouter searchRouter;
+  private final MemberProjectionRepository memberProjectionRepository;
+  private final MemberBatchSearchRepository memberBatchSearchRepository;
+  private final MemberArchiveRepository memberArchiveRepository;
+  private final MemberPagePrefetcher pagePrefetcher;
 
+  /**
+   * engine 파라미터로 검색 구현을 고를 수 있다. (jpa, sql, memory - 없으면 설정값)
+   * includeArchive=true 면 member_archive 로 옮겨진 회원도 포함한다. (JPA 구현)
+   */
   @GetMapping("/v1/members")
-  public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) {
-    return memberJpaRepository.search(condition);
+  public Callable<List<MemberTeamDto>> searchMemberV1(MemberSearchCondition condition,
+      @RequestParam(required = false) String engine,
+      @RequestParam(defaultValue = "false") boolean includeArchive) {
+    return () -> {
+      if (includeArchive) {
+        return memberArchiveRepository.searchIncludingArchive(condition);
+      }
+      if (searchRouter.isJpa(engine)) {
+        return memberJpaRepository.search(condition);
+      }
+      return searchRouter.engine(engine).search(condition);
+    };
   }
 
+  /**
+   * prefetch=true 면 응답 후 다음 페이지를 미리 조회해두고, 다음 페이지 요청은 그것으로 응답한다. (v3 도 같다)
+   */
   @GetMapping("v2/members")
-  public Page<MemberTeamDto> searchPageSimpleV2(MemberSearchCondition condition,
-      Pageable pageable) {
-    return memberRepository.searchPageSimple(condition, pageable);
-
+  public Callable<Page<MemberTeamDto>> searchPageSimpleV2(MemberSearchCondition condition,
+      Pageable pageable, @RequestParam(required = false) String engine,
+      @RequestParam(defaultValue = "false") boolean prefetch) {
+    return () -> {
+      MemberRepositoryCustom repository = searchRouter.engine(engine);
+      if (prefetch) {
+        return pagePrefetcher.fetch("searchPageSimple:" + searchRouter.name(engine), condition,
+            pageable, repository::searchPageSimple);
+      }
+      return repository.searchPageSimple(condition, pageable);
+    };
   }
 
   @GetMapping("v3/members")
-  public Page<MemberTeamDto> searchPageComplexV3(MemberSearchCondition condition,
-      Pageable pageable) {
-    return memberRepository.searchPageComplex(condition, pageable);
+  public Callable<Page<MemberTeamDto>> searchPageComplexV3(MemberSearchCondition condition,
+      Pageable pageable, @RequestParam(required = false) String engine,
+      @RequestParam(defaultValue = "false") boolean prefetch) {
+    return () -> {
+      MemberRepositoryCustom repository = searchRouter.engine(engine);
+      if (prefetch) {
+        return pagePrefetcher.fetch("searchPageComplex:" + searchRouter.name(engine), condition,
+            pageable, repository::searchPageComplex);
+      }
+      return repository.searchPageComplex(condition, pageable);
+    };
+  }
+
+  /**
+   * 검색 결과 + 팀별 / 나이 구간별 건수. ageBounds=20,30,40 이면 "<20", "20-29", "30-39", ">=40" 구간
+   */
+  @GetMapping("v3/members/facets")
+  public Callable<MemberFacetPage> searchFacetsV3(MemberSearchCondition condition,
+      Pageable pageable, @RequestParam(required = false) List<Integer> ageBounds,
+      @RequestParam(required = false) String engine) {
+    return () -> searchRouter.engine(engine).searchFacets(condition, pageable, ageBounds);
+  }
+
+  /**
+   * 여러 검색 조건을 한번에 - 결과는 조건 순서대로 (각각 /v1/members 와 같은 결과)
+   */
+  @PostMapping("/members/search/batch")
+  public Callable<List<List<MemberTeamDto>>> searchBatch(
+      @RequestBody List<MemberSearchCondition> conditions) {
+    return () -> memberBatchSearchRepository.searchAll(conditions);
+  }
+
+  /**
+   * fields 파라미터가 있으면 요청한 컬럼만 조회해서 요청한 필드만 응답한다. (예: fields=memberId,username)
+   * <p>
+   * JPA 구현으로만 조회한다. v2 / v3 는 같은 쿼리 (count 쿼리 분리) 를 쓴다.
+   */
+  @GetMapping(value = "/v1/members", params = "fields")
+  public Callable<List<Map<String, Object>>> searchMemberFieldsV1(
+      MemberSearchCondition condition, @RequestParam String fields) {
+    return () -> memberProjectionRepository.search(condition, fields);
+  }
+
+  @GetMapping(value = "v2/members", params = "fields")
+  public Callable<Page<Map<String, Object>>> searchPageFieldsV2(
+      MemberSearchCondition condition, Pageable pageable, @RequestParam String fields) {
+    return () -> memberProjectionRepository.searchPage(condition, pageable, fields);
+  }
+
+  @GetMapping(value = "v3/members", params = "fields")
+  public Callable<Page<Map<String, Object>>> searchPageFieldsV3(
+      MemberSearchCondition condition, Pageable pageable, @RequestParam String fields) {
+    return () -> memberProjectionRepository.searchPage(condition, pageable, fields);
   }
 
-}
\ No newline at end of file
+}
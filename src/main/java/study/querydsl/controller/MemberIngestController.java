@@ -0,0 +1,97 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.MemberIngestRequest;
+import study.querydsl.dto.MemberIngestResult;
+import study.querydsl.ingest.MemberIngestBuffer;
+
+@RestController
+@RequiredArgsConstructor
+public class MemberIngestController {
+
+  private static final String APPLICATION_NDJSON = "application/x-ndjson";
+  private static final int NDJSON_CHUNK = 500;
+
+  private final MemberIngestBuffer ingestBuffer;
+  private final ObjectMapper objectMapper;
+
+  @PostMapping(value = "/members/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<MemberIngestResult> ingest(@RequestBody List<MemberIngestRequest> requests)
+      throws InterruptedException {
+    int accepted = ingestBuffer.offer(requests);
+    return toResponse(new MemberIngestResult(accepted, requests.size() - accepted));
+  }
+
+  /**
+   * 한 줄에 회원 하나 (NDJSON). 본문 전체를 메모리에 올리지 않고 chunk 단위로 큐에 넣는다.
+   * <p>
+   * 형식이 틀린 줄을 만나면 그 앞 줄까지 큐에 넣고 400 으로 accepted 건수와 줄 번호를 돌려준다. (그 줄부터 다시 보내면 된다)
+   */
+  @PostMapping(value = "/members/batch", consumes = APPLICATION_NDJSON)
+  public ResponseEntity<MemberIngestResult> ingestNdjson(InputStream body)
+      throws IOException, InterruptedException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+    List<MemberIngestRequest> chunk = new ArrayList<>(NDJSON_CHUNK);
+    int accepted = 0;
+    int rejected = 0;
+    int lineNumber = 0;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      lineNumber++;
+      if (line.isBlank()) {
+        continue;
+      }
+      if (rejected > 0) {
+        // 큐가 가득 찼으면 나머지는 건수만 센다.
+        rejected++;
+        continue;
+      }
+      MemberIngestRequest request;
+      try {
+        request = objectMapper.readValue(line, MemberIngestRequest.class);
+      } catch (JsonProcessingException e) {
+        int offered = chunk.isEmpty() ? 0 : ingestBuffer.offer(chunk);
+        return ResponseEntity.badRequest().body(new MemberIngestResult(accepted + offered,
+            rejected + chunk.size() - offered, lineNumber, e.getOriginalMessage()));
+      }
+      chunk.add(request);
+      if (chunk.size() == NDJSON_CHUNK) {
+        int offered = ingestBuffer.offer(chunk);
+        accepted += offered;
+        rejected += chunk.size() - offered;
+        chunk.clear();
+      }
+    }
+    if (!chunk.isEmpty()) {
+      int offered = ingestBuffer.offer(chunk);
+      accepted += offered;
+      rejected += chunk.size() - offered;
+    }
+    return toResponse(new MemberIngestResult(accepted, rejected));
+  }
+
+  private ResponseEntity<MemberIngestResult> toResponse(MemberIngestResult result) {
+    if (result.isAllAccepted()) {
+      return ResponseEntity.status(HttpStatus.ACCEPTED).body(result);
+    }
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, "1")
+        .body(result);
+  }
+}
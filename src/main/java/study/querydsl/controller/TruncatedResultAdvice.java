@@ -0,0 +1,52 @@
+package study.querydsl.controller;
+
+import java.util.List;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import study.querydsl.repository.TruncatedResultList;
+
+/**
+ * 행 수 제한으로 잘린 결과에 X-Result-Truncated: true 헤더를 붙인다. (캐시에서 나온 결과도 같다)
+ * <p>
+ * 일괄 검색 (조건별 결과 목록) 은 하나라도 잘렸으면 붙인다.
+ */
+@RestControllerAdvice
+public class TruncatedResultAdvice implements ResponseBodyAdvice<Object> {
+
+  public static final String TRUNCATED_HEADER = "X-Result-Truncated";
+
+  @Override
+  public boolean supports(MethodParameter returnType,
+      Class<? extends HttpMessageConverter<?>> converterType) {
+    return true;
+  }
+
+  @Override
+  public Object beforeBodyWrite(Object body, MethodParameter returnType,
+      MediaType selectedContentType, Class<? extends HttpMessageConverter<?>> selectedConverterType,
+      ServerHttpRequest request, ServerHttpResponse response) {
+    if (isTruncated(body)) {
+      response.getHeaders().set(TRUNCATED_HEADER, "true");
+    }
+    return body;
+  }
+
+  private boolean isTruncated(Object body) {
+    if (body instanceof TruncatedResultList) {
+      return true;
+    }
+    if (body instanceof List) {
+      for (Object element : (List<?>) body) {
+        if (element instanceof TruncatedResultList) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,91 @@
+package study.querydsl.deadline;
+
+import java.util.concurrent.Callable;
+import javax.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+
+/**
+ * MemberController 의 Callable 을 실행하는 스레드에 요청의 마감 (RequestDeadline) 과 request scope 를 붙인다.
+ * <p>
+ * 클라이언트가 연결을 끊거나 (async error) async timeout 이 나면 실행 중인 쿼리를 취소한다. 요청 스레드에서 막혀 있으면 연결이 끊긴 것을
+ * 응답을 쓸 때까지 알 수 없어서 검색은 Callable 로 처리한다.
+ * <p>
+ * request scope 는 요청이 끝날 때 (afterCompletion) 닫는다. Spring 이 실행 스레드에 붙이는 RequestAttributes 는 닫히지 않아서
+ * 거기에 건 destruction callback (ResultMemoryGovernor 의 예산 반환) 이 실행되지 않는다.
+ */
+@Slf4j
+public class DeadlineCallableInterceptor implements CallableProcessingInterceptor {
+
+  private static final String SCOPE_ATTRIBUTE =
+      DeadlineCallableInterceptor.class.getName() + ".SCOPE";
+
+  @Override
+  public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+    HttpServletRequest servletRequest = request.getNativeRequest(HttpServletRequest.class);
+    if (servletRequest != null) {
+      request.setAttribute(SCOPE_ATTRIBUTE, new ServletRequestAttributes(servletRequest),
+          RequestAttributes.SCOPE_REQUEST);
+    }
+  }
+
+  @Override
+  public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+    RequestDeadline deadline = deadline(request);
+    if (deadline != null) {
+      RequestDeadline.attach(deadline);
+    }
+    Object scope = request.getAttribute(SCOPE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    if (scope instanceof ServletRequestAttributes) {
+      RequestContextHolder.setRequestAttributes((ServletRequestAttributes) scope);
+    }
+  }
+
+  @Override
+  public <T> void postProcess(NativeWebRequest request, Callable<T> task,
+      Object concurrentResult) {
+    RequestDeadline.clear();
+  }
+
+  @Override
+  public <T> Object handleTimeout(NativeWebRequest request, Callable<T> task) {
+    cancel(request, "async timeout");
+    return RESULT_NONE;
+  }
+
+  @Override
+  public <T> Object handleError(NativeWebRequest request, Callable<T> task, Throwable t) {
+    cancel(request, "client disconnected");
+    return RESULT_NONE;
+  }
+
+  @Override
+  public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+    RequestDeadline deadline = deadline(request);
+    if (deadline != null) {
+      deadline.finish();
+    }
+    Object scope = request.getAttribute(SCOPE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    if (scope instanceof ServletRequestAttributes) {
+      ((ServletRequestAttributes) scope).requestCompleted();
+    }
+  }
+
+  private void cancel(NativeWebRequest request, String reason) {
+    RequestDeadline deadline = deadline(request);
+    if (deadline != null && !deadline.isCancelled()) {
+      log.info("cancelling member request queries : {}", reason);
+      deadline.cancel();
+    }
+  }
+
+  private RequestDeadline deadline(NativeWebRequest request) {
+    Object deadline = request.getAttribute(RequestDeadlineInterceptor.DEADLINE_ATTRIBUTE,
+        RequestAttributes.SCOPE_REQUEST);
+    return deadline instanceof RequestDeadline ? (RequestDeadline) deadline : null;
+  }
+}
@@ -0,0 +1,95 @@
+package study.querydsl.deadline;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Connection 이 만드는 Statement 마다 RequestDeadline 의 남은 시간을 query timeout 으로 건다.
+ * <p>
+ * Querydsl (JPA / SQL), Spring Data 쿼리, count 쿼리가 모두 여기를 지나므로 쿼리 종류마다 힌트를 붙이지 않아도 된다.
+ * JDBC timeout 은 초 단위라서 올림한다. 시간이 다 되면 드라이버가 실행 중인 statement 를 취소한다.
+ * <p>
+ * 만든 Statement 는 RequestDeadline 에 등록해서, 클라이언트가 연결을 끊으면 마감 전이라도 취소한다.
+ */
+public class DeadlineDataSource extends DelegatingDataSource {
+
+  private static final Set<String> STATEMENT_FACTORIES =
+      Set.of("createStatement", "prepareStatement", "prepareCall");
+
+  public DeadlineDataSource(DataSource targetDataSource) {
+    super(targetDataSource);
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return wrap(super.getConnection());
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return wrap(super.getConnection(username, password));
+  }
+
+  private static Connection wrap(Connection connection) {
+    return (Connection) Proxy.newProxyInstance(DeadlineDataSource.class.getClassLoader(),
+        new Class<?>[]{Connection.class}, new DeadlineConnectionHandler(connection));
+  }
+
+  static void applyDeadline(Statement statement) throws SQLException {
+    RequestDeadline deadline = RequestDeadline.current();
+    if (deadline == null) {
+      return;
+    }
+    if (deadline.isCancelled()) {
+      statement.close();
+      throw new DeadlineExceededException("request cancelled before query");
+    }
+    long remaining = RequestDeadline.remainingMillis();
+    if (remaining <= 0) {
+      statement.close();
+      throw new DeadlineExceededException("request deadline exceeded before query");
+    }
+    int seconds = (int) Math.min(Integer.MAX_VALUE, (remaining + 999) / 1000);
+    statement.setQueryTimeout(seconds);
+    deadline.track(statement);
+  }
+
+  private static final class DeadlineConnectionHandler implements InvocationHandler {
+
+    private final Connection target;
+
+    private DeadlineConnectionHandler(Connection target) {
+      this.target = target;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        default:
+          break;
+      }
+      Object result;
+      try {
+        result = method.invoke(target, args);
+      } catch (InvocationTargetException e) {
+        throw e.getTargetException();
+      }
+      if (result instanceof Statement && STATEMENT_FACTORIES.contains(method.getName())) {
+        applyDeadline((Statement) result);
+      }
+      return result;
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package study.querydsl.deadline;
+
+import javax.sql.DataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * 애플리케이션 DataSource 를 DeadlineDataSource 로 감싼다.
+ */
+@Component
+public class DeadlineDataSourcePostProcessor implements BeanPostProcessor {
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName) {
+    if (bean instanceof DataSource && !(bean instanceof DeadlineDataSource)) {
+      return new DeadlineDataSource((DataSource) bean);
+    }
+    return bean;
+  }
+}
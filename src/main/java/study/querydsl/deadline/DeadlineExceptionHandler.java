@@ -0,0 +1,31 @@
+package study.querydsl.deadline;
+
+import java.util.concurrent.RejectedExecutionException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * 마감 시간 때문에 DB 에서 취소된 쿼리 -> 503
+ * <p>
+ * member-request 스레드와 대기열이 다 찬 경우도 503 (DeadlineWebConfig)
+ */
+@Slf4j
+@RestControllerAdvice
+public class DeadlineExceptionHandler {
+
+  @ExceptionHandler(QueryTimeoutException.class)
+  public ResponseEntity<Void> queryTimeout(QueryTimeoutException e) {
+    log.warn("query cancelled by request deadline : {}", e.getMessage());
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+  }
+
+  @ExceptionHandler(RejectedExecutionException.class)
+  public ResponseEntity<Void> rejected(RejectedExecutionException e) {
+    log.warn("member request rejected : {}", e.getMessage());
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+  }
+}
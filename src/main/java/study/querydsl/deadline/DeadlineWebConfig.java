@@ -0,0 +1,57 @@
+package study.querydsl.deadline;
+
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * 검색 Callable 은 크기가 정해진 member-request 스레드에서 실행한다. (기본 applicationTaskExecutor 는 코어 8 개라서 요청이
+ * 줄을 선다) 다 차면 RejectedExecutionException -> 503
+ * <p>
+ * async timeout 은 최대 마감보다 조금 길게 둔다. 보통은 query timeout 이 먼저 끝낸다.
+ */
+@Configuration
+public class DeadlineWebConfig implements WebMvcConfigurer {
+
+  private final RequestDeadlineInterceptor requestDeadlineInterceptor;
+  private final Duration maxBudget;
+  private final int threads;
+  private final int queueSize;
+
+  public DeadlineWebConfig(RequestDeadlineInterceptor requestDeadlineInterceptor,
+      @Value("${member.request.timeout:5s}") Duration maxBudget,
+      @Value("${member.request.threads:50}") int threads,
+      @Value("${member.request.queue-size:200}") int queueSize) {
+    this.requestDeadlineInterceptor = requestDeadlineInterceptor;
+    this.maxBudget = maxBudget;
+    this.threads = threads;
+    this.queueSize = queueSize;
+  }
+
+  @Bean
+  public ThreadPoolTaskExecutor memberRequestExecutor() {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(threads);
+    executor.setMaxPoolSize(threads);
+    executor.setQueueCapacity(queueSize);
+    executor.setThreadNamePrefix("member-request-");
+    return executor;
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(requestDeadlineInterceptor);
+  }
+
+  @Override
+  public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+    configurer.setTaskExecutor(memberRequestExecutor());
+    configurer.setDefaultTimeout(maxBudget.plusSeconds(1).toMillis());
+    configurer.registerCallableInterceptors(new DeadlineCallableInterceptor());
+  }
+}
@@ -0,0 +1,138 @@
+package study.querydsl.deadline;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 요청 하나의 마감 시각. 스레드에 붙어 있으면 그 스레드에서 만드는 모든 JDBC Statement 에 남은 시간이 query timeout 으로 걸린다.
+ * <p>
+ * 만든 Statement 를 기억해두었다가 클라이언트가 연결을 끊으면 (cancel) 실행 중인 쿼리를 취소한다. cancel 이후에는 새 쿼리를 보내지 않는다.
+ * 요청을 처리하는 스레드가 바뀌면 (Callable) attach 로 옮겨 붙인다.
+ */
+@Slf4j
+public final class RequestDeadline {
+
+  private static final ThreadLocal<RequestDeadline> CURRENT = new ThreadLocal<>();
+  /**
+   * 닫힌 Statement 를 이 개수마다 정리한다.
+   */
+  private static final int PRUNE_THRESHOLD = 32;
+
+  private final long deadlineNanos;
+  private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+  private volatile boolean cancelled;
+
+  private RequestDeadline(long deadlineNanos) {
+    this.deadlineNanos = deadlineNanos;
+  }
+
+  public static RequestDeadline start(Duration budget) {
+    RequestDeadline deadline = new RequestDeadline(System.nanoTime() + budget.toNanos());
+    CURRENT.set(deadline);
+    return deadline;
+  }
+
+  /**
+   * null 이면 떼어낸다.
+   */
+  public static void attach(RequestDeadline deadline) {
+    if (deadline == null) {
+      CURRENT.remove();
+    } else {
+      CURRENT.set(deadline);
+    }
+  }
+
+  public static void clear() {
+    CURRENT.remove();
+  }
+
+  public static boolean isActive() {
+    return CURRENT.get() != null;
+  }
+
+  /**
+   * 이 스레드의 마감 (없으면 null) - 다른 스레드에 attach 해서 넘길 때 쓴다.
+   */
+  public static RequestDeadline current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * 남은 시간 (ms). 마감이 없으면 Long.MAX_VALUE, 지났거나 취소됐으면 0 이하
+   */
+  public static long remainingMillis() {
+    RequestDeadline deadline = CURRENT.get();
+    if (deadline == null) {
+      return Long.MAX_VALUE;
+    }
+    if (deadline.cancelled) {
+      return 0;
+    }
+    return Duration.ofNanos(deadline.deadlineNanos - System.nanoTime()).toMillis();
+  }
+
+  /**
+   * 마감이 지났으면 DeadlineExceededException
+   */
+  public static void check() {
+    if (remainingMillis() <= 0) {
+      throw new DeadlineExceededException("request deadline exceeded");
+    }
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * 클라이언트가 떠났다. 실행 중인 Statement 를 모두 취소한다. (다른 스레드에서 부른다)
+   */
+  public void cancel() {
+    cancelled = true;
+    for (Statement statement : statements) {
+      cancel(statement);
+    }
+    statements.clear();
+  }
+
+  /**
+   * 요청이 끝났다. 기억해둔 Statement 를 놓는다.
+   */
+  public void finish() {
+    statements.clear();
+  }
+
+  void track(Statement statement) {
+    if (statements.size() >= PRUNE_THRESHOLD) {
+      statements.removeIf(RequestDeadline::isClosed);
+    }
+    statements.add(statement);
+    // 등록하는 사이에 취소됐으면 놓치지 않는다.
+    if (cancelled && statements.remove(statement)) {
+      cancel(statement);
+    }
+  }
+
+  private static void cancel(Statement statement) {
+    try {
+      if (!statement.isClosed()) {
+        statement.cancel();
+      }
+    } catch (SQLException e) {
+      log.debug("statement cancel failed", e);
+    }
+  }
+
+  private static boolean isClosed(Statement statement) {
+    try {
+      return statement.isClosed();
+    } catch (SQLException e) {
+      return true;
+    }
+  }
+}
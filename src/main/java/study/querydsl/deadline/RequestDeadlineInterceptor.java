@@ -0,0 +1,93 @@
+package study.querydsl.deadline;
+
+import java.time.Duration;
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import study.querydsl.controller.MemberController;
+
+/**
+ * MemberController 요청마다 마감 시각을 건다.
+ * <p>
+ * 기본 예산은 member.request.timeout, 호출자가 X-Request-Timeout (ms) 헤더로 더 짧게 줄 수 있다. (더 길게는 안 된다)
+ * 0 이하나 member.request.min-timeout 보다 짧은 값은 min-timeout 으로 올린다. (JDBC timeout 0 은 "제한 없음" 이다)
+ * <p>
+ * 검색은 Callable 로 요청 스레드 밖에서 실행되므로 마감은 요청 attribute 로 넘기고, DeadlineCallableInterceptor 가 실행 스레드에 붙인다.
+ * 연결이 끊기면 (async error / timeout) 그쪽에서 쿼리를 취소한다.
+ */
+@Component
+public class RequestDeadlineInterceptor implements AsyncHandlerInterceptor {
+
+  public static final String TIMEOUT_HEADER = "X-Request-Timeout";
+  static final String DEADLINE_ATTRIBUTE = RequestDeadline.class.getName();
+
+  private final Duration maxBudget;
+  private final Duration minBudget;
+
+  public RequestDeadlineInterceptor(
+      @Value("${member.request.timeout:5s}") Duration maxBudget,
+      @Value("${member.request.min-timeout:100ms}") Duration minBudget) {
+    this.maxBudget = maxBudget;
+    this.minBudget = minBudget.compareTo(maxBudget) < 0 ? minBudget : maxBudget;
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+      Object handler) {
+    // async 결과를 쓰러 다시 들어온 경우 - 처음 건 마감을 그대로 쓴다.
+    if (request.getDispatcherType() == DispatcherType.ASYNC) {
+      return true;
+    }
+    if (handler instanceof HandlerMethod
+        && ((HandlerMethod) handler).getBeanType() == MemberController.class) {
+      request.setAttribute(DEADLINE_ATTRIBUTE,
+          RequestDeadline.start(budget(request.getHeader(TIMEOUT_HEADER))));
+    }
+    return true;
+  }
+
+  /**
+   * Callable 로 넘어갔다. 요청 스레드는 다른 요청을 처리하므로 떼어낸다.
+   */
+  @Override
+  public void afterConcurrentHandlingStarted(HttpServletRequest request,
+      HttpServletResponse response, Object handler) {
+    RequestDeadline.clear();
+  }
+
+  @Override
+  public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+      Object handler, Exception ex) {
+    RequestDeadline.clear();
+    Object deadline = request.getAttribute(DEADLINE_ATTRIBUTE);
+    if (deadline instanceof RequestDeadline) {
+      // 실패로 끝났으면 아직 실행 중인 쿼리가 있어도 취소한다.
+      if (ex != null) {
+        ((RequestDeadline) deadline).cancel();
+      } else {
+        ((RequestDeadline) deadline).finish();
+      }
+    }
+  }
+
+  Duration budget(String header) {
+    if (header == null) {
+      return maxBudget;
+    }
+    long millis;
+    try {
+      millis = Long.parseLong(header.strip());
+    } catch (NumberFormatException e) {
+      return maxBudget;
+    }
+    Duration requested = Duration.ofMillis(millis);
+    if (requested.compareTo(minBudget) < 0) {
+      return minBudget;
+    }
+    return requested.compareTo(maxBudget) < 0 ? requested : maxBudget;
+  }
+}
@@ -0,0 +1,13 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+/**
+ * 패싯 값 하나와 그 값의 건수 (팀 없는 회원의 팀 패싯 값은 null)
+ */
+@Data
+public class FacetCount {
+
+  private final String value;
+  private final long count;
+}
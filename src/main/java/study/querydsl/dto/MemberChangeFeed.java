@@ -0,0 +1,14 @@
+package study.querydsl.dto;
+
+import java.util.List;
+import lombok.Data;
+
+/**
+ * 변경 피드 응답. 다음 요청은 since=next 로 한다.
+ */
+@Data
+public class MemberChangeFeed {
+
+  private final List<MemberChangeRecord> changes;
+  private final long next;
+}
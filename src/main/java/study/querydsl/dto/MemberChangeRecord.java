@@ -0,0 +1,32 @@
+package study.querydsl.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.querydsl.core.annotations.QueryProjection;
+import java.time.LocalDateTime;
+import lombok.Data;
+
+/**
+ * 변경 피드의 한 건. payload 는 JSON 그대로 내보낸다.
+ */
+@Data
+public class MemberChangeRecord {
+
+  private final Long id;
+  private final String aggregate;
+  private final String changeType;
+  private final Long aggregateId;
+  @JsonRawValue
+  private final String payload;
+  private final LocalDateTime createdAt;
+
+  @QueryProjection
+  public MemberChangeRecord(Long id, String aggregate, String changeType, Long aggregateId,
+      String payload, LocalDateTime createdAt) {
+    this.id = id;
+    this.aggregate = aggregate;
+    this.changeType = changeType;
+    this.aggregateId = aggregateId;
+    this.payload = payload;
+    this.createdAt = createdAt;
+  }
+}
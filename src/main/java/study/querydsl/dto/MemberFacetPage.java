@@ -0,0 +1,16 @@
+package study.querydsl.dto;
+
+import java.util.List;
+import lombok.Data;
+import org.springframework.data.domain.Page;
+
+/**
+ * 검색 결과 페이지 + 같은 검색 조건의 팀별 / 나이 구간별 건수
+ */
+@Data
+public class MemberFacetPage {
+
+  private final Page<MemberTeamDto> page;
+  private final List<FacetCount> teams;
+  private final List<FacetCount> ageBuckets;
+}
@@ -0,0 +1,12 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+@Data
+public class MemberIngestRequest {
+
+  private String username;
+  private int age;
+  private String teamName;
+
+}
@@ -0,0 +1,32 @@
+package study.querydsl.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+/**
+ * accepted 건은 큐에 들어갔다. 형식이 틀린 줄이 있으면 그 앞까지만 처리하고 invalidLine (1 부터) 과 error 를 채운다.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MemberIngestResult {
+
+  private final int accepted;
+  private final int rejected;
+  private final Integer invalidLine;
+  private final String error;
+
+  public MemberIngestResult(int accepted, int rejected) {
+    this(accepted, rejected, null, null);
+  }
+
+  public MemberIngestResult(int accepted, int rejected, Integer invalidLine, String error) {
+    this.accepted = accepted;
+    this.rejected = rejected;
+    this.invalidLine = invalidLine;
+    this.error = error;
+  }
+
+  public boolean isAllAccepted() {
+    return rejected == 0 && invalidLine == null;
+  }
+}
@@ -0,0 +1,143 @@
+package study.querydsl.entity;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.engine.jdbc.spi.JdbcCoordinator;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.DatabaseStructure;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 식별자를 블록 단위로 예약해서 메모리에서 나눠주는 generator (pooled-lo 방식)
+ * <p>
+ * 시퀀스 값 v 하나가 [v, v + blockSize) 블록이다. 블록 안에서는 CAS 로만 나눠주므로 insert 마다 DB 를 거치지 않고 락도 없다.
+ * 블록이 떨어졌을 때만 한 스레드가 다음 값을 가져온다. 노드마다 따로 블록을 잡으므로 여러 노드에서도 겹치지 않는다.
+ * <p>
+ * 재시작 / 롤백으로 쓰지 않은 값은 버려진다. (id 에 빈 구간이 생기고, 노드 사이에서는 생성 순서와 id 순서가 다를 수 있다)
+ * 블록 크기는 increment_size 파라미터, 없으면 study.id.block_size 설정 (기본 100)
+ * <p>
+ * 블록 크기는 설정이 아니라 시퀀스의 실제 INCREMENT BY 를 따른다. 처음 블록을 잡을 때 한 번 읽는다. 시퀀스를 다른 증가폭으로 만든 노드가
+ * 있거나 DBA 가 바꿨는데 설정값으로 블록을 잡으면, 다른 노드가 받은 값과 블록이 겹쳐서 같은 id 가 나온다.
+ * (조회는 MariaDB 시퀀스 테이블 기준)
+ */
+@Slf4j
+public class BlockSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String STRATEGY = "study.querydsl.entity.BlockSequenceGenerator";
+    public static final String BLOCK_SIZE_SETTING = "study.id.block_size";
+    private static final int DEFAULT_BLOCK_SIZE = 100;
+
+    private volatile Block block = Block.EMPTY;
+    private long blockSize;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry)
+            throws MappingException {
+        if (type.getReturnedClass() != Long.class) {
+            throw new MappingException("BlockSequenceGenerator supports Long identifiers only : "
+                    + type.getReturnedClass());
+        }
+        if (!params.containsKey(INCREMENT_PARAM)) {
+            int blockSize = serviceRegistry.getService(ConfigurationService.class)
+                    .getSetting(BLOCK_SIZE_SETTING, StandardConverters.INTEGER, DEFAULT_BLOCK_SIZE);
+            params.setProperty(INCREMENT_PARAM, String.valueOf(blockSize));
+        }
+        // optimizer 가 none 이면 시퀀스 증가폭이 1 로 바뀌므로 pooled-lo 로 둔다. (실제 할당은 generate() 가 한다)
+        params.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        super.configure(type, params, serviceRegistry);
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object)
+            throws HibernateException {
+        long id = block.next();
+        if (id >= 0) {
+            return id;
+        }
+        synchronized (this) {
+            id = block.next();
+            if (id >= 0) {
+                return id;
+            }
+            DatabaseStructure structure = getDatabaseStructure();
+            if (blockSize == 0) {
+                blockSize = sequenceIncrement(session, structure);
+            }
+            long lo = structure.buildCallback(session).getNextValue().longValue();
+            Block next = new Block(lo, lo + blockSize);
+            id = next.next();
+            block = next;
+            return id;
+        }
+    }
+
+    /**
+     * 시퀀스 대신 테이블을 쓰는 structure 는 Hibernate 가 증가폭을 직접 관리하므로 설정값을 쓴다.
+     */
+    private long sequenceIncrement(SharedSessionContractImplementor session, DatabaseStructure structure) {
+        if (!structure.isPhysicalSequence()) {
+            return structure.getIncrementSize();
+        }
+        String sql = "select increment from " + structure.getName();
+        JdbcCoordinator jdbc = session.getJdbcCoordinator();
+        try {
+            PreparedStatement statement = jdbc.getStatementPreparer().prepareStatement(sql);
+            try {
+                ResultSet resultSet = jdbc.getResultSetReturn().extract(statement);
+                if (!resultSet.next()) {
+                    throw new HibernateException("sequence has no metadata : " + structure.getName());
+                }
+                long increment = resultSet.getLong(1);
+                if (increment <= 0) {
+                    throw new HibernateException("sequence must increase : " + structure.getName()
+                            + " increment by " + increment);
+                }
+                if (increment != structure.getIncrementSize()) {
+                    log.warn("sequence {} increments by {}, not the configured block size {}. using {}",
+                            structure.getName(), increment, structure.getIncrementSize(), increment);
+                }
+                return increment;
+            } finally {
+                jdbc.getLogicalConnection().getResourceRegistry().release(statement);
+                jdbc.afterStatementExecution();
+            }
+        } catch (SQLException e) {
+            throw session.getJdbcServices().getSqlExceptionHelper()
+                    .convert(e, "could not read sequence increment", sql);
+        }
+    }
+
+    private static final class Block {
+
+        static final Block EMPTY = new Block(0, 0);
+
+        private final AtomicLong next;
+        private final long limit;
+
+        Block(long lo, long limit) {
+            this.next = new AtomicLong(lo);
+            this.limit = limit;
+        }
+
+        /**
+         * @return 다음 값, 다 썼으면 -1
+         */
+        long next() {
+            long value = next.getAndIncrement();
+            return value < limit ? value : -1;
+        }
+    }
+}
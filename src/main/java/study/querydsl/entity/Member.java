@@ -1,16 +1,26 @@
 package study.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_age", columnList = "age")
+})
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
 public class Member {
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "member_seq")
+    @GenericGenerator(name = "member_seq", strategy = BlockSequenceGenerator.STRATEGY,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "member_seq"))
     @Column(name = "member_id")
     private Long id;
     private String username;
@@ -32,7 +42,14 @@ public class Member {
         }
     }
     public void changeTeam(Team team) {
+        Team before = this.team;
         this.team = team;
-        team.getMembers().add(this);
+        // 프록시(getReference)면 팀을 조회하지 않고, 로딩된 팀이라도 members 는 초기화하지 않는다. (이전 팀도 마찬가지)
+        if (before != null && before != team && Hibernate.isInitialized(before)) {
+            before.removeMemberIfLoaded(this);
+        }
+        if (team != null && Hibernate.isInitialized(team)) {
+            team.addMemberIfLoaded(this);
+        }
     }
 }
@@ -0,0 +1,35 @@
+package study.querydsl.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * hot 테이블 (member) 에서 옮겨진 회원. member_id 는 원래 값을 그대로 쓴다.
+ * <p>
+ * 팀은 나중에 지워질 수 있으므로 FK 없이 team_id 값만 둔다.
+ */
+@Entity
+@Table(name = "member_archive", indexes = {
+        @Index(name = "idx_member_archive_username", columnList = "username"),
+        @Index(name = "idx_member_archive_team_id", columnList = "team_id")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class MemberArchive {
+
+    @Id
+    @Column(name = "member_id")
+    private Long id;
+    private String username;
+    private int age;
+    @Column(name = "team_id")
+    private Long teamId;
+    @Column(name = "archived_at")
+    private LocalDateTime archivedAt;
+}
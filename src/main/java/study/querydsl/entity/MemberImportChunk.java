@@ -0,0 +1,35 @@
+package study.querydsl.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * CSV import 에서 커밋된 chunk. 회원 저장과 같은 트랜잭션에 기록되므로 재시작하면 여기 없는 chunk 만 다시 읽는다.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"importKey", "chunkIndex"}))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class MemberImportChunk {
+
+    @Id @GeneratedValue
+    private Long id;
+
+    private String importKey;
+    private int chunkIndex;
+    private long rowCount;
+    private LocalDateTime importedAt;
+
+    public MemberImportChunk(String importKey, int chunkIndex, long rowCount) {
+        this.importKey = importKey;
+        this.chunkIndex = chunkIndex;
+        this.rowCount = rowCount;
+        this.importedAt = LocalDateTime.now();
+    }
+}
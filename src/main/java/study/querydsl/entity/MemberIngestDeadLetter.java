@@ -0,0 +1,39 @@
+package study.querydsl.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 대량 등록 (MemberIngestBuffer) 에서 재시도 후에도 저장하지 못한 요청. 202 로 받은 요청을 버리지 않고 남겨둔다.
+ */
+@Entity
+@Table(name = "member_ingest_dead_letter")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class MemberIngestDeadLetter {
+
+    @Id @GeneratedValue
+    private Long id;
+
+    private String username;
+    private int age;
+    private String teamName;
+
+    @Column(length = 1000)
+    private String error;
+    private LocalDateTime failedAt;
+
+    public MemberIngestDeadLetter(String username, int age, String teamName, String error) {
+        this.username = username;
+        this.age = age;
+        this.teamName = teamName;
+        this.error = error == null || error.length() <= 1000 ? error : error.substring(0, 1000);
+        this.failedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,46 @@
+package study.querydsl.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Member / Team 변경 피드 (transactional outbox). 변경과 같은 트랜잭션에 기록되고, id 순서가 피드 순서다.
+ * <p>
+ * 쓰기는 MemberOutboxWriter 가 JDBC 로 직접 한다. (flush 중에는 엔티티를 persist 할 수 없다) 엔티티는 테이블 정의와 조회용이다.
+ */
+@Entity
+@Table(name = "member_outbox")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class MemberOutbox {
+
+    public static final String MEMBER = "MEMBER";
+    public static final String TEAM = "TEAM";
+    public static final String MEMBER_BULK = "MEMBER_BULK";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "outbox_id")
+    private Long id;
+
+    @Column(name = "aggregate", length = 16, nullable = false)
+    private String aggregate;
+
+    @Column(name = "change_type", length = 8, nullable = false)
+    private String changeType;
+
+    @Column(name = "aggregate_id")
+    private Long aggregateId;
+
+    @Column(name = "payload", length = 1000)
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,44 @@
+package study.querydsl.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.Synchronize;
+
+import javax.persistence.*;
+
+/**
+ * 검색용 읽기 모델 - member 에 팀 이름을 붙여둔 테이블. 검색 / count 에 team 조인이 필요 없다.
+ * <p>
+ * MemberSearchSync 가 Member / Team 변경과 같은 트랜잭션에서 갱신한다. (JPA 로는 쓰지 않는다)
+ * {@code @Synchronize} 때문에 이 엔티티를 조회하면 Member / Team 의 변경이 먼저 flush 된다.
+ */
+@Entity
+@Immutable
+@Synchronize({"member", "team"})
+@Table(name = MemberSearch.TABLE, indexes = {
+        @Index(name = MemberSearch.IDX_TEAM_NAME_AGE, columnList = "team_name, age"),
+        @Index(name = "idx_member_search_username", columnList = "username"),
+        @Index(name = "idx_member_search_age", columnList = "age"),
+        @Index(name = "idx_member_search_team_id", columnList = "team_id")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class MemberSearch {
+
+    public static final String TABLE = "member_search";
+    public static final String IDX_TEAM_NAME_AGE = "idx_member_search_team_name_age";
+
+    @Id
+    @Column(name = "member_id")
+    private Long id;
+    private String username;
+    private int age;
+    @Column(name = "team_id")
+    private Long teamId;
+    @Column(name = "team_name")
+    private String teamName;
+}
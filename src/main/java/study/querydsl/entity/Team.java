@@ -1,18 +1,34 @@
 package study.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * 프록시를 초기화할 때 세션에 있는 다른 팀 프록시도 같이 읽는다. (MemberChangeDispatcher 가 팀 이름을 꺼낼 때 팀마다 select 하지 않는다)
+ * <p>
+ * 팀 이름은 unique 다. (_ci collation 이므로 대소문자 / 뒤 공백만 다른 이름도 같은 팀) 여러 서버가 같은 팀을 동시에 만들 때
+ * MemberBatchWriter 가 이 키로 하나만 남긴다.
+ */
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_team_name", columnNames = "name"))
+@BatchSize(size = 100)
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "name"})
 public class Team {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(generator = "team_seq")
+    @GenericGenerator(name = "team_seq", strategy = BlockSequenceGenerator.STRATEGY,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "team_seq"))
     @Column(name = "team_id")
     private Long id;
 
@@ -24,4 +40,20 @@ public class Team {
     public Team(String name) {
         this.name = name;
     }
+
+    /**
+     * members 가 이미 로딩된 경우에만 메모리상의 컬렉션을 맞춰준다.
+     * 로딩 전이면 DB 가 기준이므로 컬렉션 전체를 읽어오지 않는다.
+     */
+    void addMemberIfLoaded(Member member) {
+        if (Hibernate.isInitialized(members)) {
+            members.add(member);
+        }
+    }
+
+    void removeMemberIfLoaded(Member member) {
+        if (Hibernate.isInitialized(members)) {
+            members.remove(member);
+        }
+    }
 }
\ No newline at end of file
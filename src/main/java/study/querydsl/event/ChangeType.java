@@ -0,0 +1,5 @@
+package study.querydsl.event;
+
+public enum ChangeType {
+  INSERT, UPDATE, DELETE
+}
@@ -0,0 +1,18 @@
+package study.querydsl.event;
+
+import lombok.Data;
+import study.querydsl.dto.MemberSearchCondition;
+
+/**
+ * 영속성 컨텍스트를 거치지 않는 벌크 update(member)
+ * <p>
+ * condition 에 걸리던 회원들의 나이가 ageDelta 만큼 바뀌었다.
+ */
+@Data
+public class MemberBulkChange {
+
+  private final MemberSearchCondition condition;
+  private final int ageDelta;
+  private final long updatedCount;
+
+}
@@ -0,0 +1,21 @@
+package study.querydsl.event;
+
+import lombok.Data;
+
+/**
+ * Member 한 건의 insert / update / delete
+ * <p>
+ * before 는 insert 이거나 이전 상태를 모르면 null, after 는 delete 이면 null 이다.
+ */
+@Data
+public class MemberChange {
+
+  private final ChangeType type;
+  private final Long memberId;
+  private final MemberState before;
+  private final MemberState after;
+
+  public boolean isBeforeUnknown() {
+    return type != ChangeType.INSERT && before == null;
+  }
+}
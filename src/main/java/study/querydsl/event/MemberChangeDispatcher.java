@@ -0,0 +1,164 @@
+package study.querydsl.event;
+
+import java.util.List;
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+/**
+ * Hibernate post-insert / update / delete 이벤트를 Member, Team 변경으로 바꿔서 MemberChangeListener 들에게 전달한다.
+ * <p>
+ * 벌크 update 는 이벤트가 없으므로 실행한 쪽에서 bulkChanged() 로 알려준다.
+ */
+@Component
+public class MemberChangeDispatcher implements PostInsertEventListener, PostUpdateEventListener,
+    PostDeleteEventListener {
+
+  private final EntityManagerFactory emf;
+  private final List<MemberChangeListener> listeners;
+
+  public MemberChangeDispatcher(EntityManagerFactory emf, List<MemberChangeListener> listeners) {
+    this.emf = emf;
+    this.listeners = listeners;
+  }
+
+  @PostConstruct
+  public void register() {
+    EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+        .getServiceRegistry()
+        .getService(EventListenerRegistry.class);
+    registry.appendListeners(EventType.POST_INSERT, this);
+    registry.appendListeners(EventType.POST_UPDATE, this);
+    registry.appendListeners(EventType.POST_DELETE, this);
+  }
+
+  public void bulkChanged(MemberBulkChange change) {
+    listeners.forEach(listener -> listener.membersBulkChanged(change));
+  }
+
+  /**
+   * 벌크 delete 로 지운 회원들. before 는 지우기 전에 읽어둔 상태다.
+   */
+  public void membersDeleted(List<MemberChange> changes, EventSource session) {
+    changes.forEach(change -> fire(change, session));
+  }
+
+  /**
+   * 엔티티를 거치지 않고 JDBC 로 넣은 회원들 (MemberBatchWriter)
+   */
+  public void membersInserted(List<MemberChange> changes, EventSource session) {
+    changes.forEach(change -> fire(change, session));
+  }
+
+  @Override
+  public void onPostInsert(PostInsertEvent event) {
+    if (event.getEntity() instanceof Member) {
+      Member member = (Member) event.getEntity();
+      fire(new MemberChange(ChangeType.INSERT, member.getId(), null, current(member)),
+          event.getSession());
+    } else if (event.getEntity() instanceof Team) {
+      Team team = (Team) event.getEntity();
+      fire(new TeamChange(ChangeType.INSERT, team.getId(), null, team.getName()),
+          event.getSession());
+    }
+  }
+
+  @Override
+  public void onPostUpdate(PostUpdateEvent event) {
+    Object[] oldState = event.getOldState();
+    EntityPersister persister = event.getPersister();
+    if (event.getEntity() instanceof Member) {
+      Member member = (Member) event.getEntity();
+      MemberState before = oldState == null ? null : state(persister, oldState);
+      fire(new MemberChange(ChangeType.UPDATE, member.getId(), before, current(member)),
+          event.getSession());
+    } else if (event.getEntity() instanceof Team) {
+      Team team = (Team) event.getEntity();
+      String beforeName = oldState == null ? null
+          : (String) oldState[propertyIndex(persister, "name")];
+      fire(new TeamChange(ChangeType.UPDATE, team.getId(), beforeName, team.getName()),
+          event.getSession());
+    }
+  }
+
+  @Override
+  public void onPostDelete(PostDeleteEvent event) {
+    Object[] deletedState = event.getDeletedState();
+    EntityPersister persister = event.getPersister();
+    if (event.getEntity() instanceof Member) {
+      MemberState before = deletedState == null ? null : state(persister, deletedState);
+      fire(new MemberChange(ChangeType.DELETE, (Long) event.getId(), before, null),
+          event.getSession());
+    } else if (event.getEntity() instanceof Team) {
+      String beforeName = deletedState == null ? null
+          : (String) deletedState[propertyIndex(persister, "name")];
+      fire(new TeamChange(ChangeType.DELETE, (Long) event.getId(), beforeName, null),
+          event.getSession());
+    }
+  }
+
+  @Override
+  public boolean requiresPostCommitHanding(EntityPersister persister) {
+    return false;
+  }
+
+  private void fire(MemberChange change, EventSource session) {
+    listeners.forEach(listener -> listener.memberChanged(change, session));
+  }
+
+  private void fire(TeamChange change, EventSource session) {
+    listeners.forEach(listener -> listener.teamChanged(change, session));
+  }
+
+  private MemberState current(Member member) {
+    return new MemberState(member.getUsername(), member.getAge(), teamId(member.getTeam()),
+        teamName(member.getTeam()));
+  }
+
+  private MemberState state(EntityPersister persister, Object[] values) {
+    Object team = values[propertyIndex(persister, "team")];
+    return new MemberState(
+        (String) values[propertyIndex(persister, "username")],
+        (Integer) values[propertyIndex(persister, "age")],
+        teamId(team),
+        teamName(team));
+  }
+
+  private int propertyIndex(EntityPersister persister, String property) {
+    return persister.getEntityMetamodel().getPropertyIndex(property);
+  }
+
+  /**
+   * 프록시면 초기화하지 않고 식별자만 꺼낸다.
+   */
+  private Long teamId(Object team) {
+    if (team == null) {
+      return null;
+    }
+    if (team instanceof HibernateProxy) {
+      return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+    }
+    return ((Team) team).getId();
+  }
+
+  /**
+   * 프록시면 초기화된다. Team 은 @BatchSize 라서 같은 세션의 팀 프록시들을 한 번에 읽는다.
+   */
+  private String teamName(Object team) {
+    return team == null ? null : ((Team) team).getName();
+  }
+}
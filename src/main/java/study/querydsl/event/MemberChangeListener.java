@@ -0,0 +1,20 @@
+package study.querydsl.event;
+
+import org.hibernate.event.spi.EventSource;
+
+/**
+ * Member / Team 변경 알림. flush 시점 (커밋 전) 에 같은 트랜잭션, 같은 세션으로 호출된다.
+ * <p>
+ * 커밋 후에 처리해야 하는 구현은 TransactionSynchronization 을 직접 등록한다.
+ */
+public interface MemberChangeListener {
+
+  default void memberChanged(MemberChange change, EventSource session) {
+  }
+
+  default void teamChanged(TeamChange change, EventSource session) {
+  }
+
+  default void membersBulkChanged(MemberBulkChange change) {
+  }
+}
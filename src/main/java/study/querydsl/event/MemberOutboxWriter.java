@@ -0,0 +1,150 @@
+package study.querydsl.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.persistence.EntityManager;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.MemberOutbox;
+
+/**
+ * Member / Team 변경을 같은 트랜잭션 안에서 member_outbox 에 기록한다.
+ * <p>
+ * 변경은 세션별로 모아두었다가 트랜잭션 완료 직전 (마지막 flush 이후) 에 JDBC batch 한번으로 넣는다. 대량 저장 때 행마다 insert 가
+ * 하나씩 더 나가지 않게 하기 위해서다. 롤백되면 버린다.
+ * <p>
+ * payload 는 변경 후 상태만 담은 작은 JSON 이다. (delete 는 null)
+ */
+@Component
+public class MemberOutboxWriter implements MemberChangeListener {
+
+  /**
+   * created_at 은 id 를 받는 insert 시점의 DB 시계로 찍는다. (피드의 settle 판단도 DB 시계로 한다)
+   */
+  private static final String INSERT_SQL = "insert into member_outbox "
+      + "(aggregate, change_type, aggregate_id, payload, created_at) values (?, ?, ?, ?, now(6))";
+
+  private final EntityManager em;
+  private final ObjectMapper objectMapper;
+  private final Map<SessionImplementor, List<Object[]>> pending = new ConcurrentHashMap<>();
+  private final Object commitMonitor = new Object();
+  private long commits;
+
+  public MemberOutboxWriter(EntityManager em, ObjectMapper objectMapper) {
+    this.em = em;
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  public void memberChanged(MemberChange change, EventSource session) {
+    Map<String, Object> payload = null;
+    if (change.getAfter() != null) {
+      payload = new LinkedHashMap<>();
+      payload.put("username", change.getAfter().getUsername());
+      payload.put("age", change.getAfter().getAge());
+      payload.put("teamId", change.getAfter().getTeamId());
+    }
+    add(session, MemberOutbox.MEMBER, change.getType(), change.getMemberId(), payload);
+  }
+
+  @Override
+  public void teamChanged(TeamChange change, EventSource session) {
+    Map<String, Object> payload = change.getAfterName() == null ? null
+        : Map.of("name", change.getAfterName());
+    add(session, MemberOutbox.TEAM, change.getType(), change.getTeamId(), payload);
+  }
+
+  /**
+   * 벌크 update 는 바뀐 회원 목록을 모르므로 조건과 변화량을 그대로 싣는다.
+   */
+  @Override
+  public void membersBulkChanged(MemberBulkChange change) {
+    MemberSearchCondition condition = change.getCondition();
+    Map<String, Object> payload = new LinkedHashMap<>();
+    payload.put("username", condition.getUsername());
+    payload.put("teamName", condition.getTeamName());
+    payload.put("ageGoe", condition.getAgeGoe());
+    payload.put("ageLoe", condition.getAgeLoe());
+    payload.put("ageDelta", change.getAgeDelta());
+    payload.put("updatedCount", change.getUpdatedCount());
+    add(em.unwrap(SessionImplementor.class), MemberOutbox.MEMBER_BULK, ChangeType.UPDATE, null,
+        payload);
+  }
+
+  /**
+   * 다음 커밋 (이 인스턴스에서 outbox 를 쓴 커밋) 까지 최대 timeoutMillis 기다린다. long-poll 용
+   */
+  public void awaitCommit(long timeoutMillis) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    synchronized (commitMonitor) {
+      long seen = commits;
+      long remaining = timeoutMillis;
+      while (commits == seen && remaining > 0) {
+        commitMonitor.wait(remaining);
+        remaining = deadline - System.currentTimeMillis();
+      }
+    }
+  }
+
+  private void add(SessionImplementor session, String aggregate, ChangeType type, Long id,
+      Map<String, Object> payload) {
+    Object[] row = {aggregate, type.name(), id, toJson(payload)};
+    pending.computeIfAbsent(session, s -> {
+      // 세션 (트랜잭션) 마다 처음 한번만 등록한다.
+      s.getActionQueue().registerProcess(this::write);
+      s.getActionQueue().registerProcess((success, completed) -> {
+        pending.remove(completed);
+        if (success) {
+          synchronized (commitMonitor) {
+            commits++;
+            commitMonitor.notifyAll();
+          }
+        }
+      });
+      return new ArrayList<>();
+    }).add(row);
+  }
+
+  private void write(SessionImplementor session) {
+    List<Object[]> rows = pending.remove(session);
+    if (rows == null || rows.isEmpty()) {
+      return;
+    }
+    session.doWork(connection -> {
+      try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+        for (Object[] row : rows) {
+          statement.setString(1, (String) row[0]);
+          statement.setString(2, (String) row[1]);
+          if (row[2] == null) {
+            statement.setNull(3, Types.BIGINT);
+          } else {
+            statement.setLong(3, (Long) row[2]);
+          }
+          statement.setString(4, (String) row[3]);
+          statement.addBatch();
+        }
+        statement.executeBatch();
+      }
+    });
+  }
+
+  private String toJson(Map<String, Object> payload) {
+    if (payload == null) {
+      return null;
+    }
+    try {
+      return objectMapper.writeValueAsString(payload);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("outbox payload serialization failed", e);
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package study.querydsl.event;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * --member.search-model.rebuild=true 로 기동하면 member_search 를 다시 만든다.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "member.search-model.rebuild", havingValue = "true")
+public class MemberSearchRebuildRunner implements ApplicationRunner {
+
+  private final MemberSearchRebuilder rebuilder;
+
+  @Override
+  public void run(ApplicationArguments args) {
+    rebuilder.rebuild();
+  }
+}
@@ -0,0 +1,77 @@
+package study.querydsl.event;
+
+import java.util.List;
+import javax.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * member 와 team 으로 member_search 를 다시 만든다. (최초 적재, JPA 를 거치지 않은 변경 뒤의 보정)
+ * <p>
+ * member_id 순서로 chunkSize 건씩 insert ... select 로 덮어쓰고, 마지막에 member 에 없는 행을 지운다. chunk 하나가 트랜잭션
+ * 하나라서 운영 중에 돌려도 락을 오래 잡지 않는다.
+ */
+@Slf4j
+@Component
+public class MemberSearchRebuilder {
+
+  private static final String UPSERT_SQL = "insert into member_search "
+      + "(member_id, username, age, team_id, team_name) "
+      + "select m.member_id, m.username, m.age, m.team_id, t.name "
+      + "from member m left join team t on t.team_id = m.team_id "
+      + "where m.member_id between ?1 and ?2 "
+      + "on duplicate key update username = values(username), age = values(age), "
+      + "team_id = values(team_id), team_name = values(team_name)";
+  private static final String DELETE_ORPHANS_SQL = "delete s from member_search s "
+      + "left join member m on m.member_id = s.member_id where m.member_id is null";
+
+  private final EntityManager em;
+  private final TransactionTemplate transactionTemplate;
+  private final int chunkSize;
+
+  public MemberSearchRebuilder(EntityManager em, PlatformTransactionManager transactionManager,
+      @Value("${member.search-model.chunk-size:5000}") int chunkSize) {
+    this.em = em;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * @return 다시 쓴 행 수
+   */
+  public long rebuild() {
+    long start = System.nanoTime();
+    long rows = 0;
+    long lastId = 0;
+    while (true) {
+      long after = lastId;
+      List<Long> ids = transactionTemplate.execute(status -> {
+        List<Long> chunk = em.createQuery(
+                "select m.id from Member m where m.id > :after order by m.id", Long.class)
+            .setParameter("after", after)
+            .setMaxResults(chunkSize)
+            .getResultList();
+        if (!chunk.isEmpty()) {
+          em.createNativeQuery(UPSERT_SQL)
+              .setParameter(1, chunk.get(0))
+              .setParameter(2, chunk.get(chunk.size() - 1))
+              .executeUpdate();
+        }
+        return chunk;
+      });
+      if (ids == null || ids.isEmpty()) {
+        break;
+      }
+      rows += ids.size();
+      lastId = ids.get(ids.size() - 1);
+    }
+    Integer orphans = transactionTemplate.execute(status ->
+        em.createNativeQuery(DELETE_ORPHANS_SQL).executeUpdate());
+    log.info("member_search rebuilt. rows={}, orphansDeleted={}, elapsed={}ms", rows, orphans,
+        (System.nanoTime() - start) / 1_000_000);
+    return rows;
+  }
+}
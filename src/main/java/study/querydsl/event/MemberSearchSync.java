@@ -0,0 +1,184 @@
+package study.querydsl.event;
+
+import static org.springframework.util.StringUtils.hasText;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AutoFlushEvent;
+import org.hibernate.event.spi.AutoFlushEventListener;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.FlushEvent;
+import org.hibernate.event.spi.FlushEventListener;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+
+/**
+ * member_search 읽기 모델을 같은 트랜잭션 안에서 갱신한다.
+ * <p>
+ * 변경 이벤트는 세션별로 순서대로 모아두고, flush (auto flush 포함) 가 끝난 직후 JDBC 로 반영한다. 연속된 upsert 는 batch 하나로
+ * 보낸다. member_search 를 조회하면 (@Synchronize) 먼저 flush 되므로 같은 트랜잭션의 변경도 바로 보인다.
+ * <p>
+ * 벌크 나이 변경은 같은 조건으로 member_search 에도 적용한다. 그 외 JPA 를 거치지 않은 변경은 MemberSearchRebuilder 로 다시 만든다.
+ */
+@Component
+public class MemberSearchSync implements MemberChangeListener, FlushEventListener,
+    AutoFlushEventListener {
+
+  private static final String UPSERT_SQL = "insert into member_search "
+      + "(member_id, username, age, team_id, team_name) values (?, ?, ?, ?, ?) "
+      + "on duplicate key update username = values(username), age = values(age), "
+      + "team_id = values(team_id), team_name = values(team_name)";
+  private static final String DELETE_SQL = "delete from member_search where member_id = ?";
+  private static final String TEAM_RENAME_SQL =
+      "update member_search set team_name = ? where team_id = ?";
+  private static final String TEAM_DELETE_SQL =
+      "update member_search set team_id = null, team_name = null where team_id = ?";
+
+  private final EntityManagerFactory emf;
+  private final EntityManager em;
+  private final Map<SessionImplementor, List<Op>> pending = new ConcurrentHashMap<>();
+
+  public MemberSearchSync(EntityManagerFactory emf, EntityManager em) {
+    this.emf = emf;
+    this.em = em;
+  }
+
+  @PostConstruct
+  public void register() {
+    EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+        .getServiceRegistry()
+        .getService(EventListenerRegistry.class);
+    registry.appendListeners(EventType.FLUSH, this);
+    registry.appendListeners(EventType.AUTO_FLUSH, this);
+  }
+
+  @Override
+  public void memberChanged(MemberChange change, EventSource session) {
+    if (change.getAfter() == null) {
+      add(session, new Op(DELETE_SQL, change.getMemberId()));
+      return;
+    }
+    MemberState after = change.getAfter();
+    add(session, new Op(UPSERT_SQL, change.getMemberId(), after.getUsername(), after.getAge(),
+        after.getTeamId(), after.getTeamName()));
+  }
+
+  @Override
+  public void teamChanged(TeamChange change, EventSource session) {
+    if (change.getType() == ChangeType.DELETE) {
+      add(session, new Op(TEAM_DELETE_SQL, change.getTeamId()));
+    } else if (change.isRenamed()) {
+      add(session, new Op(TEAM_RENAME_SQL, change.getAfterName(), change.getTeamId()));
+    }
+  }
+
+  @Override
+  public void membersBulkChanged(MemberBulkChange change) {
+    MemberSearchCondition condition = change.getCondition();
+    StringBuilder sql = new StringBuilder("update member_search set age = age + ? where 1 = 1");
+    List<Object> params = new ArrayList<>();
+    params.add(change.getAgeDelta());
+    if (hasText(condition.getUsername())) {
+      sql.append(" and username = ?");
+      params.add(condition.getUsername());
+    }
+    if (hasText(condition.getTeamName())) {
+      sql.append(" and team_name = ?");
+      params.add(condition.getTeamName());
+    }
+    if (condition.getAgeGoe() != null) {
+      sql.append(" and age >= ?");
+      params.add(condition.getAgeGoe());
+    }
+    if (condition.getAgeLoe() != null) {
+      sql.append(" and age <= ?");
+      params.add(condition.getAgeLoe());
+    }
+    add(em.unwrap(SessionImplementor.class), new Op(sql.toString(), params.toArray()));
+  }
+
+  @Override
+  public void onFlush(FlushEvent event) {
+    write(event.getSession());
+  }
+
+  @Override
+  public void onAutoFlush(AutoFlushEvent event) {
+    write(event.getSession());
+  }
+
+  private void add(SessionImplementor session, Op op) {
+    pending.computeIfAbsent(session, s -> {
+      // 커밋 직전 flush 이후에 추가된 것 (벌크 변경) 도 반영하고, 롤백되면 버린다.
+      s.getActionQueue().registerProcess(this::write);
+      s.getActionQueue().registerProcess((success, completed) -> pending.remove(completed));
+      return new ArrayList<>();
+    }).add(op);
+  }
+
+  private void write(SessionImplementor session) {
+    List<Op> ops = pending.get(session);
+    if (ops == null || ops.isEmpty()) {
+      return;
+    }
+    List<Op> batch = new ArrayList<>(ops);
+    ops.clear();
+    session.doWork(connection -> execute(connection, batch));
+  }
+
+  /**
+   * 순서를 지키면서 같은 SQL 이 연속되면 batch 로 묶는다.
+   */
+  private void execute(Connection connection, List<Op> ops) throws SQLException {
+    int from = 0;
+    while (from < ops.size()) {
+      String sql = ops.get(from).sql;
+      int to = from;
+      while (to < ops.size() && ops.get(to).sql.equals(sql)) {
+        to++;
+      }
+      try (PreparedStatement statement = connection.prepareStatement(sql)) {
+        for (Op op : ops.subList(from, to)) {
+          for (int i = 0; i < op.params.length; i++) {
+            bind(statement, i + 1, op.params[i]);
+          }
+          statement.addBatch();
+        }
+        statement.executeBatch();
+      }
+      from = to;
+    }
+  }
+
+  private void bind(PreparedStatement statement, int index, Object value) throws SQLException {
+    if (value == null) {
+      statement.setNull(index, Types.NULL);
+    } else {
+      statement.setObject(index, value);
+    }
+  }
+
+  private static final class Op {
+
+    private final String sql;
+    private final Object[] params;
+
+    private Op(String sql, Object... params) {
+      this.sql = sql;
+      this.params = params;
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package study.querydsl.event;
+
+import lombok.Data;
+
+/**
+ * 변경 전/후 Member 의 검색 대상 속성
+ */
+@Data
+public class MemberState {
+
+  private final String username;
+  private final int age;
+  private final Long teamId;
+  private final String teamName;
+
+}
@@ -0,0 +1,20 @@
+package study.querydsl.event;
+
+import lombok.Data;
+
+/**
+ * Team 한 건의 insert / update(이름 변경) / delete
+ */
+@Data
+public class TeamChange {
+
+  private final ChangeType type;
+  private final Long teamId;
+  private final String beforeName;
+  private final String afterName;
+
+  public boolean isRenamed() {
+    return type == ChangeType.UPDATE
+        && (beforeName == null ? afterName != null : !beforeName.equals(afterName));
+  }
+}
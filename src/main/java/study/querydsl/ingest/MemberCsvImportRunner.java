@@ -0,0 +1,35 @@
+package study.querydsl.ingest;
+
+import java.nio.file.Path;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * --member.import.members-file=... (선택: --member.import.teams-file=...) 로 기동하면 import 를 실행한다.
+ * 실패하면 같은 인자로 다시 실행해서 이어서 처리한다.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "member.import", name = "members-file")
+public class MemberCsvImportRunner implements ApplicationRunner {
+
+  private final MemberCsvImporter importer;
+
+  @Value("${member.import.teams-file:}")
+  private String teamsFile;
+
+  @Value("${member.import.members-file}")
+  private String membersFile;
+
+  @Override
+  public void run(ApplicationArguments args) throws Exception {
+    if (!teamsFile.isBlank()) {
+      importer.importTeams(Path.of(teamsFile));
+    }
+    importer.importMembers(Path.of(membersFile));
+  }
+}
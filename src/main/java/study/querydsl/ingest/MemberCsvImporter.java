@@ -0,0 +1,308 @@
+package study.querydsl.ingest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberIngestRequest;
+import study.querydsl.entity.MemberImportChunk;
+import study.querydsl.repository.MemberBatchWriter;
+import study.querydsl.repository.MemberImportChunkRepository;
+
+/**
+ * 회원 / 팀 CSV 대량 import
+ * <p>
+ * 회원 파일 (username,age,teamName) 을 줄 경계에 맞춘 byte 범위 (chunk) 로 나누고, 각 chunk 를 memory-mapped 로 읽어 worker
+ * 스레드에서 파싱 / 저장한다. chunk 하나가 트랜잭션 하나이고, 커밋된 chunk 는 MemberImportChunk 에 같이 기록되므로
+ * 중간에 실패하면 같은 파일을 다시 돌렸을 때 남은 chunk 만 처리한다. 파일은 내용 (SHA-256) + chunkBytes 로 구분한다.
+ * (이름이 같아도 내용이 다르면 다른 import 이고, chunk 경계는 chunkBytes 로 정해진다)
+ * <p>
+ * chunk 트랜잭션을 시작하기 전에 파일을 한번 훑어 해시를 구하고 팀을 모두 만든다. chunk 안에서는 커넥션을 하나만 쓴다.
+ * 저장은 MemberBatchWriter (JDBC batch insert + 변경 이벤트) 를 쓴다.
+ */
+@Slf4j
+@Component
+public class MemberCsvImporter {
+
+  private static final String MEMBER_HEADER = "username,";
+
+  private final MemberBatchWriter writer;
+  private final MemberImportChunkRepository chunkRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final int threads;
+  private final long chunkBytes;
+  private final int batchSize;
+
+  public MemberCsvImporter(MemberBatchWriter writer, MemberImportChunkRepository chunkRepository,
+      PlatformTransactionManager transactionManager,
+      @Value("${member.import.threads:4}") int threads,
+      @Value("${member.import.chunk-bytes:8388608}") long chunkBytes,
+      @Value("${member.ingest.batch-size:500}") int batchSize) {
+    this.writer = writer;
+    this.chunkRepository = chunkRepository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.threads = threads;
+    this.chunkBytes = chunkBytes;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * 팀 파일 (한 줄에 팀 이름 하나). 팀은 많지 않으므로 한번에 읽는다.
+   */
+  public int importTeams(Path file) throws IOException {
+    List<String> names = new ArrayList<>();
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String name = line.strip();
+        if (!name.isEmpty() && !name.equals("name")) {
+          names.add(name);
+        }
+      }
+    }
+    return writer.writeTeams(names);
+  }
+
+  /**
+   * @return 이번 실행에서 저장한 회원 수
+   */
+  public long importMembers(Path file) throws IOException, InterruptedException {
+    Set<String> teamNames = new LinkedHashSet<>();
+    String importKey = scan(file, teamNames);
+    writer.writeTeams(teamNames);
+    List<long[]> chunks = split(file);
+    Set<Integer> done = chunkRepository.findChunkIndexes(importKey);
+    log.info("member import start. file={}, chunks={}, alreadyDone={}", file, chunks.size(),
+        done.size());
+
+    AtomicLong imported = new AtomicLong();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int index = 0; index < chunks.size(); index++) {
+        if (done.contains(index)) {
+          continue;
+        }
+        int chunkIndex = index;
+        long[] range = chunks.get(index);
+        futures.add(executor.submit(() ->
+            imported.addAndGet(importChunk(channel, importKey, chunkIndex, range[0], range[1]))));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("member import failed. rerun to resume : " + file,
+          e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    log.info("member import finished. file={}, imported={}", file, imported.get());
+    return imported.get();
+  }
+
+  /**
+   * 파일 전체를 한번 읽어 import key 를 만들고 팀 이름을 모은다.
+   *
+   * @return "sha256 hex:chunkBytes"
+   */
+  String scan(Path file, Set<String> teamNames) throws IOException {
+    MessageDigest digest = sha256();
+    byte[] line = new byte[256];
+    int length = 0;
+    boolean first = true;
+    try (InputStream in = Files.newInputStream(file)) {
+      byte[] block = new byte[64 * 1024];
+      int read;
+      while ((read = in.read(block)) > 0) {
+        digest.update(block, 0, read);
+        for (int i = 0; i < read; i++) {
+          if (block[i] != '\n') {
+            if (length == line.length) {
+              line = Arrays.copyOf(line, length * 2);
+            }
+            line[length++] = block[i];
+            continue;
+          }
+          addTeamName(teamNames, line, length, first);
+          first = false;
+          length = 0;
+        }
+      }
+    }
+    addTeamName(teamNames, line, length, first);
+    return toHex(digest.digest()) + ":" + chunkBytes;
+  }
+
+  private void addTeamName(Set<String> teamNames, byte[] line, int length, boolean firstLine) {
+    MemberIngestRequest request = parseLine(line, length, firstLine, false);
+    if (request != null && request.getTeamName() != null) {
+      teamNames.add(request.getTeamName());
+    }
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder hex = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    }
+    return hex.toString();
+  }
+
+  /**
+   * chunkBytes 단위로 자르되 끝은 다음 줄의 시작으로 맞춘다. 같은 파일, 같은 chunkBytes 면 항상 같은 경계가 나온다.
+   */
+  List<long[]> split(Path file) throws IOException {
+    List<long[]> chunks = new ArrayList<>();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long start = 0;
+      while (start < size) {
+        long end = Math.min(start + chunkBytes, size);
+        if (end < size) {
+          end = nextLineStart(channel, end);
+        }
+        chunks.add(new long[]{start, end});
+        start = end;
+      }
+    }
+    return chunks;
+  }
+
+  private long nextLineStart(FileChannel channel, long position) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(4096);
+    long size = channel.size();
+    while (position < size) {
+      buffer.clear();
+      int read = channel.read(buffer, position);
+      for (int i = 0; i < read; i++) {
+        if (buffer.get(i) == '\n') {
+          return position + i + 1;
+        }
+      }
+      position += read;
+    }
+    return size;
+  }
+
+  private long importChunk(FileChannel channel, String importKey, int chunkIndex, long start,
+      long end) throws IOException {
+    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+    Long rows = transactionTemplate.execute(status -> {
+      // 다른 프로세스가 같은 chunk 를 이미 끝냈으면 건너뛴다.
+      if (chunkRepository.existsByImportKeyAndChunkIndex(importKey, chunkIndex)) {
+        return 0L;
+      }
+      long count = parse(buffer, chunkIndex == 0);
+      chunkRepository.save(new MemberImportChunk(importKey, chunkIndex, count));
+      return count;
+    });
+    return rows == null ? 0 : rows;
+  }
+
+  /**
+   * 줄 단위로 파싱해서 batchSize 씩 저장한다. 형식이 맞지 않는 줄은 건너뛴다.
+   */
+  private long parse(MappedByteBuffer buffer, boolean firstChunk) {
+    List<MemberIngestRequest> batch = new ArrayList<>(batchSize);
+    byte[] line = new byte[256];
+    int length = 0;
+    long count = 0;
+    boolean first = firstChunk;
+    while (buffer.hasRemaining()) {
+      byte b = buffer.get();
+      if (b != '\n') {
+        if (length == line.length) {
+          line = Arrays.copyOf(line, length * 2);
+        }
+        line[length++] = b;
+        if (buffer.hasRemaining()) {
+          continue;
+        }
+      }
+      MemberIngestRequest request = parseLine(line, length, first, true);
+      first = false;
+      length = 0;
+      if (request == null) {
+        continue;
+      }
+      batch.add(request);
+      if (batch.size() == batchSize) {
+        count += writer.write(batch);
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      count += writer.write(batch);
+    }
+    return count;
+  }
+
+  /**
+   * @return 헤더 / 빈 줄 / 형식이 맞지 않는 줄이면 null
+   */
+  private MemberIngestRequest parseLine(byte[] bytes, int length, boolean firstLine,
+      boolean warn) {
+    if (length > 0 && bytes[length - 1] == '\r') {
+      length--;
+    }
+    String line = new String(bytes, 0, length, StandardCharsets.UTF_8);
+    if (line.isBlank() || firstLine && line.startsWith(MEMBER_HEADER)) {
+      return null;
+    }
+    String[] fields = line.split(",", -1);
+    if (fields.length < 2) {
+      warnMalformed(line, warn);
+      return null;
+    }
+    MemberIngestRequest request = new MemberIngestRequest();
+    request.setUsername(fields[0].strip());
+    try {
+      request.setAge(Integer.parseInt(fields[1].strip()));
+    } catch (NumberFormatException e) {
+      warnMalformed(line, warn);
+      return null;
+    }
+    if (fields.length > 2 && !fields[2].isBlank()) {
+      request.setTeamName(fields[2].strip());
+    }
+    return request;
+  }
+
+  private static void warnMalformed(String line, boolean warn) {
+    if (warn) {
+      log.warn("skip malformed member line : {}", line);
+    }
+  }
+}
@@ -0,0 +1,172 @@
+package study.querydsl.ingest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberIngestRequest;
+import study.querydsl.entity.MemberIngestDeadLetter;
+import study.querydsl.repository.MemberBatchWriter;
+import study.querydsl.repository.MemberIngestDeadLetterRepository;
+
+/**
+ * 대량 등록 요청을 bounded queue 에 모았다가 batchSize 가 차거나 flushInterval 이 지나면 한번에 저장한다.
+ * <p>
+ * 큐가 가득 차면 offerTimeout 만큼만 기다리고 나머지는 거절한다. (backpressure)
+ * <p>
+ * 큐에 들어간 요청은 이미 202 로 응답했으므로 버리지 않는다. 저장이 실패하면 max-attempts 번까지 간격을 늘려가며 다시 시도하고,
+ * 그래도 실패하면 한 건씩 저장해서 실패한 건만 MemberIngestDeadLetter 에 남긴다. (그것도 실패하면 요청 내용을 error 로그에 남긴다)
+ */
+@Slf4j
+@Component
+public class MemberIngestBuffer {
+
+  private final MemberBatchWriter writer;
+  private final MemberIngestDeadLetterRepository deadLetterRepository;
+  private final BlockingQueue<MemberIngestRequest> queue;
+  private final int batchSize;
+  private final long flushIntervalNanos;
+  private final long offerTimeoutMillis;
+  private final int maxAttempts;
+  private final long retryBackoffMillis;
+  private final Thread flusher;
+  private volatile boolean running = true;
+
+  public MemberIngestBuffer(MemberBatchWriter writer,
+      MemberIngestDeadLetterRepository deadLetterRepository,
+      @Value("${member.ingest.capacity:10000}") int capacity,
+      @Value("${member.ingest.batch-size:500}") int batchSize,
+      @Value("${member.ingest.flush-interval-ms:200}") long flushIntervalMillis,
+      @Value("${member.ingest.offer-timeout-ms:100}") long offerTimeoutMillis,
+      @Value("${member.ingest.max-attempts:3}") int maxAttempts,
+      @Value("${member.ingest.retry-backoff-ms:200}") long retryBackoffMillis) {
+    this.writer = writer;
+    this.deadLetterRepository = deadLetterRepository;
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.batchSize = batchSize;
+    this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+    this.offerTimeoutMillis = offerTimeoutMillis;
+    this.maxAttempts = maxAttempts;
+    this.retryBackoffMillis = retryBackoffMillis;
+    this.flusher = new Thread(this::flushLoop, "member-ingest-flusher");
+    this.flusher.setDaemon(true);
+  }
+
+  @PostConstruct
+  public void start() {
+    flusher.start();
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    running = false;
+    flusher.interrupt();
+    flusher.join(TimeUnit.SECONDS.toMillis(10));
+  }
+
+  /**
+   * @return 큐에 들어간 건수. 앞에서부터 넣다가 큐가 가득 차면 멈춘다.
+   */
+  public int offer(List<MemberIngestRequest> requests) throws InterruptedException {
+    int accepted = 0;
+    for (MemberIngestRequest request : requests) {
+      if (!queue.offer(request, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+        break;
+      }
+      accepted++;
+    }
+    return accepted;
+  }
+
+  public int pending() {
+    return queue.size();
+  }
+
+  private void flushLoop() {
+    while (running || !queue.isEmpty()) {
+      List<MemberIngestRequest> batch = new ArrayList<>(batchSize);
+      try {
+        fill(batch);
+      } catch (InterruptedException e) {
+        // 종료 중 - 남은 요청은 마저 저장한다.
+        queue.drainTo(batch, batchSize - batch.size());
+      }
+      if (!batch.isEmpty()) {
+        flush(batch);
+      }
+    }
+  }
+
+  /**
+   * batchSize 가 차거나 첫 요청 이후 flushInterval 이 지날 때까지 모은다.
+   */
+  private void fill(List<MemberIngestRequest> batch) throws InterruptedException {
+    MemberIngestRequest first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+    if (first == null) {
+      return;
+    }
+    batch.add(first);
+    long deadline = System.nanoTime() + flushIntervalNanos;
+    while (batch.size() < batchSize) {
+      queue.drainTo(batch, batchSize - batch.size());
+      long remaining = deadline - System.nanoTime();
+      if (batch.size() >= batchSize || remaining <= 0) {
+        return;
+      }
+      MemberIngestRequest next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+      if (next == null) {
+        return;
+      }
+      batch.add(next);
+    }
+  }
+
+  private void flush(List<MemberIngestRequest> batch) {
+    boolean wait = true;
+    for (int attempt = 1; ; attempt++) {
+      try {
+        writer.write(batch);
+        return;
+      } catch (RuntimeException e) {
+        if (attempt >= maxAttempts) {
+          log.warn("member ingest flush failed {} times. writing {} members one by one", attempt,
+              batch.size(), e);
+          break;
+        }
+        log.warn("member ingest flush failed. retry {}/{}", attempt, maxAttempts, e);
+      }
+      if (wait) {
+        try {
+          Thread.sleep(retryBackoffMillis * attempt);
+        } catch (InterruptedException e) {
+          // 종료 중 (stop) - 기다리지 않고 남은 시도를 한다.
+          wait = false;
+        }
+      }
+    }
+    // 한 건 때문에 batch 전체가 실패했을 수 있다. 나머지는 저장하고 실패한 건만 남긴다.
+    for (MemberIngestRequest request : batch) {
+      try {
+        writer.write(List.of(request));
+      } catch (RuntimeException e) {
+        deadLetter(request, e);
+      }
+    }
+  }
+
+  private void deadLetter(MemberIngestRequest request, RuntimeException cause) {
+    try {
+      deadLetterRepository.save(new MemberIngestDeadLetter(request.getUsername(),
+          request.getAge(), request.getTeamName(), cause.toString()));
+      log.warn("member ingest dead-lettered : {}", request, cause);
+    } catch (RuntimeException e) {
+      log.error("member ingest dropped : {}", request, cause);
+    }
+  }
+}
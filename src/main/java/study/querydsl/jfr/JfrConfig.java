@@ -0,0 +1,19 @@
+package study.querydsl.jfr;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+@Configuration
+public class JfrConfig {
+
+  /**
+   * Boot 의 MappingJackson2HttpMessageConverter 빈 대신 등록된다. (@ConditionalOnMissingBean)
+   */
+  @Bean
+  MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(
+      ObjectMapper objectMapper) {
+    return new JfrJacksonHttpMessageConverter(objectMapper);
+  }
+}
@@ -0,0 +1,97 @@
+package study.querydsl.jfr;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+/**
+ * 기본 Jackson 컨버터에 MemberSerializationEvent 를 더한 것. (Boot 의 기본 컨버터 빈을 대신한다)
+ */
+public class JfrJacksonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+  public JfrJacksonHttpMessageConverter(ObjectMapper objectMapper) {
+    super(objectMapper);
+  }
+
+  @Override
+  protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+      throws IOException, HttpMessageNotWritableException {
+    MemberSerializationEvent event = new MemberSerializationEvent();
+    if (!event.isEnabled()) {
+      super.writeInternal(object, type, outputMessage);
+      return;
+    }
+    CountingOutputMessage counting = new CountingOutputMessage(outputMessage);
+    event.begin();
+    super.writeInternal(object, type, counting);
+    event.end();
+    if (event.shouldCommit()) {
+      event.bodyType = object == null ? "null" : object.getClass().getSimpleName();
+      event.elementCount = elementCount(object);
+      event.bytes = counting.body == null ? 0 : counting.body.count;
+      event.commit();
+    }
+  }
+
+  private int elementCount(Object object) {
+    if (object instanceof Collection) {
+      return ((Collection<?>) object).size();
+    }
+    if (object instanceof Slice) {
+      return ((Slice<?>) object).getNumberOfElements();
+    }
+    return -1;
+  }
+
+  private static final class CountingOutputMessage implements HttpOutputMessage {
+
+    private final HttpOutputMessage delegate;
+    private CountingOutputStream body;
+
+    private CountingOutputMessage(HttpOutputMessage delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public OutputStream getBody() throws IOException {
+      if (body == null) {
+        body = new CountingOutputStream(delegate.getBody());
+      }
+      return body;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return delegate.getHeaders();
+    }
+  }
+
+  private static final class CountingOutputStream extends FilterOutputStream {
+
+    private long count;
+
+    private CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count += len;
+    }
+  }
+}
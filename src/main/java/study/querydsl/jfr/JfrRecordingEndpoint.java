@@ -0,0 +1,158 @@
+package study.querydsl.jfr;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * /actuator/jfr - 크기 / 기간이 제한된 JFR 기록을 시작하고 파일로 내려받는다.
+ * <p>
+ * POST /actuator/jfr (maxAgeSeconds, maxSizeMb, settings) 로 시작, GET /actuator/jfr/dump 로 지금까지의 기록을 받는다.
+ * 회원 검색 이벤트 (MemberQuery, MemberMapping, MemberSerialization) 는 항상 켠다.
+ * <p>
+ * 인증이 없으므로 웹에는 기본으로 노출하지 않는다. (management.endpoints.web.exposure.include 에 jfr 을 넣을 때는 인증 뒤에 둔다)
+ * 환경 변수 / 시스템 프로퍼티 / JVM 인자 / 프로세스 목록 이벤트는 DB 접속 정보 등이 들어갈 수 있어서 설정과 상관없이 끈다.
+ */
+@Slf4j
+@Component
+@Endpoint(id = "jfr")
+public class JfrRecordingEndpoint {
+
+  private static final long MAX_AGE_SECONDS = 3600;
+  private static final long MAX_SIZE_MB = 256;
+  private static final List<String> SENSITIVE_EVENTS = List.of(
+      "jdk.InitialEnvironmentVariable",
+      "jdk.InitialSystemProperty",
+      "jdk.JVMInformation",
+      "jdk.SystemProcess");
+
+  private Recording recording;
+
+  @ReadOperation
+  public synchronized Map<String, Object> status() {
+    Map<String, Object> status = new LinkedHashMap<>();
+    status.put("state", recording == null ? "NONE" : recording.getState().name());
+    if (recording != null) {
+      status.put("startTime", recording.getStartTime());
+      status.put("maxAge", recording.getMaxAge());
+      status.put("maxSizeBytes", recording.getMaxSize());
+    }
+    return status;
+  }
+
+  /**
+   * 기존 기록이 있으면 닫고 새로 시작한다.
+   *
+   * @param settings JDK 설정 이름 (default - 상시용 저부하, profile - 더 자세함)
+   */
+  @WriteOperation
+  public synchronized Map<String, Object> start(@Nullable Long maxAgeSeconds,
+      @Nullable Long maxSizeMb, @Nullable String settings) {
+    Configuration configuration;
+    try {
+      configuration = Configuration.getConfiguration(settings == null ? "default" : settings);
+    } catch (IOException | ParseException e) {
+      throw new IllegalArgumentException("unknown jfr settings : " + settings, e);
+    }
+    Map<String, String> eventSettings = new HashMap<>(configuration.getSettings());
+    SENSITIVE_EVENTS.forEach(event -> eventSettings.put(event + "#enabled", "false"));
+    closeRecording();
+    Recording newRecording = new Recording(eventSettings);
+    newRecording.setName("member-search");
+    newRecording.setToDisk(true);
+    newRecording.setMaxAge(Duration.ofSeconds(
+        Math.min(maxAgeSeconds == null ? 600 : maxAgeSeconds, MAX_AGE_SECONDS)));
+    newRecording.setMaxSize(
+        Math.min(maxSizeMb == null ? 64 : maxSizeMb, MAX_SIZE_MB) * 1024 * 1024);
+    newRecording.enable(MemberQueryEvent.class);
+    newRecording.enable(MemberMappingEvent.class);
+    newRecording.enable(MemberSerializationEvent.class);
+    newRecording.start();
+    recording = newRecording;
+    log.info("jfr recording started. maxAge={}, maxSize={}", newRecording.getMaxAge(),
+        newRecording.getMaxSize());
+    return status();
+  }
+
+  /**
+   * 지금까지의 기록을 .jfr 파일로 (기록은 계속된다). 기록 중이 아니면 null -> 404
+   * <p>
+   * 임시 파일은 응답을 다 쓰고 스트림을 닫을 때 지운다.
+   */
+  @ReadOperation(produces = "application/octet-stream")
+  public synchronized Resource dump(@Selector String name) {
+    if (!"dump".equals(name) || recording == null
+        || recording.getState() != RecordingState.RUNNING) {
+      return null;
+    }
+    try {
+      Path file = Files.createTempFile("member-search-", ".jfr");
+      try {
+        recording.dump(file);
+      } catch (IOException | RuntimeException e) {
+        Files.deleteIfExists(file);
+        throw e;
+      }
+      return new DeleteOnCloseResource(file);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @WriteOperation
+  public synchronized Map<String, Object> stop(@Selector String name) {
+    if ("stop".equals(name)) {
+      closeRecording();
+    }
+    return status();
+  }
+
+  @PreDestroy
+  public synchronized void close() {
+    closeRecording();
+  }
+
+  private void closeRecording() {
+    if (recording != null) {
+      recording.close();
+      recording = null;
+    }
+  }
+
+  private static final class DeleteOnCloseResource extends FileSystemResource {
+
+    private final Path file;
+
+    private DeleteOnCloseResource(Path file) {
+      super(file);
+      this.file = file;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+      return Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE);
+    }
+  }
+}
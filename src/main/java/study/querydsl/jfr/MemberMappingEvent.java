@@ -0,0 +1,33 @@
+package study.querydsl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 쿼리 한번의 DTO projection (QMemberTeamDto 생성) 에 쓴 시간. 행마다 이벤트를 만들지 않고 합계만 남긴다.
+ */
+@Name("study.querydsl.MemberMapping")
+@Label("Member Projection")
+@Category({"Querydsl", "Member"})
+@Description("Time spent constructing projection DTOs for one query")
+@StackTrace(false)
+public class MemberMappingEvent extends Event {
+
+  @Label("Repository Method")
+  public String method;
+
+  @Label("Projection")
+  public String projection;
+
+  @Label("Row Count")
+  public int rowCount;
+
+  @Label("Mapping Time")
+  @Timespan(Timespan.NANOSECONDS)
+  public long mappingTime;
+}
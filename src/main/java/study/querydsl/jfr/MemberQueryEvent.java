@@ -0,0 +1,29 @@
+package study.querydsl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 회원 검색 쿼리 한번 (JDBC 실행 + Hibernate 행 읽기 / 엔티티 hydration 포함)
+ */
+@Name("study.querydsl.MemberQuery")
+@Label("Member Query")
+@Category({"Querydsl", "Member"})
+@Description("Querydsl query execution including row hydration")
+@StackTrace(false)
+public class MemberQueryEvent extends Event {
+
+  @Label("Repository Method")
+  public String method;
+
+  @Label("Shape")
+  @Description("조건 / 정렬 / 페이징 모양 (값 제외)")
+  public String shape;
+
+  @Label("Row Count")
+  public int rowCount;
+}
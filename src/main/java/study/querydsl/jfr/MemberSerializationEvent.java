@@ -0,0 +1,31 @@
+package study.querydsl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 응답 본문 Jackson 직렬화
+ */
+@Name("study.querydsl.MemberSerialization")
+@Label("Member Response Serialization")
+@Category({"Querydsl", "Member"})
+@Description("Jackson serialization of a controller response body")
+@StackTrace(false)
+public class MemberSerializationEvent extends Event {
+
+  @Label("Body Type")
+  public String bodyType;
+
+  @Label("Element Count")
+  @Description("목록 / 페이지면 원소 수, 아니면 -1")
+  public int elementCount;
+
+  @Label("Bytes")
+  @DataAmount
+  public long bytes;
+}
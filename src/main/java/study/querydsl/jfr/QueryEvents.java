@@ -0,0 +1,81 @@
+package study.querydsl.jfr;
+
+import static org.springframework.util.StringUtils.hasText;
+
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.function.Supplier;
+import org.springframework.data.domain.Pageable;
+import study.querydsl.dto.MemberSearchCondition;
+
+/**
+ * 쿼리 실행 / DTO projection 을 JFR 이벤트로 남긴다. 이벤트가 꺼져 있으면 (기록 중이 아니면) 그냥 실행한다.
+ */
+public final class QueryEvents {
+
+  private QueryEvents() {
+  }
+
+  public static <T> List<T> fetch(String method, String shape, Supplier<List<T>> fetch) {
+    MemberQueryEvent event = new MemberQueryEvent();
+    if (!event.isEnabled()) {
+      return fetch.get();
+    }
+    event.begin();
+    List<T> rows = fetch.get();
+    event.end();
+    if (event.shouldCommit()) {
+      event.method = method;
+      event.shape = shape;
+      event.rowCount = rows.size();
+      event.commit();
+    }
+    return rows;
+  }
+
+  /**
+   * projection 이 TimedFactoryExpression 이면 생성 시간 합계를 MemberMappingEvent 로 남긴다.
+   */
+  public static <T> List<T> fetch(String method, String shape,
+      TimedFactoryExpression<?> projection, Supplier<List<T>> fetch) {
+    List<T> rows = fetch(method, shape, fetch);
+    if (projection.isTiming()) {
+      MemberMappingEvent event = new MemberMappingEvent();
+      if (event.shouldCommit()) {
+        event.method = method;
+        event.projection = projection.getType().getSimpleName();
+        event.rowCount = projection.getCount();
+        event.mappingTime = projection.getNanos();
+        event.commit();
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * 값은 빼고 어떤 조건이 있는지만 - "username,ageGoe|sort=age: DESC|paged"
+   */
+  public static String shape(MemberSearchCondition condition, Pageable pageable) {
+    StringJoiner conditions = new StringJoiner(",");
+    if (hasText(condition.getUsername())) {
+      conditions.add("username");
+    }
+    if (hasText(condition.getTeamName())) {
+      conditions.add("teamName");
+    }
+    if (condition.getAgeGoe() != null) {
+      conditions.add("ageGoe");
+    }
+    if (condition.getAgeLoe() != null) {
+      conditions.add("ageLoe");
+    }
+    StringBuilder shape = new StringBuilder(conditions.toString());
+    if (pageable.getSort().isSorted()) {
+      shape.append("|sort=").append(pageable.getSort());
+    }
+    if (pageable.isPaged()) {
+      shape.append("|paged");
+    }
+    return shape.toString();
+  }
+}
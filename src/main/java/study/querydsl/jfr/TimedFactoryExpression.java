@@ -0,0 +1,78 @@
+package study.querydsl.jfr;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Visitor;
+import java.util.List;
+
+/**
+ * FactoryExpression (QMemberTeamDto 등) 을 감싸서 newInstance 에 쓴 시간과 횟수를 센다. 쿼리 하나에만 쓴다. (스레드 안전하지 않음)
+ * <p>
+ * MemberMappingEvent 가 꺼져 있으면 시간을 재지 않는다.
+ */
+public class TimedFactoryExpression<T> implements FactoryExpression<T> {
+
+  private final FactoryExpression<T> delegate;
+  private final boolean timing;
+  private int count;
+  private long nanos;
+
+  private TimedFactoryExpression(FactoryExpression<T> delegate) {
+    this.delegate = delegate;
+    this.timing = new MemberMappingEvent().isEnabled();
+  }
+
+  public static <T> TimedFactoryExpression<T> of(FactoryExpression<T> delegate) {
+    return new TimedFactoryExpression<>(delegate);
+  }
+
+  @Override
+  public List<Expression<?>> getArgs() {
+    return delegate.getArgs();
+  }
+
+  @Override
+  public T newInstance(Object... args) {
+    if (!timing) {
+      return delegate.newInstance(args);
+    }
+    long start = System.nanoTime();
+    T instance = delegate.newInstance(args);
+    nanos += System.nanoTime() - start;
+    count++;
+    return instance;
+  }
+
+  @Override
+  public <R, C> R accept(Visitor<R, C> v, C context) {
+    return v.visit(this, context);
+  }
+
+  @Override
+  public Class<? extends T> getType() {
+    return delegate.getType();
+  }
+
+  boolean isTiming() {
+    return timing;
+  }
+
+  int getCount() {
+    return count;
+  }
+
+  long getNanos() {
+    return nanos;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof TimedFactoryExpression
+        && delegate.equals(((TimedFactoryExpression<?>) o).delegate);
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+}
@@ -0,0 +1,35 @@
+package study.querydsl.repository;
+
+import java.text.Normalizer;
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * DB 비교 규칙 (_ci collation) 이 같다고 보는 문자열을 같은 키로 바꾼다. 대소문자, 뒤 공백, 악센트를 무시한다.
+ * <p>
+ * 순서 비교 (ORDER) 는 키의 문자 순서다. 글자 / 숫자는 DB 와 같고, 문장 부호의 상대 순서는 collation 마다 다를 수 있다.
+ */
+final class CollationKey {
+
+  static final Comparator<String> ORDER = Comparator.comparing(CollationKey::of);
+
+  private CollationKey() {
+  }
+
+  static String of(String value) {
+    String key = value.stripTrailing().toLowerCase(Locale.ROOT);
+    if (isAscii(key)) {
+      return key;
+    }
+    return Normalizer.normalize(key, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+  }
+
+  private static boolean isAscii(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) > 0x7f) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,15 @@
+package study.querydsl.repository;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 일괄 검색 요청이 잘못됨 (조건 개수 초과 등)
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidBatchSearchException extends RuntimeException {
+
+  public InvalidBatchSearchException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,15 @@
+package study.querydsl.repository;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 패싯 요청이 잘못됨 (나이 구간 경계 개수 등)
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidFacetException extends RuntimeException {
+
+  public InvalidFacetException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,34 @@
+package study.querydsl.repository;
+
+import javax.sql.DataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.stereotype.Component;
+
+/**
+ * 애플리케이션 DataSource 를 LazyConnectionDataSourceProxy 로 감싼다. 트랜잭션을 시작해도 첫 쿼리 전까지 풀에서 커넥션을 빌리지 않는다.
+ * <p>
+ * 읽기 전용 트랜잭션은 시작할 때 커넥션을 준비한다. (HibernateJpaDialect) 그래서 @Transactional 검색 안에서 MemberSearchCoalescer 로
+ * 다른 요청의 결과를 기다리는 요청도 커넥션을 하나씩 쥐고 있었다. 쿼리를 실행하지 않고 끝나는 트랜잭션 (캐시 적중, 기다린 요청) 은 이제
+ * 커넥션을 쓰지 않는다.
+ * <p>
+ * Ordered 라서 DeadlineDataSourcePostProcessor 보다 먼저 실행된다. (DeadlineDataSource 가 이것을 감싼다)
+ */
+@Component
+public class LazyConnectionDataSourcePostProcessor implements BeanPostProcessor, Ordered {
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName) {
+    if (bean instanceof DataSource && !(bean instanceof DelegatingDataSource)) {
+      return new LazyConnectionDataSourceProxy((DataSource) bean);
+    }
+    return bean;
+  }
+
+  @Override
+  public int getOrder() {
+    return Ordered.LOWEST_PRECEDENCE;
+  }
+}
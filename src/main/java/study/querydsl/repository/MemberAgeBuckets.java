@@ -0,0 +1,95 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberTemplate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * 나이 패싯 구간. 경계 [20, 30] 이면 "<20", "20-29", ">=30" 세 구간 (0, 1, 2 번)
+ * <p>
+ * 구간 번호 CASE 식은 경계값을 파라미터가 아니라 리터럴로 넣는다. select 와 group by 에 같은 SQL 이 나와야 하기 때문이다.
+ * (경계값은 검증된 int 라서 그대로 넣어도 안전하다)
+ */
+final class MemberAgeBuckets {
+
+  static final List<Integer> DEFAULT_BOUNDS = List.of(20, 30, 40, 50);
+  private static final int MAX_BOUNDS = 20;
+
+  private final List<Integer> bounds;
+
+  private MemberAgeBuckets(List<Integer> bounds) {
+    this.bounds = bounds;
+  }
+
+  /**
+   * 경계는 정렬 / 중복 제거한다. 비어있으면 기본 구간.
+   */
+  static MemberAgeBuckets of(List<Integer> bounds) {
+    if (bounds == null || bounds.isEmpty()) {
+      return new MemberAgeBuckets(DEFAULT_BOUNDS);
+    }
+    List<Integer> sorted = bounds.stream()
+        .filter(Objects::nonNull)
+        .distinct()
+        .sorted()
+        .collect(Collectors.toList());
+    if (sorted.isEmpty() || sorted.size() > MAX_BOUNDS) {
+      throw new InvalidFacetException("age bucket bounds must be 1 ~ " + MAX_BOUNDS + " values");
+    }
+    return new MemberAgeBuckets(List.copyOf(sorted));
+  }
+
+  List<Integer> getBounds() {
+    return bounds;
+  }
+
+  int size() {
+    return bounds.size() + 1;
+  }
+
+  /**
+   * age 가 속한 구간 번호. (age 가 null 이면 마지막 구간 - 컬럼이 not null 이라 나오지 않는다)
+   */
+  NumberTemplate<Integer> index(Expression<Integer> age) {
+    StringBuilder template = new StringBuilder("case");
+    for (int i = 0; i < bounds.size(); i++) {
+      template.append(" when {0} < ").append(bounds.get(i)).append(" then ").append(i);
+    }
+    template.append(" else ").append(bounds.size()).append(" end");
+    return Expressions.numberTemplate(Integer.class, template.toString(), age);
+  }
+
+  /**
+   * index(Expression) 와 같은 구간 번호 (메모리에서 계산할 때)
+   */
+  int index(int age) {
+    for (int i = 0; i < bounds.size(); i++) {
+      if (age < bounds.get(i)) {
+        return i;
+      }
+    }
+    return bounds.size();
+  }
+
+  String label(int index) {
+    if (index == 0) {
+      return "<" + bounds.get(0);
+    }
+    if (index == bounds.size()) {
+      return ">=" + bounds.get(bounds.size() - 1);
+    }
+    return bounds.get(index - 1) + "-" + (bounds.get(index) - 1);
+  }
+
+  List<String> labels() {
+    List<String> labels = new ArrayList<>(size());
+    for (int i = 0; i < size(); i++) {
+      labels.add(label(i));
+    }
+    return labels;
+  }
+}
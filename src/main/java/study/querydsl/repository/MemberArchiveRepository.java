@@ -0,0 +1,81 @@
+package study.querydsl.repository;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMemberArchive.memberArchive;
+import static study.querydsl.entity.QTeam.team;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.Comparator;
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+
+/**
+ * member_archive 검색. 기본 검색 (MemberRepository) 은 hot 테이블만 보고, 아카이브까지 보려면 searchIncludingArchive 를 쓴다.
+ */
+@Repository
+@Transactional(readOnly = true)
+public class MemberArchiveRepository {
+
+  private final JPAQueryFactory queryFactory;
+  private final MemberRepository memberRepository;
+  private final ResultMemoryGovernor governor;
+
+  public MemberArchiveRepository(EntityManager em, MemberRepository memberRepository,
+      ResultMemoryGovernor governor) {
+    this.queryFactory = new JPAQueryFactory(em);
+    this.memberRepository = memberRepository;
+    this.governor = governor;
+  }
+
+  /**
+   * 팀은 FK 가 없으므로 team_id 로 세타 조인한다. (지워진 팀이면 teamName 은 null)
+   */
+  public List<MemberTeamDto> searchArchive(MemberSearchCondition condition) {
+    return governor.fetch(queryFactory
+        .select(new QMemberTeamDto(
+            memberArchive.id,
+            memberArchive.username,
+            memberArchive.age,
+            memberArchive.teamId,
+            team.name))
+        .from(memberArchive)
+        .leftJoin(team).on(team.id.eq(memberArchive.teamId))
+        .where(
+            usernameEqual(condition.getUsername()),
+            teamNameEqual(condition.getTeamName()),
+            ageGoe(condition.getAgeGoe()),
+            ageLoe(condition.getAgeLoe()))
+        .orderBy(memberArchive.id.asc()), ResultMemoryGovernor.DTO_ROW_BYTES);
+  }
+
+  /**
+   * hot + archive, memberId 순서. 합친 결과도 행 수 제한을 지킨다. (한쪽이 잘렸으면 TruncatedResultList)
+   */
+  public List<MemberTeamDto> searchIncludingArchive(MemberSearchCondition condition) {
+    return governor.merge(
+        List.of(memberRepository.search(condition), searchArchive(condition)),
+        Comparator.comparing(MemberTeamDto::getMemberId));
+  }
+
+  private BooleanExpression usernameEqual(String username) {
+    return hasText(username) ? memberArchive.username.eq(username) : null;
+  }
+
+  private BooleanExpression teamNameEqual(String teamName) {
+    return hasText(teamName) ? team.name.eq(teamName) : null;
+  }
+
+  private BooleanExpression ageGoe(Integer ageGoe) {
+    return ageGoe != null ? memberArchive.age.goe(ageGoe) : null;
+  }
+
+  private BooleanExpression ageLoe(Integer ageLoe) {
+    return ageLoe != null ? memberArchive.age.loe(ageLoe) : null;
+  }
+}
@@ -0,0 +1,225 @@
+package study.querydsl.repository;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import javax.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+
+/**
+ * 여러 검색 조건을 한번에 처리한다. 결과는 조건 순서대로, 각 결과는 search() 와 같다. (memberId 순)
+ * <p>
+ * username 만 있는 조건들, teamName 만 있는 조건들은 (나이 조건이 같으면) username in (...) / team.name in (...) 쿼리 하나로
+ * 합치고, 결과 행의 username / teamName 으로 다시 조건별로 나눈다. 나머지 조건은 하나씩 search() 로 조회한다.
+ */
+@Repository
+@Transactional(readOnly = true)
+public class MemberBatchSearchRepository {
+
+  private static final int IN_CHUNK_SIZE = 500;
+
+  private final JPAQueryFactory queryFactory;
+  private final MemberRepository memberRepository;
+  private final ResultMemoryGovernor governor;
+  private final int maxConditions;
+
+  public MemberBatchSearchRepository(EntityManager em, MemberRepository memberRepository,
+      ResultMemoryGovernor governor,
+      @Value("${member.search.batch-max-conditions:200}") int maxConditions) {
+    this.queryFactory = new JPAQueryFactory(em);
+    this.memberRepository = memberRepository;
+    this.governor = governor;
+    this.maxConditions = maxConditions;
+  }
+
+  public List<List<MemberTeamDto>> searchAll(List<MemberSearchCondition> conditions) {
+    if (conditions.size() > maxConditions) {
+      throw new InvalidBatchSearchException(
+          "too many conditions : " + conditions.size() + " (max " + maxConditions + ")");
+    }
+    List<List<MemberTeamDto>> results = new ArrayList<>(
+        Collections.nCopies(conditions.size(), null));
+    Map<Group, List<Integer>> groups = new LinkedHashMap<>();
+    for (int i = 0; i < conditions.size(); i++) {
+      MemberSearchCondition condition = conditions.get(i);
+      Group group = Group.of(condition);
+      if (group == null) {
+        results.set(i, memberRepository.search(condition));
+      } else {
+        groups.computeIfAbsent(group, g -> new ArrayList<>()).add(i);
+      }
+    }
+
+    groups.forEach((group, indexes) -> {
+      if (indexes.size() == 1) {
+        int index = indexes.get(0);
+        results.set(index, memberRepository.search(conditions.get(index)));
+        return;
+      }
+      // DB 가 같다고 보는 값은 한번만 조회한다.
+      Map<String, MemberSearchCondition> byKey = new LinkedHashMap<>();
+      indexes.forEach(index -> byKey.putIfAbsent(
+          normalize(group.kind.value(conditions.get(index))), conditions.get(index)));
+      Map<String, List<MemberTeamDto>> byValue = fetchIn(group, byKey);
+      for (int index : indexes) {
+        String value = normalize(group.kind.value(conditions.get(index)));
+        results.set(index, byValue.getOrDefault(value, List.of()));
+      }
+    });
+    return results;
+  }
+
+  /**
+   * in 목록이 길면 잘라서 조회한다. 같은 값의 행은 같은 쿼리에서 나오므로 memberId 순서가 유지된다.
+   * <p>
+   * 행 수 제한은 조건마다 걸려야 한다. 합친 결과가 제한에 걸리면 (잘렸거나 FAIL 모드) 어느 조건이 넘었는지 알 수 없으므로 그 묶음은 조건마다
+   * search() 로 다시 조회한다. 그러면 넘은 조건만 잘리고 TruncatedResultList 로 표시된다.
+   */
+  private Map<String, List<MemberTeamDto>> fetchIn(Group group,
+      Map<String, MemberSearchCondition> byKey) {
+    Map<String, List<MemberTeamDto>> byValue = new HashMap<>();
+    List<Map.Entry<String, MemberSearchCondition>> all = new ArrayList<>(byKey.entrySet());
+    for (int from = 0; from < all.size(); from += IN_CHUNK_SIZE) {
+      List<Map.Entry<String, MemberSearchCondition>> chunk =
+          all.subList(from, Math.min(from + IN_CHUNK_SIZE, all.size()));
+      List<String> values = new ArrayList<>(chunk.size());
+      chunk.forEach(entry -> values.add(group.kind.value(entry.getValue())));
+      List<MemberTeamDto> rows = fetchChunk(group, values);
+      if (rows == null) {
+        chunk.forEach(entry ->
+            byValue.put(entry.getKey(), memberRepository.search(entry.getValue())));
+        continue;
+      }
+      for (MemberTeamDto row : rows) {
+        byValue.computeIfAbsent(normalize(group.kind.rowValue.apply(row)), v -> new ArrayList<>())
+            .add(row);
+      }
+    }
+    return byValue;
+  }
+
+  /**
+   * 합친 결과가 행 수 제한에 걸리면 null
+   */
+  private List<MemberTeamDto> fetchChunk(Group group, List<String> values) {
+    List<MemberTeamDto> rows;
+    try {
+      rows = governor.fetch(queryFactory
+          .select(new QMemberTeamDto(
+              member.id,
+              member.username,
+              member.age,
+              team.id,
+              team.name))
+          .from(member)
+          .leftJoin(member.team, team)
+          .where(
+              group.kind.path.in(values),
+              ageGoe(group.ageGoe),
+              ageLoe(group.ageLoe))
+          .orderBy(member.id.asc()), ResultMemoryGovernor.DTO_ROW_BYTES);
+    } catch (ResultLimitExceededException e) {
+      return null;
+    }
+    return rows instanceof TruncatedResultList ? null : rows;
+  }
+
+  /**
+   * 결과 행을 조건 값에 다시 맞출 때 DB 비교 규칙 (_ci collation) 과 같게 맞춘다. (CollationKey)
+   */
+  private static String normalize(String value) {
+    return value == null ? null : CollationKey.of(value);
+  }
+
+  private BooleanExpression ageGoe(Integer ageGoe) {
+    return ageGoe != null ? member.age.goe(ageGoe) : null;
+  }
+
+  private BooleanExpression ageLoe(Integer ageLoe) {
+    return ageLoe != null ? member.age.loe(ageLoe) : null;
+  }
+
+  private enum Kind {
+    USERNAME(member.username, MemberTeamDto::getUsername, MemberSearchCondition::getUsername),
+    TEAM_NAME(team.name, MemberTeamDto::getTeamName, MemberSearchCondition::getTeamName);
+
+    private final StringPath path;
+    private final Function<MemberTeamDto, String> rowValue;
+    private final Function<MemberSearchCondition, String> conditionValue;
+
+    Kind(StringPath path, Function<MemberTeamDto, String> rowValue,
+        Function<MemberSearchCondition, String> conditionValue) {
+      this.path = path;
+      this.rowValue = rowValue;
+      this.conditionValue = conditionValue;
+    }
+
+    String value(MemberSearchCondition condition) {
+      return conditionValue.apply(condition);
+    }
+  }
+
+  /**
+   * 하나의 in 쿼리로 합칠 수 있는 조건들 - 같은 종류 (username / teamName) 에 나이 조건이 같다.
+   */
+  private static final class Group {
+
+    private final Kind kind;
+    private final Integer ageGoe;
+    private final Integer ageLoe;
+
+    private Group(Kind kind, Integer ageGoe, Integer ageLoe) {
+      this.kind = kind;
+      this.ageGoe = ageGoe;
+      this.ageLoe = ageLoe;
+    }
+
+    /**
+     * username, teamName 중 하나만 있으면 그룹, 아니면 null (개별 조회)
+     */
+    static Group of(MemberSearchCondition condition) {
+      boolean username = hasText(condition.getUsername());
+      boolean teamName = hasText(condition.getTeamName());
+      if (username == teamName) {
+        return null;
+      }
+      return new Group(username ? Kind.USERNAME : Kind.TEAM_NAME, condition.getAgeGoe(),
+          condition.getAgeLoe());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Group)) {
+        return false;
+      }
+      Group other = (Group) o;
+      return kind == other.kind && Objects.equals(ageGoe, other.ageGoe)
+          && Objects.equals(ageLoe, other.ageLoe);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(kind, ageGoe, ageLoe);
+    }
+  }
+}
@@ -0,0 +1,218 @@
+package study.querydsl.repository;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QTeam.team;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.persistence.EntityManager;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberIngestRequest;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.event.ChangeType;
+import study.querydsl.event.MemberChange;
+import study.querydsl.event.MemberChangeDispatcher;
+import study.querydsl.event.MemberState;
+
+/**
+ * Member 대량 저장
+ * <p>
+ * 엔티티를 만들지 않고 JDBC batch insert (batchSize 건씩) 로 넣는다. id 는 Member 의 id generator 에서 받으므로 JPA 로 넣는 것과
+ * 겹치지 않는다. Hibernate 이벤트가 없으므로 insert 한 회원을 MemberChangeDispatcher 로 직접 알린다. (member_search, outbox, 캐시)
+ * <p>
+ * Team 은 이름 -> id 로컬 캐시 (TeamIdCache) 로 찾고, 없는 팀은 회원 트랜잭션을 시작하기 전에 따로 만든다. 이름은 DB 비교 규칙대로
+ * (CollationKey) 같은 팀으로 본다. 여러 서버가 같은 팀을 동시에 만들면 team.name unique 키에 걸린 쪽이 만들어진 팀을 다시 읽는다.
+ * 이미 시작한 트랜잭션 안에서 부를 때는 팀이 미리 있어야 한다. (writeTeams) 트랜잭션 안에서 새 트랜잭션으로 팀을 만들면 스레드마다
+ * 커넥션을 두 개 잡게 되어, 풀 크기만큼 스레드가 몰리면 서로 기다리다 멈춘다.
+ */
+@Repository
+public class MemberBatchWriter {
+
+  private static final String INSERT_SQL =
+      "insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)";
+
+  private final EntityManager em;
+  private final JPAQueryFactory queryFactory;
+  private final MemberChangeDispatcher changeDispatcher;
+  private final TransactionTemplate transactionTemplate;
+  private final int batchSize;
+  private final TeamIdCache teamIdCache;
+
+  public MemberBatchWriter(EntityManager em, PlatformTransactionManager transactionManager,
+      MemberChangeDispatcher changeDispatcher, TeamIdCache teamIdCache,
+      @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}") int batchSize) {
+    this.em = em;
+    this.queryFactory = new JPAQueryFactory(em);
+    this.changeDispatcher = changeDispatcher;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.teamIdCache = teamIdCache;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * 트랜잭션이 있으면 그 트랜잭션에, 없으면 새 트랜잭션 하나로 저장한다.
+   */
+  public int write(List<MemberIngestRequest> requests) {
+    Set<String> teamNames = new LinkedHashSet<>();
+    for (MemberIngestRequest request : requests) {
+      if (hasText(request.getTeamName())) {
+        teamNames.add(request.getTeamName());
+      }
+    }
+    Map<String, Long> teamIds = resolveTeamIds(teamNames);
+    Integer count = transactionTemplate.execute(status -> insert(requests, teamIds));
+    return count == null ? 0 : count;
+  }
+
+  /**
+   * 팀이 없으면 만든다. (팀 파일 import, 회원 import 전 준비용) 트랜잭션 밖에서 불러야 한다.
+   */
+  public int writeTeams(Collection<String> teamNames) {
+    Set<String> names = new LinkedHashSet<>();
+    for (String teamName : teamNames) {
+      if (hasText(teamName)) {
+        names.add(teamName);
+      }
+    }
+    return resolveTeamIds(names).size();
+  }
+
+  private int insert(List<MemberIngestRequest> requests, Map<String, Long> teamIds) {
+    EventSource session = em.unwrap(EventSource.class);
+    IdentifierGenerator ids = session.getFactory().getMetamodel()
+        .entityPersister(Member.class)
+        .getIdentifierGenerator();
+    List<MemberChange> changes = new ArrayList<>(requests.size());
+    for (MemberIngestRequest request : requests) {
+      String teamName = hasText(request.getTeamName()) ? request.getTeamName() : null;
+      Long teamId = teamName == null ? null : teamIds.get(CollationKey.of(teamName));
+      Long memberId = (Long) ids.generate(session, null);
+      changes.add(new MemberChange(ChangeType.INSERT, memberId, null,
+          new MemberState(request.getUsername(), request.getAge(), teamId, teamName)));
+    }
+    session.doWork(connection -> insert(connection, changes));
+    changeDispatcher.membersInserted(changes, session);
+    return changes.size();
+  }
+
+  private void insert(Connection connection, List<MemberChange> changes) throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+      int pending = 0;
+      for (MemberChange change : changes) {
+        MemberState after = change.getAfter();
+        statement.setLong(1, change.getMemberId());
+        statement.setString(2, after.getUsername());
+        statement.setInt(3, after.getAge());
+        if (after.getTeamId() == null) {
+          statement.setNull(4, Types.BIGINT);
+        } else {
+          statement.setLong(4, after.getTeamId());
+        }
+        statement.addBatch();
+        if (++pending == batchSize) {
+          statement.executeBatch();
+          pending = 0;
+        }
+      }
+      if (pending > 0) {
+        statement.executeBatch();
+      }
+    }
+  }
+
+  /**
+   * 캐시에 없는 팀 이름만 한번에 조회하고, 그래도 없으면 새로 만든다. 결과는 CollationKey -> team_id
+   */
+  private Map<String, Long> resolveTeamIds(Set<String> teamNames) {
+    Map<String, Long> resolved = new HashMap<>();
+    Map<String, String> missing = new LinkedHashMap<>();
+    for (String teamName : teamNames) {
+      String key = CollationKey.of(teamName);
+      Long teamId = teamIdCache.get(teamName);
+      if (teamId != null) {
+        resolved.put(key, teamId);
+      } else if (!resolved.containsKey(key)) {
+        missing.putIfAbsent(key, teamName);
+      }
+    }
+    if (missing.isEmpty()) {
+      return resolved;
+    }
+
+    resolved.putAll(findTeamIds(missing.values()));
+    missing.keySet().removeAll(resolved.keySet());
+    if (!missing.isEmpty()) {
+      if (TransactionSynchronizationManager.isActualTransactionActive()) {
+        throw new IllegalStateException(
+            "teams must be created before the member transaction (writeTeams) : "
+                + missing.values());
+      }
+      resolved.putAll(createTeams(missing));
+    }
+    return resolved;
+  }
+
+  private Map<String, Long> findTeamIds(Collection<String> teamNames) {
+    Map<String, Long> found = new HashMap<>();
+    List<Tuple> tuples = queryFactory
+        .select(team.name, team.id)
+        .from(team)
+        .where(team.name.in(teamNames))
+        .orderBy(team.id.asc())
+        .fetch();
+    for (Tuple tuple : tuples) {
+      // DB 가 돌려준 이름은 조건과 대소문자 / 뒤 공백이 다를 수 있다.
+      String teamName = tuple.get(team.name);
+      if (found.putIfAbsent(CollationKey.of(teamName), tuple.get(team.id)) == null) {
+        teamIdCache.put(teamName, tuple.get(team.id));
+      }
+    }
+    return found;
+  }
+
+  /**
+   * 팀마다 자기 트랜잭션으로 만들고 바로 커밋한다. 다른 스레드 / 서버가 먼저 만들었으면 unique 키 (team.name) 에 걸리므로 다시 읽는다.
+   */
+  private Map<String, Long> createTeams(Map<String, String> teamNames) {
+    Map<String, Long> created = new HashMap<>();
+    for (Map.Entry<String, String> entry : teamNames.entrySet()) {
+      try {
+        Long teamId = transactionTemplate.execute(status -> {
+          Team newTeam = new Team(entry.getValue());
+          em.persist(newTeam);
+          return newTeam.getId();
+        });
+        teamIdCache.put(entry.getValue(), teamId);
+        created.put(entry.getKey(), teamId);
+      } catch (DataIntegrityViolationException e) {
+        Map<String, Long> found = findTeamIds(List.of(entry.getValue()));
+        Long teamId = found.get(entry.getKey());
+        if (teamId == null) {
+          throw e;
+        }
+        created.put(entry.getKey(), teamId);
+      }
+    }
+    return created;
+  }
+}
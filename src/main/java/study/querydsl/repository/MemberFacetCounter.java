@@ -0,0 +1,77 @@
+package study.querydsl.repository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import study.querydsl.dto.FacetCount;
+import study.querydsl.dto.MemberFacetPage;
+
+/**
+ * (팀 이름, 나이 구간) 별 건수를 모아서 팀 패싯 / 나이 패싯 / 전체 건수를 만든다.
+ * <p>
+ * group by team.name, 나이 구간 한번의 결과로 세 가지를 모두 구할 수 있다. 샤드 결과를 합칠 때도 쓴다.
+ */
+final class MemberFacetCounter {
+
+  private static final Comparator<FacetCount> TEAM_ORDER =
+      Comparator.comparingLong(FacetCount::getCount).reversed()
+          .thenComparing(FacetCount::getValue, Comparator.nullsLast(Comparator.naturalOrder()));
+
+  private final MemberAgeBuckets buckets;
+  private final Map<String, Long> teams = new HashMap<>();
+  private final long[] ageBuckets;
+
+  MemberFacetCounter(MemberAgeBuckets buckets) {
+    this.buckets = buckets;
+    this.ageBuckets = new long[buckets.size()];
+  }
+
+  void add(String teamName, int bucket, long count) {
+    teams.merge(teamName, count, Long::sum);
+    ageBuckets[bucket] += count;
+  }
+
+  /**
+   * 같은 구간으로 구한 다른 결과를 더한다.
+   */
+  void merge(MemberFacetPage other) {
+    for (FacetCount team : other.getTeams()) {
+      teams.merge(team.getValue(), team.getCount(), Long::sum);
+    }
+    List<FacetCount> otherBuckets = other.getAgeBuckets();
+    for (int i = 0; i < ageBuckets.length; i++) {
+      ageBuckets[i] += otherBuckets.get(i).getCount();
+    }
+  }
+
+  long total() {
+    long total = 0;
+    for (long count : ageBuckets) {
+      total += count;
+    }
+    return total;
+  }
+
+  /**
+   * 건수 많은 순 (같으면 이름 순, 팀 없음은 마지막)
+   */
+  List<FacetCount> teams() {
+    List<FacetCount> result = new ArrayList<>(teams.size());
+    teams.forEach((name, count) -> result.add(new FacetCount(name, count)));
+    result.sort(TEAM_ORDER);
+    return result;
+  }
+
+  /**
+   * 모든 구간을 순서대로 (0 건인 구간 포함)
+   */
+  List<FacetCount> ageBuckets() {
+    List<FacetCount> result = new ArrayList<>(ageBuckets.length);
+    for (int i = 0; i < ageBuckets.length; i++) {
+      result.add(new FacetCount(buckets.label(i), ageBuckets[i]));
+    }
+    return result;
+  }
+}
@@ -0,0 +1,70 @@
+package study.querydsl.repository;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import com.querydsl.core.types.Expression;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import org.springframework.util.StringUtils;
+
+/**
+ * fields 파라미터로 고를 수 있는 컬럼. 이름은 MemberTeamDto 필드 이름과 같다.
+ * <p>
+ * teamId 는 member.team_id (FK) 로 읽으므로 team 조인이 필요 없다. 조인이 필요한 건 teamName 뿐이다.
+ */
+enum MemberField {
+
+  MEMBER_ID("memberId", member.id, false),
+  USERNAME("username", member.username, false),
+  AGE("age", member.age, false),
+  TEAM_ID("teamId", member.team.id, false),
+  TEAM_NAME("teamName", team.name, true);
+
+  private final String property;
+  private final Expression<?> path;
+  private final boolean teamJoin;
+
+  MemberField(String property, Expression<?> path, boolean teamJoin) {
+    this.property = property;
+    this.path = path;
+    this.teamJoin = teamJoin;
+  }
+
+  /**
+   * "memberId,username" -> [MEMBER_ID, USERNAME] (enum 선언 순서, 중복 제거). 비어있으면 전체 컬럼.
+   */
+  static Set<MemberField> parse(String fields) {
+    if (!StringUtils.hasText(fields)) {
+      return EnumSet.allOf(MemberField.class);
+    }
+    Set<MemberField> result = EnumSet.noneOf(MemberField.class);
+    for (String name : StringUtils.commaDelimitedListToStringArray(fields)) {
+      String property = name.strip();
+      if (property.isEmpty()) {
+        continue;
+      }
+      result.add(Arrays.stream(values())
+          .filter(field -> field.property.equals(property))
+          .findFirst()
+          .orElseThrow(() -> new UnsupportedFieldException("unknown field : " + property)));
+    }
+    if (result.isEmpty()) {
+      return EnumSet.allOf(MemberField.class);
+    }
+    return result;
+  }
+
+  String getProperty() {
+    return property;
+  }
+
+  Expression<?> getPath() {
+    return path;
+  }
+
+  boolean needsTeamJoin() {
+    return teamJoin;
+  }
+}
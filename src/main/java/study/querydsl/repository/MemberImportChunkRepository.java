@@ -0,0 +1,16 @@
+package study.querydsl.repository;
+
+import java.util.Set;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import study.querydsl.entity.MemberImportChunk;
+
+public interface MemberImportChunkRepository extends JpaRepository<MemberImportChunk, Long> {
+
+  @Query("select c.chunkIndex from MemberImportChunk c where c.importKey = :importKey")
+  Set<Integer> findChunkIndexes(@Param("importKey") String importKey);
+
+  boolean existsByImportKeyAndChunkIndex(String importKey, int chunkIndex);
+
+}
@@ -0,0 +1,8 @@
+package study.querydsl.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import study.querydsl.entity.MemberIngestDeadLetter;
+
+public interface MemberIngestDeadLetterRepository extends JpaRepository<MemberIngestDeadLetter, Long> {
+
+}
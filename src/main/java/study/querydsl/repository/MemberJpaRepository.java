@@ -6,25 +6,54 @@ import static study.querydsl.entity.QTeam.team;
 
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.hibernate.HibernateQueryFactory;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import java.util.List;
 import java.util.Optional;
 import javax.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
-
+import study.querydsl.event.MemberBulkChange;
+import study.querydsl.event.MemberChangeDispatcher;
+import study.querydsl.jfr.QueryEvents;
+import study.querydsl.jfr.TimedFactoryExpression;
+
+/**
+ * 조회 메서드는 읽기 전용 트랜잭션으로 실행한다. (FlushMode.MANUAL, 엔티티 스냅샷 없음)
+ * 쓰기 트랜잭션 안에서 호출되면 그 트랜잭션에 참여하므로 기존처럼 변경 감지가 된다.
+ * 검색은 동시에 들어온 같은 조건끼리 MemberSearchCoalescer 로 쿼리 하나에 묶는다.
+ */
 @Repository
+@Transactional(readOnly = true)
 public class MemberJpaRepository {
 
   private final EntityManager em;
   private final JPAQueryFactory queryFactory;
-
-  public MemberJpaRepository(EntityManager em) {
+  private final MemberChangeDispatcher changeDispatcher;
+  private final ResultMemoryGovernor governor;
+  private final MemberUsernameFilter usernameFilter;
+  private final MemberSearchCoalescer coalescer;
+
+  public MemberJpaRepository(EntityManager em, MemberChangeDispatcher changeDispatcher,
+      ResultMemoryGovernor governor, MemberUsernameFilter usernameFilter,
+      MemberSearchCoalescer coalescer) {
     this.em = em;
     this.queryFactory = new JPAQueryFactory(em);
+    this.changeDispatcher = changeDispatcher;
+    this.governor = governor;
+    this.usernameFilter = usernameFilter;
+    this.coalescer = coalescer;
   }
 
   /**
@@ -32,6 +61,7 @@ public class MemberJpaRepository {
    *
    * @return
    */
+  @Transactional
   public void save(Member member) {
     em.persist(member);
   }
@@ -42,11 +72,16 @@ public class MemberJpaRepository {
   }
 
   public List<Member> findAll() {
-    return em.createQuery("select  m from Member m", Member.class).getResultList();
+    return governor.fetch(em.createQuery("select  m from Member m", Member.class)
+        .setHint(QueryHints.HINT_READONLY, readOnly()), ResultMemoryGovernor.ENTITY_ROW_BYTES);
   }
 
   public List<Member> findByUsername(String username) {
+    if (usernameFilter.definitelyAbsent(username)) {
+      return List.of();
+    }
     return em.createQuery("select m from Member m where m.username=:username", Member.class)
+        .setHint(QueryHints.HINT_READONLY, readOnly())
         .setParameter("username", username).getResultList();
   }
 
@@ -54,17 +89,51 @@ public class MemberJpaRepository {
    * QueryDsl
    */
   public List<Member> findAll_Querydsl() {
-    return queryFactory.selectFrom(member).fetch();
+    return QueryEvents.fetch("MemberJpaRepository.findAll_Querydsl", "",
+        () -> governor.fetch(queryFactory.selectFrom(member)
+            .setHint(QueryHints.HINT_READONLY, readOnly()),
+            ResultMemoryGovernor.ENTITY_ROW_BYTES));
   }
 
   public List<Member> findByUsername_querydsl(String username) {
-    return queryFactory.selectFrom(member).where(member.username.eq((username))).fetch();
+    if (usernameFilter.definitelyAbsent(username)) {
+      return List.of();
+    }
+    return queryFactory.selectFrom(member).where(member.username.eq((username)))
+        .setHint(QueryHints.HINT_READONLY, readOnly())
+        .fetch();
+  }
+
+  /**
+   * StatelessSession - 영속성 컨텍스트, 스냅샷, 1차 캐시 없이 읽는다.
+   * 반환된 Member 는 준영속이고 team 은 지연 로딩할 수 없다. (team id 만 사용 가능)
+   */
+  public List<Member> findAll_Stateless() {
+    SessionFactory sessionFactory = em.getEntityManagerFactory().unwrap(SessionFactory.class);
+    // 현재 트랜잭션의 커넥션을 같이 쓴다.
+    return em.unwrap(Session.class).doReturningWork(connection -> {
+      try (StatelessSession session = sessionFactory.openStatelessSession(connection)) {
+        // 스냅샷이 없어서 DTO 와 엔티티 사이 크기로 잡는다.
+        return governor.fetch(new HibernateQueryFactory(session).selectFrom(member),
+            ResultMemoryGovernor.DTO_ROW_BYTES * 2);
+      }
+    });
+  }
+
+  /**
+   * 읽기 전용 트랜잭션이면 org.hibernate.readOnly 힌트 - 쓰기 트랜잭션에 참여했을 때는 변경 감지를 끄지 않는다.
+   */
+  private boolean readOnly() {
+    return TransactionSynchronizationManager.isCurrentTransactionReadOnly();
   }
 
   /**
    * Builder 사용 (회원명, 팀명, 나이(ageGoe, ageLoe))*
    */
   public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition) {
+    if (usernameFilter.definitelyAbsentCondition(condition.getUsername())) {
+      return List.of();
+    }
     BooleanBuilder builder = new BooleanBuilder();
     if (hasText(condition.getUsername())) {
       builder.and(member.username.eq(condition.getUsername()));
@@ -78,17 +147,18 @@ public class MemberJpaRepository {
     if (condition.getAgeLoe() != null) {
       builder.and(member.age.loe(condition.getAgeLoe()));
     }
-    return queryFactory
-        .select(new QMemberTeamDto(
-            member.id,
-            member.username,
-            member.age,
-            team.id,
-            team.name))
-        .from(member)
-        .leftJoin(member.team, team)
-        .where(builder)
-        .fetch();
+    // search() 와 같은 쿼리라서 같이 묶는다.
+    return coalescer.coalesce("MemberJpaRepository.search", condition, Pageable.unpaged(),
+        () -> governor.fetch(queryFactory
+            .select(new QMemberTeamDto(
+                member.id,
+                member.username,
+                member.age,
+                team.id,
+                team.name))
+            .from(member)
+            .leftJoin(member.team, team)
+            .where(builder), ResultMemoryGovernor.DTO_ROW_BYTES));
   }
 
 
@@ -96,21 +166,64 @@ public class MemberJpaRepository {
    * where 절 파라미터 사용*
    */
   public List<MemberTeamDto> search(MemberSearchCondition condition) {
-    return queryFactory
-        .select(new QMemberTeamDto(
+    if (usernameFilter.definitelyAbsentCondition(condition.getUsername())) {
+      return List.of();
+    }
+    TimedFactoryExpression<MemberTeamDto> projection = TimedFactoryExpression.of(
+        new QMemberTeamDto(
             member.id,
             member.username,
             member.age,
             team.id,
-            team.name))
-        .from(member)
-        .leftJoin(member.team, team)
+            team.name));
+    return coalescer.coalesce("MemberJpaRepository.search", condition, Pageable.unpaged(),
+        () -> QueryEvents.fetch("MemberJpaRepository.search",
+            QueryEvents.shape(condition, Pageable.unpaged()), projection,
+            () -> governor.fetch(queryFactory
+                .select(projection)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                    usernameEqual(condition.getUsername()),
+                    teamNameEqual(condition.getTeamName()),
+                    ageGoe(condition.getAgeGoe()),
+                    ageLoe(condition.getAgeLoe())), ResultMemoryGovernor.DTO_ROW_BYTES)));
+  }
+
+  /**
+   * 벌크 연산 - 조건에 맞는 회원 나이를 한번에 더한다. 영속성 컨텍스트를 거치지 않으므로 변경을 직접 알린다.
+   */
+  @Transactional
+  public long bulkAddAge(MemberSearchCondition condition, int amount) {
+    long count = queryFactory
+        .update(member)
+        .set(member.age, member.age.add(amount))
         .where(
             usernameEqual(condition.getUsername()),
-            teamNameEqual(condition.getTeamName()),
+            teamNameIn(condition.getTeamName()),
             ageGoe(condition.getAgeGoe()),
             ageLoe(condition.getAgeLoe()))
-        .fetch();
+        .execute();
+    changeDispatcher.bulkChanged(new MemberBulkChange(copyOf(condition), amount, count));
+    return count;
+  }
+
+  /**
+   * 벌크 update 에서는 조인을 쓸 수 없어서 서브쿼리로 팀을 거른다.
+   */
+  private BooleanExpression teamNameIn(String teamName) {
+    return hasText(teamName)
+        ? member.team.id.in(JPAExpressions.select(team.id).from(team).where(team.name.eq(teamName)))
+        : null;
+  }
+
+  private MemberSearchCondition copyOf(MemberSearchCondition condition) {
+    MemberSearchCondition copy = new MemberSearchCondition();
+    copy.setUsername(condition.getUsername());
+    copy.setTeamName(condition.getTeamName());
+    copy.setAgeGoe(condition.getAgeGoe());
+    copy.setAgeLoe(condition.getAgeLoe());
+    return copy;
   }
 
   private BooleanExpression usernameEqual(String username) {
@@ -0,0 +1,371 @@
+package study.querydsl.repository;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMemberSearch.memberSearch;
+import static study.querydsl.entity.QTeam.team;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.event.spi.EventSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberFacetPage;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.event.ChangeType;
+import study.querydsl.event.MemberBulkChange;
+import study.querydsl.event.MemberChange;
+import study.querydsl.event.MemberChangeListener;
+import study.querydsl.event.MemberState;
+import study.querydsl.event.TeamChange;
+
+/**
+ * 메모리 검색 엔진 (member.search.engine=memory 또는 engine=memory)
+ * <p>
+ * 기동할 때 member_search 와 team 을 모두 읽어 MemberMemorySnapshot 을 만들고, 조회는 volatile 로 공개한 스냅샷 하나만 본다.
+ * 커밋된 Member / Team 변경은 모아두고, 전용 스레드 하나가 원본 행에 반영한 뒤 스냅샷을 새로 만들어 바꿔 끼운다.
+ * 만드는 동안 커밋된 변경은 다음 번에 한번에 모아서 만든다. (커밋한 요청 스레드는 기다리지 않는다)
+ * 그래서 스냅샷은 커밋보다 조금 늦다. 자기가 커밋한 변경이 아직 스냅샷에 없으면 그 스레드는 DB 로 조회한다. (자기 쓰기는 보인다)
+ * <p>
+ * DB 가 원본이다. 스냅샷이 없거나 (member.search.memory.enabled=false, 로딩 전) 읽기/쓰기 트랜잭션 안이면 (커밋 안 된 변경이 보여야 한다)
+ * MemberRepository 로 조회한다.
+ */
+@Slf4j
+@Component
+public class MemberMemorySearch implements MemberRepositoryCustom, MemberChangeListener {
+
+  private static final int MAX_LOAD_ATTEMPTS = 3;
+
+  private final MemberRepository memberRepository;
+  private final JPAQueryFactory queryFactory;
+  private final TransactionTemplate readOnly;
+  private final boolean enabled;
+
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private final TreeMap<Long, MemberMemorySnapshot.Row> rows = new TreeMap<>();
+  private final Map<Long, String> teams = new HashMap<>();
+  private final Queue<Consumer<MemberMemorySearch>> pending = new ConcurrentLinkedQueue<>();
+  private final AtomicLong commits = new AtomicLong();
+  /**
+   * 이 스레드가 마지막으로 커밋한 변경의 번호
+   */
+  private final ThreadLocal<Long> lastCommit = new ThreadLocal<>();
+  private final ExecutorService refresher;
+  private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+
+  private volatile boolean tracking;
+  private volatile MemberMemorySnapshot snapshot;
+
+  public MemberMemorySearch(MemberRepository memberRepository, EntityManager em,
+      PlatformTransactionManager transactionManager,
+      @Value("${member.search.memory.enabled:false}") boolean enabled) {
+    this.memberRepository = memberRepository;
+    this.queryFactory = new JPAQueryFactory(em);
+    this.readOnly = new TransactionTemplate(transactionManager);
+    this.readOnly.setReadOnly(true);
+    this.enabled = enabled;
+    this.refresher = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "member-memory-refresh");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadOnStartup() {
+    reload();
+  }
+
+  @PreDestroy
+  public void stop() {
+    refresher.shutdownNow();
+  }
+
+  /**
+   * DB 에서 전부 다시 읽는다. 읽는 동안 변경이 커밋되면 다시 읽는다. (최대 MAX_LOAD_ATTEMPTS 번)
+   * 꺼져 있으면 (member.search.memory.enabled=false) 아무것도 하지 않는다.
+   */
+  public void reload() {
+    if (!enabled) {
+      return;
+    }
+    writeLock.lock();
+    try {
+      tracking = true;
+      long start = System.nanoTime();
+      for (int attempt = 1; ; attempt++) {
+        pending.clear();
+        long seen = commits.get();
+        readOnly.executeWithoutResult(status -> load());
+        if (commits.get() == seen || attempt == MAX_LOAD_ATTEMPTS) {
+          break;
+        }
+      }
+      // 마지막으로 읽는 동안 커밋된 변경은 덮어쓴다. (벌크 나이 변경은 두번 반영될 수 있다)
+      drain();
+      log.info("member memory index loaded. rows={}, teams={}, elapsed={}ms", rows.size(),
+          teams.size(), (System.nanoTime() - start) / 1_000_000);
+    } finally {
+      writeLock.unlock();
+    }
+    scheduleRefresh();
+  }
+
+  public boolean isLoaded() {
+    return snapshot != null;
+  }
+
+  /**
+   * 지금까지 커밋된 변경이 모두 스냅샷에 들어있는지
+   */
+  public boolean isCurrent() {
+    MemberMemorySnapshot current = snapshot;
+    return current != null && current.commits() == commits.get();
+  }
+
+  @Override
+  public List<MemberTeamDto> search(MemberSearchCondition condition) {
+    MemberMemorySnapshot current = usableSnapshot();
+    if (current == null) {
+      return memberRepository.search(condition);
+    }
+    return current.page(current.match(condition), Pageable.unpaged());
+  }
+
+  @Override
+  public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+    MemberMemorySnapshot current = usableSnapshot();
+    if (current == null) {
+      return memberRepository.searchPageSimple(condition, pageable);
+    }
+    return page(current, condition, pageable);
+  }
+
+  @Override
+  public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+    MemberMemorySnapshot current = usableSnapshot();
+    if (current == null) {
+      return memberRepository.searchPageComplex(condition, pageable);
+    }
+    return page(current, condition, pageable);
+  }
+
+  @Override
+  public MemberFacetPage searchFacets(MemberSearchCondition condition, Pageable pageable,
+      List<Integer> ageBounds) {
+    MemberMemorySnapshot current = usableSnapshot();
+    if (current == null) {
+      return memberRepository.searchFacets(condition, pageable, ageBounds);
+    }
+    MemberAgeBuckets buckets = MemberAgeBuckets.of(ageBounds);
+    BitSet matches = current.match(condition);
+    MemberFacetCounter counter = new MemberFacetCounter(buckets);
+    current.countFacets(matches, counter, buckets);
+    return new MemberFacetPage(
+        new PageImpl<>(current.page(matches, pageable), pageable, counter.total()),
+        counter.teams(), counter.ageBuckets());
+  }
+
+  private Page<MemberTeamDto> page(MemberMemorySnapshot current, MemberSearchCondition condition,
+      Pageable pageable) {
+    BitSet matches = current.match(condition);
+    return new PageImpl<>(current.page(matches, pageable), pageable, matches.cardinality());
+  }
+
+  private MemberMemorySnapshot usableSnapshot() {
+    if (TransactionSynchronizationManager.isActualTransactionActive()
+        && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      return null;
+    }
+    MemberMemorySnapshot current = snapshot;
+    Long mine = lastCommit.get();
+    if (current != null && mine != null && current.commits() < mine) {
+      return null;
+    }
+    return current;
+  }
+
+  @Override
+  public void memberChanged(MemberChange change, EventSource session) {
+    Long id = change.getMemberId();
+    MemberState after = change.getAfter();
+    if (after == null) {
+      onCommit(index -> index.rows.remove(id));
+    } else {
+      onCommit(index -> index.rows.put(id,
+          new MemberMemorySnapshot.Row(id, after.getUsername(), after.getAge(),
+              after.getTeamId())));
+    }
+  }
+
+  @Override
+  public void teamChanged(TeamChange change, EventSource session) {
+    Long id = change.getTeamId();
+    if (change.getType() == ChangeType.DELETE) {
+      onCommit(index -> {
+        index.teams.remove(id);
+        index.rows.values().forEach(row -> {
+          if (id.equals(row.teamId)) {
+            row.teamId = null;
+          }
+        });
+      });
+    } else {
+      onCommit(index -> index.teams.put(id, change.getAfterName()));
+    }
+  }
+
+  /**
+   * 벌크 update 와 같은 조건 (팀은 이름으로) 으로 나이를 바꾼다.
+   */
+  @Override
+  public void membersBulkChanged(MemberBulkChange change) {
+    MemberSearchCondition condition = change.getCondition();
+    int delta = change.getAgeDelta();
+    onCommit(index -> {
+      String username = hasText(condition.getUsername())
+          ? CollationKey.of(condition.getUsername()) : null;
+      String teamName = hasText(condition.getTeamName())
+          ? CollationKey.of(condition.getTeamName()) : null;
+      for (MemberMemorySnapshot.Row row : index.rows.values()) {
+        if (username != null && (row.username == null
+            || !username.equals(CollationKey.of(row.username)))) {
+          continue;
+        }
+        if (teamName != null) {
+          String rowTeam = row.teamId == null ? null : index.teams.get(row.teamId);
+          if (rowTeam == null || !teamName.equals(CollationKey.of(rowTeam))) {
+            continue;
+          }
+        }
+        if (condition.getAgeGoe() != null && row.age < condition.getAgeGoe()
+            || condition.getAgeLoe() != null && row.age > condition.getAgeLoe()) {
+          continue;
+        }
+        row.age += delta;
+      }
+    });
+  }
+
+  /**
+   * 트랜잭션별로 모았다가 커밋된 뒤에 반영한다. 롤백되면 버린다.
+   */
+  @SuppressWarnings("unchecked")
+  private void onCommit(Consumer<MemberMemorySearch> change) {
+    if (!tracking) {
+      return;
+    }
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      pending.add(change);
+      committed();
+      return;
+    }
+    List<Consumer<MemberMemorySearch>> changes =
+        (List<Consumer<MemberMemorySearch>>) TransactionSynchronizationManager.getResource(this);
+    if (changes == null) {
+      List<Consumer<MemberMemorySearch>> bound = new ArrayList<>();
+      TransactionSynchronizationManager.bindResource(this, bound);
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          pending.addAll(bound);
+          committed();
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+          TransactionSynchronizationManager.unbindResourceIfPossible(MemberMemorySearch.this);
+        }
+      });
+      changes = bound;
+    }
+    changes.add(change);
+  }
+
+  /**
+   * 변경을 pending 에 넣은 뒤에 번호를 붙여야, 그 번호까지 반영한 스냅샷에 변경이 빠지지 않는다.
+   */
+  private void committed() {
+    lastCommit.set(commits.incrementAndGet());
+    scheduleRefresh();
+  }
+
+  /**
+   * 이미 예약되어 있으면 그 작업이 같이 반영한다. 작업을 시작하면서 예약을 풀어서, 만드는 동안 온 변경은 한번 더 예약된다.
+   */
+  private void scheduleRefresh() {
+    if (snapshot == null || !refreshScheduled.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      refresher.execute(() -> {
+        refreshScheduled.set(false);
+        writeLock.lock();
+        try {
+          drain();
+        } catch (RuntimeException e) {
+          log.error("member memory index refresh failed", e);
+        } finally {
+          writeLock.unlock();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // 종료 중
+      refreshScheduled.set(false);
+    }
+  }
+
+  private void drain() {
+    long upTo = commits.get();
+    Consumer<MemberMemorySearch> change;
+    while ((change = pending.poll()) != null) {
+      change.accept(this);
+    }
+    snapshot = new MemberMemorySnapshot(rows.values(), teams, upTo);
+  }
+
+  private void load() {
+    rows.clear();
+    teams.clear();
+    for (Tuple row : queryFactory.select(team.id, team.name).from(team).fetch()) {
+      teams.put(row.get(team.id), row.get(team.name));
+    }
+    List<Tuple> members = queryFactory
+        .select(memberSearch.id, memberSearch.username, memberSearch.age, memberSearch.teamId)
+        .from(memberSearch)
+        .orderBy(memberSearch.id.asc())
+        .fetch();
+    for (Tuple row : members) {
+      Long id = row.get(memberSearch.id);
+      rows.put(id, new MemberMemorySnapshot.Row(id, row.get(memberSearch.username),
+          row.get(memberSearch.age), row.get(memberSearch.teamId)));
+    }
+  }
+}
@@ -0,0 +1,344 @@
+package study.querydsl.repository;
+
+import static org.springframework.util.StringUtils.hasText;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+/**
+ * 메모리 검색용 회원 스냅샷 (만든 뒤에는 바뀌지 않는다)
+ * <p>
+ * 행 번호는 member_id 순서이고 컬럼마다 배열 하나다. 색인은 세 가지
+ * <ul>
+ *   <li>나이 : 나이 순으로 정렬한 행 번호 + 나이 배열 (범위는 이진 탐색)</li>
+ *   <li>회원명 : 정규화한 이름 -> 행 번호 배열</li>
+ *   <li>팀 이름 : 정규화한 이름 -> 행 목록 (행이 적은 팀은 정렬된 행 번호 배열, 많은 팀은 bitmap)</li>
+ * </ul>
+ * 문자열 비교는 DB (MariaDB 기본 _ci collation) 와 같게 대소문자 / 뒤 공백 / 악센트를 무시한다. (CollationKey)
+ */
+final class MemberMemorySnapshot {
+
+  private static final int[] NO_ROWS = new int[0];
+
+  private final long[] ids;
+  private final String[] usernames;
+  private final int[] ages;
+  private final int[] teamSlots;
+  private final long[] slotTeamIds;
+  private final String[] slotTeamNames;
+
+  private final int[] byAge;
+  private final int[] sortedAges;
+  private final Map<String, int[]> byUsername;
+  private final Map<String, TeamRows> byTeamName;
+  private final long commits;
+
+  /**
+   * @param rows    member_id 순서
+   * @param teams   팀 id -> 이름
+   * @param commits 반영된 커밋 수 (MemberMemorySearch 가 붙이는 번호)
+   */
+  MemberMemorySnapshot(Collection<Row> rows, Map<Long, String> teams, long commits) {
+    this.commits = commits;
+    int size = rows.size();
+    ids = new long[size];
+    usernames = new String[size];
+    ages = new int[size];
+    teamSlots = new int[size];
+
+    Map<Long, Integer> slots = new HashMap<>();
+    slotTeamIds = new long[teams.size()];
+    slotTeamNames = new String[teams.size()];
+    teams.forEach((id, name) -> {
+      int slot = slots.size();
+      slots.put(id, slot);
+      slotTeamIds[slot] = id;
+      slotTeamNames[slot] = name;
+    });
+
+    Map<String, List<Integer>> usernamePositions = new HashMap<>();
+    Map<String, TeamRows> teamRows = new HashMap<>();
+    int position = 0;
+    for (Row row : rows) {
+      ids[position] = row.id;
+      usernames[position] = row.username;
+      ages[position] = row.age;
+      Integer slot = row.teamId == null ? null : slots.get(row.teamId);
+      teamSlots[position] = slot == null ? -1 : slot;
+      if (row.username != null) {
+        usernamePositions.computeIfAbsent(CollationKey.of(row.username), k -> new ArrayList<>())
+            .add(position);
+      }
+      if (slot != null && slotTeamNames[slot] != null) {
+        teamRows.computeIfAbsent(CollationKey.of(slotTeamNames[slot]), k -> new TeamRows())
+            .add(position);
+      }
+      position++;
+    }
+    teamRows.values().forEach(team -> team.compact(size));
+    byTeamName = teamRows;
+    byUsername = new HashMap<>(usernamePositions.size() * 2);
+    usernamePositions.forEach((name, positions) ->
+        byUsername.put(name, positions.stream().mapToInt(Integer::intValue).toArray()));
+
+    // (나이, 행 번호) 를 long 하나로 묶어 정렬한다. 같은 나이면 행 번호 (= member_id) 순서
+    long[] ageKeys = new long[size];
+    for (int p = 0; p < size; p++) {
+      ageKeys[p] = (long) ages[p] << 32 | p;
+    }
+    Arrays.sort(ageKeys);
+    byAge = new int[size];
+    sortedAges = new int[size];
+    for (int i = 0; i < size; i++) {
+      byAge[i] = (int) ageKeys[i];
+      sortedAges[i] = (int) (ageKeys[i] >> 32);
+    }
+  }
+
+  int size() {
+    return ids.length;
+  }
+
+  long commits() {
+    return commits;
+  }
+
+  /**
+   * 조건에 맞는 행 번호. 회원명 -> 팀 -> 나이 순으로 작은 후보부터 좁힌다.
+   */
+  BitSet match(MemberSearchCondition condition) {
+    int size = size();
+    Integer ageGoe = condition.getAgeGoe();
+    Integer ageLoe = condition.getAgeLoe();
+    boolean ageFiltered = ageGoe != null || ageLoe != null;
+    int from = ageGoe == null ? 0 : lowerBound(ageGoe);
+    int to = ageLoe == null ? size : upperBound(ageLoe);
+
+    TeamRows team = null;
+    if (hasText(condition.getTeamName())) {
+      team = byTeamName.get(CollationKey.of(condition.getTeamName()));
+      if (team == null) {
+        return new BitSet();
+      }
+    }
+
+    BitSet result = new BitSet(size);
+    if (hasText(condition.getUsername())) {
+      int[] positions = byUsername.getOrDefault(CollationKey.of(condition.getUsername()), NO_ROWS);
+      for (int p : positions) {
+        if ((team == null || team.get(p)) && ageIn(p, ageGoe, ageLoe)) {
+          result.set(p);
+        }
+      }
+    } else if (team != null) {
+      if (!ageFiltered) {
+        team.addTo(result);
+      } else if (to - from < team.count) {
+        for (int i = from; i < to; i++) {
+          if (team.get(byAge[i])) {
+            result.set(byAge[i]);
+          }
+        }
+      } else {
+        for (int p = team.next(0); p >= 0; p = team.next(p + 1)) {
+          if (ageIn(p, ageGoe, ageLoe)) {
+            result.set(p);
+          }
+        }
+      }
+    } else if (ageFiltered) {
+      for (int i = from; i < to; i++) {
+        result.set(byAge[i]);
+      }
+    } else {
+      result.set(0, size);
+    }
+    return result;
+  }
+
+  /**
+   * pageable 순서 / 범위의 행. member_id 순이면 bitmap 을 그대로 따라가고, 아니면 offset + size 개만 남기는 heap 으로 고른다.
+   */
+  List<MemberTeamDto> page(BitSet matches, Pageable pageable) {
+    List<MemberTeamDto> result = new ArrayList<>();
+    if (pageable.isUnpaged() || isMemberIdAscending(pageable.getSort())) {
+      long skip = pageable.isPaged() ? pageable.getOffset() : 0;
+      int limit = pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE;
+      for (int p = matches.nextSetBit(0); p >= 0 && result.size() < limit;
+          p = matches.nextSetBit(p + 1)) {
+        if (skip > 0) {
+          skip--;
+          continue;
+        }
+        result.add(dto(p));
+      }
+      return result;
+    }
+
+    Comparator<MemberTeamDto> order = MemberSortPolicy.comparator(pageable.getSort());
+    long keep = pageable.getOffset() + pageable.getPageSize();
+    if (keep > matches.cardinality()) {
+      keep = matches.cardinality();
+    }
+    PriorityQueue<MemberTeamDto> top = new PriorityQueue<>((int) Math.max(1, keep),
+        order.reversed());
+    for (int p = matches.nextSetBit(0); p >= 0; p = matches.nextSetBit(p + 1)) {
+      MemberTeamDto dto = dto(p);
+      if (top.size() < keep) {
+        top.add(dto);
+      } else if (keep > 0 && order.compare(dto, top.peek()) < 0) {
+        top.poll();
+        top.add(dto);
+      }
+    }
+    result.addAll(top);
+    result.sort(order);
+    int offset = (int) Math.min(pageable.getOffset(), result.size());
+    return new ArrayList<>(result.subList(offset, result.size()));
+  }
+
+  void countFacets(BitSet matches, MemberFacetCounter counter, MemberAgeBuckets buckets) {
+    for (int p = matches.nextSetBit(0); p >= 0; p = matches.nextSetBit(p + 1)) {
+      int slot = teamSlots[p];
+      counter.add(slot < 0 ? null : slotTeamNames[slot], buckets.index(ages[p]), 1);
+    }
+  }
+
+  private MemberTeamDto dto(int p) {
+    int slot = teamSlots[p];
+    return new MemberTeamDto(ids[p], usernames[p], ages[p],
+        slot < 0 ? null : slotTeamIds[slot],
+        slot < 0 ? null : slotTeamNames[slot]);
+  }
+
+  private boolean ageIn(int p, Integer ageGoe, Integer ageLoe) {
+    return (ageGoe == null || ages[p] >= ageGoe) && (ageLoe == null || ages[p] <= ageLoe);
+  }
+
+  /**
+   * age 이상인 첫 위치
+   */
+  private int lowerBound(int age) {
+    int low = 0;
+    int high = sortedAges.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (sortedAges[mid] < age) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * age 보다 큰 첫 위치
+   */
+  private int upperBound(int age) {
+    return age == Integer.MAX_VALUE ? sortedAges.length : lowerBound(age + 1);
+  }
+
+  private static boolean isMemberIdAscending(Sort sort) {
+    if (sort.isUnsorted()) {
+      return true;
+    }
+    List<Sort.Order> orders = sort.toList();
+    if (orders.size() == 1 && orders.get(0).isAscending()) {
+      // 화이트리스트 검사는 그대로 한다.
+      return MemberSortKey.of(orders.get(0).getProperty())
+          .orElseThrow(() -> new UnsupportedSortException(
+              "sort property not allowed : " + orders.get(0).getProperty()))
+          == MemberSortKey.MEMBER_ID;
+    }
+    return false;
+  }
+
+  /**
+   * 팀 하나의 행 번호. 팀마다 전체 크기 bitmap 을 두면 팀 수 x 회원 수 만큼 들어서, 회원 수의 1/32 보다 적은 팀은
+   * 정렬된 배열로 둔다. (배열 4 byte / 행, bitmap 1 bit / 전체 행)
+   */
+  private static final class TeamRows {
+
+    private int[] positions = new int[4];
+    private BitSet bits;
+    private int count;
+
+    void add(int position) {
+      if (count == positions.length) {
+        positions = Arrays.copyOf(positions, count * 2);
+      }
+      positions[count++] = position;
+    }
+
+    void compact(int size) {
+      if ((long) count * 32 < size) {
+        positions = Arrays.copyOf(positions, count);
+        return;
+      }
+      bits = new BitSet(size);
+      for (int i = 0; i < count; i++) {
+        bits.set(positions[i]);
+      }
+      positions = null;
+    }
+
+    boolean get(int position) {
+      return bits != null ? bits.get(position)
+          : Arrays.binarySearch(positions, position) >= 0;
+    }
+
+    /**
+     * position 이상인 첫 행 번호, 없으면 -1
+     */
+    int next(int position) {
+      if (bits != null) {
+        return bits.nextSetBit(position);
+      }
+      int index = Arrays.binarySearch(positions, position);
+      if (index < 0) {
+        index = -index - 1;
+      }
+      return index < positions.length ? positions[index] : -1;
+    }
+
+    void addTo(BitSet result) {
+      if (bits != null) {
+        result.or(bits);
+        return;
+      }
+      for (int position : positions) {
+        result.set(position);
+      }
+    }
+  }
+
+  /**
+   * 스냅샷을 만들 원본 행 (쓰기 쪽에서만 바꾼다)
+   */
+  static final class Row {
+
+    final long id;
+    String username;
+    int age;
+    Long teamId;
+
+    Row(long id, String username, int age, Long teamId) {
+      this.id = id;
+      this.username = username;
+      this.age = age;
+      this.teamId = teamId;
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package study.querydsl.repository;
+
+import static study.querydsl.entity.QMemberOutbox.memberOutbox;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberChangeFeed;
+import study.querydsl.dto.MemberChangeRecord;
+import study.querydsl.dto.QMemberChangeRecord;
+
+/**
+ * member_outbox 조회 (id 커서)
+ * <p>
+ * auto increment id 는 커밋 순서와 다를 수 있다. (먼저 id 를 받은 트랜잭션이 늦게 커밋) 커서가 그런 행을 건너뛰지 않도록
+ * settle 시간보다 오래된 행만 내보낸다. created_at 은 insert (id 를 받는 시점, 트랜잭션 완료 직전) 에 DB 시계로 찍히고,
+ * 기준 시각도 DB 시계로 읽는다. 그래서 트랜잭션 길이나 인스턴스 사이 시계 차이와 상관없이 insert 부터 커밋까지만 settle 안에 들어오면 된다.
+ */
+@Repository
+@Transactional(readOnly = true)
+public class MemberOutboxRepository {
+
+  private final EntityManager em;
+  private final JPAQueryFactory queryFactory;
+  private final Duration settle;
+
+  public MemberOutboxRepository(EntityManager em,
+      @Value("${member.outbox.settle:2s}") Duration settle) {
+    this.em = em;
+    this.queryFactory = new JPAQueryFactory(em);
+    this.settle = settle;
+  }
+
+  public MemberChangeFeed findSince(long since, int limit) {
+    List<MemberChangeRecord> changes = queryFactory
+        .select(new QMemberChangeRecord(
+            memberOutbox.id,
+            memberOutbox.aggregate,
+            memberOutbox.changeType,
+            memberOutbox.aggregateId,
+            memberOutbox.payload,
+            memberOutbox.createdAt))
+        .from(memberOutbox)
+        .where(
+            memberOutbox.id.gt(since),
+            memberOutbox.createdAt.loe(databaseNow().minus(settle)))
+        .orderBy(memberOutbox.id.asc())
+        .limit(limit)
+        .fetch();
+    long next = changes.isEmpty() ? since : changes.get(changes.size() - 1).getId();
+    return new MemberChangeFeed(changes, next);
+  }
+
+  /**
+   * settle 이 지난 (커밋이 끝났다고 보는) 마지막 id. 없으면 0
+   */
+  public long lastSettledId() {
+    Long id = queryFactory
+        .select(memberOutbox.id.max())
+        .from(memberOutbox)
+        .where(memberOutbox.createdAt.loe(databaseNow().minus(settle)))
+        .fetchOne();
+    return id == null ? 0 : id;
+  }
+
+  private LocalDateTime databaseNow() {
+    Object now = em.createNativeQuery("select now(6)").getSingleResult();
+    return now instanceof Timestamp ? ((Timestamp) now).toLocalDateTime() : (LocalDateTime) now;
+  }
+}
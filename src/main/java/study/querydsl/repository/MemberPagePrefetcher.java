@@ -0,0 +1,243 @@
+package study.querydsl.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.event.spi.EventSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.event.MemberBulkChange;
+import study.querydsl.event.MemberChange;
+import study.querydsl.event.MemberChangeListener;
+import study.querydsl.event.TeamChange;
+
+/**
+ * 페이지 검색 (v2 / v3) 에서 page N 을 응답한 뒤 page N+1 을 미리 조회해둔다.
+ * <p>
+ * 미리 조회한 페이지는 전용 캐시 (MemberSearchCache 인스턴스) 에 넣고, 다음 요청이 그 페이지면 DB 를 거치지 않는다.
+ * 곧 읽힐 페이지만 잠깐 들고 있으면 되므로 검색 결과 캐시보다 작고 짧게 둔다. (maximum-size, expire-after-write)
+ * Member / Team 변경 시 겹치는 조건만 지우는 것, 조회 중에 바뀌었으면 넣지 않는 것은 검색 결과 캐시와 같다. (변경은 이 빈이 받아서 넘긴다)
+ * <p>
+ * 조회는 크기가 정해진 스레드 / 큐에서 하고, 큐가 차거나 커넥션 풀의 idle 커넥션이 min-idle-connections 보다 적으면
+ * 건너뛴다. (요청 처리에 쓸 커넥션을 뺏지 않는다)
+ * 적중률은 member.prefetch.requests (result=hit|miss), 미리 조회 작업은 member.prefetch.tasks (outcome=...) 로 남긴다.
+ */
+@Slf4j
+@Component
+public class MemberPagePrefetcher implements MemberChangeListener {
+
+  private final boolean enabled;
+  private final int minIdleConnections;
+  private final DataSource dataSource;
+  private final MemberSearchCache prefetched;
+  private final ThreadPoolExecutor executor;
+  private final Set<Key> loading = ConcurrentHashMap.newKeySet();
+
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter submitted;
+  private final Counter skippedIdle;
+  private final Counter rejected;
+  private final Counter failed;
+
+  public MemberPagePrefetcher(DataSource dataSource, MeterRegistry meterRegistry,
+      @Value("${member.prefetch.enabled:true}") boolean enabled,
+      @Value("${member.prefetch.threads:2}") int threads,
+      @Value("${member.prefetch.queue-size:16}") int queueSize,
+      @Value("${member.prefetch.min-idle-connections:2}") int minIdleConnections,
+      @Value("${member.prefetch.maximum-size:1000}") long maximumSize,
+      @Value("${member.prefetch.expire-after-write:30s}") Duration expireAfterWrite) {
+    this.enabled = enabled;
+    this.minIdleConnections = minIdleConnections;
+    this.dataSource = dataSource;
+    this.prefetched = new MemberSearchCache(maximumSize, expireAfterWrite);
+    this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueSize), runnable -> {
+          Thread thread = new Thread(runnable, "member-page-prefetch");
+          thread.setDaemon(true);
+          return thread;
+        });
+    this.hits = meterRegistry.counter("member.prefetch.requests", "result", "hit");
+    this.misses = meterRegistry.counter("member.prefetch.requests", "result", "miss");
+    this.submitted = meterRegistry.counter("member.prefetch.tasks", "outcome", "submitted");
+    this.skippedIdle = meterRegistry.counter("member.prefetch.tasks", "outcome", "skipped_idle");
+    this.rejected = meterRegistry.counter("member.prefetch.tasks", "outcome", "rejected");
+    this.failed = meterRegistry.counter("member.prefetch.tasks", "outcome", "failed");
+  }
+
+  @PreDestroy
+  public void stop() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * 미리 조회해둔 페이지가 있으면 그것을, 없으면 search 로 조회하고 다음 페이지를 미리 조회한다.
+   *
+   * @param method 같은 조건이라도 결과가 다른 검색을 구분하는 이름 (예: "searchPageComplex:jpa")
+   */
+  public Page<MemberTeamDto> fetch(String method, MemberSearchCondition condition,
+      Pageable pageable,
+      BiFunction<MemberSearchCondition, Pageable, Page<MemberTeamDto>> search) {
+    if (!enabled || pageable.isUnpaged() || !cacheable()) {
+      return search.apply(condition, pageable);
+    }
+    Page<MemberTeamDto> page = prefetched(method, condition, pageable);
+    if (page != null) {
+      hits.increment();
+    } else {
+      misses.increment();
+      page = search.apply(condition, pageable);
+    }
+    if (page.hasNext()) {
+      prefetch(new Key(method, condition, pageable.next()), search);
+    }
+    return page;
+  }
+
+  private void prefetch(Key key,
+      BiFunction<MemberSearchCondition, Pageable, Page<MemberTeamDto>> search) {
+    if (prefetched(key.method, key.condition, key.pageable) != null
+        || !hasIdleConnections()) {
+      return;
+    }
+    if (!loading.add(key)) {
+      return;
+    }
+    long version = prefetched.version();
+    try {
+      executor.execute(() -> {
+        try {
+          Page<MemberTeamDto> page = search.apply(key.condition, key.pageable);
+          prefetched.put(key.method, key.condition, key.pageable, page, version);
+        } catch (RuntimeException e) {
+          failed.increment();
+          log.debug("page prefetch failed. {}", key, e);
+        } finally {
+          loading.remove(key);
+        }
+      });
+      submitted.increment();
+    } catch (RejectedExecutionException e) {
+      loading.remove(key);
+      rejected.increment();
+    }
+  }
+
+  /**
+   * 미리 조회해둔 페이지 (없으면 null)
+   */
+  Page<MemberTeamDto> prefetched(String method, MemberSearchCondition condition,
+      Pageable pageable) {
+    return prefetched.getIfPresent(method, condition, pageable);
+  }
+
+  public void invalidateAll() {
+    prefetched.invalidateAll();
+  }
+
+  @Override
+  public void memberChanged(MemberChange change, EventSource session) {
+    prefetched.memberChanged(change, session);
+  }
+
+  @Override
+  public void teamChanged(TeamChange change, EventSource session) {
+    prefetched.teamChanged(change, session);
+  }
+
+  @Override
+  public void membersBulkChanged(MemberBulkChange change) {
+    prefetched.membersBulkChanged(change);
+  }
+
+  private boolean hasIdleConnections() {
+    HikariPoolMXBean pool = pool();
+    if (pool != null && pool.getIdleConnections() < minIdleConnections) {
+      skippedIdle.increment();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Hikari 가 아니거나 아직 풀이 없으면 null (idle 검사를 하지 않는다)
+   */
+  private HikariPoolMXBean pool() {
+    try {
+      if (dataSource.isWrapperFor(HikariDataSource.class)) {
+        return dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+      }
+    } catch (SQLException e) {
+      log.debug("cannot unwrap HikariDataSource", e);
+    }
+    return null;
+  }
+
+  private boolean cacheable() {
+    return !TransactionSynchronizationManager.isActualTransactionActive()
+        || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+  }
+
+  /**
+   * 같은 페이지를 두 번 미리 조회하지 않도록 조회 중인 것을 표시한다.
+   */
+  private static final class Key {
+
+    private final String method;
+    private final MemberSearchCondition condition;
+    private final Pageable pageable;
+
+    private Key(String method, MemberSearchCondition condition, Pageable pageable) {
+      this.method = method;
+      // 요청 객체는 바인딩용이라 복사해둔다.
+      this.condition = new MemberSearchCondition();
+      this.condition.setUsername(condition.getUsername());
+      this.condition.setTeamName(condition.getTeamName());
+      this.condition.setAgeGoe(condition.getAgeGoe());
+      this.condition.setAgeLoe(condition.getAgeLoe());
+      this.pageable = pageable;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return method.equals(other.method) && condition.equals(other.condition)
+          && pageable.equals(other.pageable);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(method, condition, pageable);
+    }
+
+    @Override
+    public String toString() {
+      return method + " " + condition + " " + pageable;
+    }
+  }
+}
@@ -0,0 +1,140 @@
+package study.querydsl.repository;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+
+/**
+ * 요청한 컬럼만 조회하는 검색 (fields 파라미터)
+ * <p>
+ * select 절은 요청한 컬럼만, team 조인은 teamName 을 조회 / 검색 / 정렬할 때만 넣는다. 결과는 요청한 필드만 담은 Map 이라서
+ * JSON 에도 요청한 필드만 나온다.
+ */
+@Repository
+@Transactional(readOnly = true)
+public class MemberProjectionRepository {
+
+  private final JPAQueryFactory queryFactory;
+  private final MemberSortPolicy sortPolicy;
+  private final MemberSearchCache searchCache;
+  private final ResultMemoryGovernor governor;
+
+  public MemberProjectionRepository(EntityManager em, MemberSortPolicy sortPolicy,
+      MemberSearchCache searchCache, ResultMemoryGovernor governor) {
+    this.queryFactory = new JPAQueryFactory(em);
+    this.sortPolicy = sortPolicy;
+    this.searchCache = searchCache;
+    this.governor = governor;
+  }
+
+  public List<Map<String, Object>> search(MemberSearchCondition condition, String fields) {
+    Set<MemberField> selected = MemberField.parse(fields);
+    return searchCache.get(cacheMethod("search", selected), condition, Pageable.unpaged(),
+        () -> toMaps(selected, governor.fetch(select(selected, condition, Sort.unsorted())
+            .orderBy(member.id.asc()), ResultMemoryGovernor.DTO_ROW_BYTES)));
+  }
+
+  public Page<Map<String, Object>> searchPage(MemberSearchCondition condition, Pageable pageable,
+      String fields) {
+    Set<MemberField> selected = MemberField.parse(fields);
+    return searchCache.get(cacheMethod("searchPage", selected), condition, pageable,
+        () -> fetchPage(selected, condition, pageable));
+  }
+
+  private Page<Map<String, Object>> fetchPage(Set<MemberField> selected,
+      MemberSearchCondition condition, Pageable pageable) {
+    List<Map<String, Object>> content = toMaps(selected,
+        select(selected, condition, pageable.getSort())
+            .orderBy(sortPolicy.toOrderSpecifiers(pageable.getSort()))
+            .offset(pageable.getOffset())
+            .limit(pageable.getPageSize())
+            .fetch());
+    JPAQuery<Long> countQuery = where(queryFactory.select(member.count()).from(member),
+        hasText(condition.getTeamName()), condition);
+    return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchOne);
+  }
+
+  private JPAQuery<Tuple> select(Set<MemberField> selected, MemberSearchCondition condition,
+      Sort sort) {
+    Expression<?>[] paths = selected.stream()
+        .map(MemberField::getPath)
+        .toArray(Expression<?>[]::new);
+    boolean teamJoin = selected.stream().anyMatch(MemberField::needsTeamJoin)
+        || hasText(condition.getTeamName())
+        || sort.getOrderFor(MemberField.TEAM_NAME.getProperty()) != null;
+    return where(queryFactory.select(paths).from(member), teamJoin, condition);
+  }
+
+  private <T> JPAQuery<T> where(JPAQuery<T> query, boolean teamJoin,
+      MemberSearchCondition condition) {
+    if (teamJoin) {
+      query.leftJoin(member.team, team);
+    }
+    return query.where(
+        usernameEqual(condition.getUsername()),
+        teamNameEqual(condition.getTeamName()),
+        ageGoe(condition.getAgeGoe()),
+        ageLoe(condition.getAgeLoe()));
+  }
+
+  /**
+   * 행 수 제한으로 잘린 결과면 잘렸다는 표시도 유지한다.
+   */
+  private List<Map<String, Object>> toMaps(Set<MemberField> selected, List<Tuple> tuples) {
+    List<Map<String, Object>> result = tuples instanceof TruncatedResultList
+        ? new TruncatedResultList<>(List.of()) : new ArrayList<>(tuples.size());
+    for (Tuple tuple : tuples) {
+      Map<String, Object> row = new LinkedHashMap<>();
+      for (MemberField field : selected) {
+        row.put(field.getProperty(), tuple.get(field.getPath()));
+      }
+      result.add(row);
+    }
+    return result;
+  }
+
+  /**
+   * 컬럼 조합마다 캐시 엔트리를 따로 둔다.
+   */
+  private String cacheMethod(String method, Set<MemberField> selected) {
+    return selected.stream()
+        .map(MemberField::getProperty)
+        .collect(Collectors.joining(",", method + ":", ""));
+  }
+
+  private BooleanExpression usernameEqual(String username) {
+    return hasText(username) ? member.username.eq(username) : null;
+  }
+
+  private BooleanExpression teamNameEqual(String teamName) {
+    return hasText(teamName) ? team.name.eq(teamName) : null;
+  }
+
+  private BooleanExpression ageGoe(Integer ageGoe) {
+    return ageGoe != null ? member.age.goe(ageGoe) : null;
+  }
+
+  private BooleanExpression ageLoe(Integer ageLoe) {
+    return ageLoe != null ? member.age.loe(ageLoe) : null;
+  }
+}
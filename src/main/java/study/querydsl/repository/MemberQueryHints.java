@@ -0,0 +1,48 @@
+package study.querydsl.repository;
+
+import static org.springframework.util.StringUtils.hasText;
+
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.MemberSearch;
+
+/**
+ * 검색 조건 모양별로 member_search 쿼리에 붙일 힌트
+ * <p>
+ * 팀 이름 + 나이 범위는 (team_name, age) 인덱스 하나로 끝나는데, 팀별 건수가 치우치면 옵티마이저가 age 인덱스나
+ * 전체 스캔을 고르는 경우가 있어서 인덱스를 고정한다. username 조건이 있으면 그 인덱스가 더 좁으므로 두고 본다.
+ * max-statement-time 을 주면 모든 검색 쿼리를 서버에서 그 시간에 끊는다. (0 이면 제한 없음)
+ */
+@Component
+public class MemberQueryHints {
+
+  private final boolean enabled;
+  private final Duration maxStatementTime;
+
+  public MemberQueryHints(@Value("${member.query-hints.enabled:true}") boolean enabled,
+      @Value("${member.query-hints.max-statement-time:0s}") Duration maxStatementTime) {
+    this.enabled = enabled;
+    this.maxStatementTime = maxStatementTime;
+  }
+
+  /**
+   * 힌트를 붙이지 않는 정책 (스프링 빈이 아닌 MemberRepositoryImpl 용)
+   */
+  public static MemberQueryHints disabled() {
+    return new MemberQueryHints(false, Duration.ZERO);
+  }
+
+  public QueryHint forSearch(MemberSearchCondition condition) {
+    if (!enabled) {
+      return QueryHint.none();
+    }
+    QueryHint hint = QueryHint.none().maxStatementTime(maxStatementTime);
+    if (hasText(condition.getTeamName()) && !hasText(condition.getUsername())
+        && (condition.getAgeGoe() != null || condition.getAgeLoe() != null)) {
+      hint = hint.forceIndex(MemberSearch.TABLE, MemberSearch.IDX_TEAM_NAME_AGE);
+    }
+    return hint;
+  }
+}
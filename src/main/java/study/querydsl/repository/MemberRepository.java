@@ -1,11 +1,9 @@
 package study.querydsl.repository;
 
-import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
 import study.querydsl.entity.Member;
 
-public interface MemberRepository extends JpaRepository<Member, Long>, MemberRepositoryCustom {
-
-  List<Member> findByUsername(String username);
+public interface MemberRepository extends JpaRepository<Member, Long>, MemberRepositoryCustom,
+    MemberUsernameLookup {
 
 }
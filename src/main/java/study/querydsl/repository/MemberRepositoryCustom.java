@@ -3,6 +3,7 @@ package study.querydsl.repository;
 import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import study.querydsl.dto.MemberFacetPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 
@@ -14,4 +15,12 @@ public interface MemberRepositoryCustom {
 
   Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
 
+  /**
+   * 검색 결과 페이지와 같은 조건의 팀별 / 나이 구간별 건수
+   *
+   * @param ageBounds 나이 구간 경계 (비어있으면 기본 구간)
+   */
+  MemberFacetPage searchFacets(MemberSearchCondition condition, Pageable pageable,
+      List<Integer> ageBounds);
+
 }
@@ -1,64 +1,112 @@
 package study.querydsl.repository;
 
 import static org.springframework.util.StringUtils.hasText;
-import static study.querydsl.entity.QMember.member;
-import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.entity.QMemberSearch.memberSearch;
 
 import com.querydsl.core.QueryResults;
+import com.querydsl.core.Tuple;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.NumberTemplate;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import java.util.List;
 import javax.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberFacetPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
-
+import study.querydsl.jfr.QueryEvents;
+import study.querydsl.jfr.TimedFactoryExpression;
+
+/**
+ * DTO 조회만 하므로 읽기 전용 트랜잭션으로 실행한다. (flush / 스냅샷 없음)
+ * <p>
+ * 검색은 읽기 모델 (member_search) 을 조회한다. 팀 이름이 같은 행에 있어서 team 조인이 없고, 팀 이름 조건도 인덱스를 탄다.
+ * 조건 모양에 따라 MemberQueryHints 의 인덱스 힌트 / 실행 시간 제한을 붙인다.
+ * 캐시에 없는 같은 검색 / count 가 동시에 들어오면 MemberSearchCoalescer 로 쿼리 하나에 묶는다.
+ */
+@Transactional(readOnly = true)
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
   private final JPAQueryFactory queryFactory;
+  private final MemberSortPolicy sortPolicy;
+  private final MemberSearchCache searchCache;
+  private final ResultMemoryGovernor governor;
+  private final MemberUsernameFilter usernameFilter;
+  private final MemberQueryHints queryHints;
+  private final MemberSearchCoalescer coalescer;
 
   public MemberRepositoryImpl(EntityManager em) {
+    this(em, MemberSortPolicy.lenient(), MemberSearchCache.disabled(),
+        ResultMemoryGovernor.unlimited(), MemberUsernameFilter.disabled(),
+        MemberQueryHints.disabled(), MemberSearchCoalescer.disabled());
+  }
+
+  @Autowired
+  public MemberRepositoryImpl(EntityManager em, MemberSortPolicy sortPolicy,
+      MemberSearchCache searchCache, ResultMemoryGovernor governor,
+      MemberUsernameFilter usernameFilter, MemberQueryHints queryHints,
+      MemberSearchCoalescer coalescer) {
     this.queryFactory = new JPAQueryFactory(em);
+    this.sortPolicy = sortPolicy;
+    this.searchCache = searchCache;
+    this.governor = governor;
+    this.usernameFilter = usernameFilter;
+    this.queryHints = queryHints;
+    this.coalescer = coalescer;
   }
 
   @Override
   public List<MemberTeamDto> search(MemberSearchCondition condition) {
-    return queryFactory
-        .select(new QMemberTeamDto(
-            member.id,
-            member.username,
-            member.age,
-            team.id,
-            team.name))
-        .from(member)
-        .leftJoin(member.team, team)
-        .where(
-            usernameEqual(condition.getUsername()),
-            teamNameEqual(condition.getTeamName()),
-            ageGoe(condition.getAgeGoe()),
-            ageLoe(condition.getAgeLoe()))
-        .fetch();
+    if (usernameFilter.definitelyAbsentCondition(condition.getUsername())) {
+      return List.of();
+    }
+    return searchCache.get("search", condition, Pageable.unpaged(),
+        () -> coalescer.coalesce("search", condition, Pageable.unpaged(),
+            () -> fetchSearch(condition)));
+  }
+
+  private List<MemberTeamDto> fetchSearch(MemberSearchCondition condition) {
+    TimedFactoryExpression<MemberTeamDto> projection = TimedFactoryExpression.of(
+        new QMemberTeamDto(
+            memberSearch.id,
+            memberSearch.username,
+            memberSearch.age,
+            memberSearch.teamId,
+            memberSearch.teamName));
+    return QueryEvents.fetch("MemberRepository.search",
+        QueryEvents.shape(condition, Pageable.unpaged()), projection,
+        () -> governor.fetch(queryHints.forSearch(condition).applyTo(queryFactory
+            .select(projection)
+            .from(memberSearch)
+            .where(
+                usernameEqual(condition.getUsername()),
+                teamNameEqual(condition.getTeamName()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe()))
+            .orderBy(memberSearch.id.asc())), ResultMemoryGovernor.DTO_ROW_BYTES));
   }
 
   private BooleanExpression usernameEqual(String username) {
-    return hasText(username) ? member.username.eq(username) : null;
+    return hasText(username) ? memberSearch.username.eq(username) : null;
   }
 
   private BooleanExpression teamNameEqual(String teamName) {
-    return hasText(teamName) ? team.name.eq(teamName) : null;
+    return hasText(teamName) ? memberSearch.teamName.eq(teamName) : null;
   }
 
   private BooleanExpression ageGoe(Integer ageGoe) {
-    return ageGoe != null ? member.age.goe(ageGoe) : null;
+    return ageGoe != null ? memberSearch.age.goe(ageGoe) : null;
   }
 
   private BooleanExpression ageLoe(Integer ageLoe) {
-    return ageLoe != null ? member.age.loe(ageLoe) : null;
+    return ageLoe != null ? memberSearch.age.loe(ageLoe) : null;
   }
 
 
@@ -67,24 +115,33 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
    */
   @Override
   public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+    if (usernameFilter.definitelyAbsentCondition(condition.getUsername())) {
+      return Page.empty(pageable);
+    }
+    return searchCache.get("searchPageSimple", condition, pageable,
+        () -> coalescer.coalesce("searchPageSimple", condition, pageable,
+            () -> fetchPageSimple(condition, pageable)));
+  }
 
-    QueryResults<MemberTeamDto> results = queryFactory
+  private Page<MemberTeamDto> fetchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+    QueryResults<MemberTeamDto> results = queryHints.forSearch(condition).applyTo(queryFactory
         .select(new QMemberTeamDto(
-            member.id,
-            member.username,
-            member.age,
-            team.id,
-            team.name))
-        .from(member)
-        .leftJoin(member.team, team)
+            memberSearch.id,
+            memberSearch.username,
+            memberSearch.age,
+            memberSearch.teamId,
+            memberSearch.teamName))
+        .from(memberSearch)
         .where(usernameEqual(condition.getUsername()),
             teamNameEqual(condition.getTeamName()),
             ageGoe(condition.getAgeGoe()),
             ageLoe(condition.getAgeLoe()))
+        .orderBy(sortPolicy.toSearchOrderSpecifiers(pageable.getSort()))
         .offset(pageable.getOffset())
-        .limit(pageable.getPageSize())
+        .limit(pageable.getPageSize()))
         .fetchResults();
-    List<MemberTeamDto> content = results.getResults();
+    List<MemberTeamDto> content = governor.account(results.getResults(),
+        ResultMemoryGovernor.DTO_ROW_BYTES);
     long total = results.getTotal();
     return new PageImpl<>(content, pageable, total);
   }
@@ -92,43 +149,100 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
   @Override
   public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+    if (usernameFilter.definitelyAbsentCondition(condition.getUsername())) {
+      return Page.empty(pageable);
+    }
+    return searchCache.get("searchPageComplex", condition, pageable,
+        () -> coalescer.coalesce("searchPageComplex", condition, pageable,
+            () -> fetchPageComplex(condition, pageable)));
+  }
+
+  private Page<MemberTeamDto> fetchPageComplex(MemberSearchCondition condition,
+      Pageable pageable) {
     List<MemberTeamDto> content = getMemberTeamDtos(condition, pageable);
     JPAQuery<Long> countQuery = getLongJPAQuery(condition);
-    return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchOne);
+    // count 는 페이지와 상관없으므로 다른 페이지를 보는 요청과도 묶는다.
+    return PageableExecutionUtils.getPage(content, pageable,
+        () -> coalescer.coalesce("count", condition, Pageable.unpaged(), countQuery::fetchOne));
+  }
+
+  @Override
+  public MemberFacetPage searchFacets(MemberSearchCondition condition, Pageable pageable,
+      List<Integer> ageBounds) {
+    MemberAgeBuckets buckets = MemberAgeBuckets.of(ageBounds);
+    if (usernameFilter.definitelyAbsentCondition(condition.getUsername())) {
+      MemberFacetCounter empty = new MemberFacetCounter(buckets);
+      return new MemberFacetPage(Page.empty(pageable), empty.teams(), empty.ageBuckets());
+    }
+    String method = "searchFacets:" + buckets.getBounds();
+    return searchCache.get(method, condition, pageable,
+        () -> coalescer.coalesce(method, condition, pageable,
+            () -> fetchFacets(condition, pageable, buckets)));
+  }
+
+  /**
+   * 목록 쿼리 + group by (팀 이름, 나이 구간) 쿼리 한번. 전체 건수도 group by 결과의 합이라서 count 쿼리가 따로 없다.
+   */
+  private MemberFacetPage fetchFacets(MemberSearchCondition condition, Pageable pageable,
+      MemberAgeBuckets buckets) {
+    List<MemberTeamDto> content = getMemberTeamDtos(condition, pageable);
+
+    NumberTemplate<Integer> bucket = buckets.index(memberSearch.age);
+    List<Tuple> rows = queryHints.forSearch(condition).applyTo(queryFactory
+        .select(memberSearch.teamName, bucket, memberSearch.count())
+        .from(memberSearch)
+        .where(
+            usernameEqual(condition.getUsername()),
+            teamNameEqual(condition.getTeamName()),
+            ageGoe(condition.getAgeGoe()),
+            ageLoe(condition.getAgeLoe()))
+        .groupBy(memberSearch.teamName, bucket))
+        .fetch();
+    MemberFacetCounter counter = new MemberFacetCounter(buckets);
+    for (Tuple row : rows) {
+      // 구간 번호의 타입은 dialect 마다 다를 수 있어서 Number 로 읽는다.
+      counter.add(row.get(memberSearch.teamName), row.get(1, Number.class).intValue(),
+          row.get(2, Number.class).longValue());
+    }
+    return new MemberFacetPage(new PageImpl<>(content, pageable, counter.total()),
+        counter.teams(), counter.ageBuckets());
   }
 
   private JPAQuery<Long> getLongJPAQuery(MemberSearchCondition condition) {
     JPAQuery<Long> countQuery = queryFactory
-        .select(member.count())
-        .from(member)
-        .leftJoin(member.team, team)
+        .select(memberSearch.count())
+        .from(memberSearch)
         .where(
             usernameEqual(condition.getUsername()),
             teamNameEqual(condition.getTeamName()),
             ageGoe(condition.getAgeGoe()),
             ageLoe(condition.getAgeLoe())
         );
-    return countQuery;
+    return queryHints.forSearch(condition).applyTo(countQuery);
   }
 
   private List<MemberTeamDto> getMemberTeamDtos(MemberSearchCondition condition,
       Pageable pageable) {
-    return queryFactory
-        .select(new QMemberTeamDto(
-            member.id,
-            member.username,
-            member.age,
-            team.id,
-            team.name))
-        .from(member)
-        .leftJoin(member.team, team)
-        .where(
-            usernameEqual(condition.getUsername()),
-            teamNameEqual(condition.getTeamName()),
-            ageGoe(condition.getAgeGoe()),
-            ageLoe(condition.getAgeLoe()))
-        .offset(pageable.getOffset())
-        .limit(pageable.getPageSize())
-        .fetch();
+    TimedFactoryExpression<MemberTeamDto> projection = TimedFactoryExpression.of(
+        new QMemberTeamDto(
+            memberSearch.id,
+            memberSearch.username,
+            memberSearch.age,
+            memberSearch.teamId,
+            memberSearch.teamName));
+    return QueryEvents.fetch("MemberRepository.searchPage",
+        QueryEvents.shape(condition, pageable), projection,
+        () -> governor.account(queryHints.forSearch(condition).applyTo(queryFactory
+            .select(projection)
+            .from(memberSearch)
+            .where(
+                usernameEqual(condition.getUsername()),
+                teamNameEqual(condition.getTeamName()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe()))
+            .orderBy(sortPolicy.toSearchOrderSpecifiers(pageable.getSort()))
+            .offset(pageable.getOffset())
+            .limit(pageable.getPageSize()))
+            .fetch(), ResultMemoryGovernor.DTO_ROW_BYTES));
   }
 }
@@ -0,0 +1,344 @@
+package study.querydsl.repository;
+
+import static org.springframework.util.StringUtils.hasText;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.hibernate.event.spi.EventSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.event.ChangeType;
+import study.querydsl.event.MemberBulkChange;
+import study.querydsl.event.MemberChange;
+import study.querydsl.event.MemberChangeListener;
+import study.querydsl.event.MemberState;
+import study.querydsl.event.TeamChange;
+
+/**
+ * MemberRepositoryImpl 검색 결과 캐시 (Caffeine)
+ * <p>
+ * 각 엔트리는 검색 조건의 팀 / 회원명 / 나이 범위 (Tag) 를 달고 있고, Member / Team 변경이 생기면 Tag 가 겹치는 엔트리만 지운다.
+ * 팀 조건이 없는 엔트리는 모든 팀과 겹친다. 이 변경은 이 인스턴스의 것이고, 다른 인스턴스의 변경은 MemberSearchCacheFeed 가
+ * 변경 피드로 받아서 캐시를 모두 지운다.
+ * <p>
+ * 읽기/쓰기 트랜잭션 안에서는 아직 커밋 안 된 변경이 보여야 하므로 캐시를 쓰지 않는다.
+ */
+@Component
+public class MemberSearchCache implements MemberChangeListener {
+
+  private static final String ANY_TEAM = "*";
+
+  private final Cache<Key, Object> cache;
+  private final Map<String, Set<Key>> keysByTeam = new ConcurrentHashMap<>();
+  /**
+   * 조회 중에 무효화가 있었으면 조회 결과를 캐시에 넣지 않는다.
+   */
+  private final AtomicLong invalidations = new AtomicLong();
+
+  @Autowired
+  public MemberSearchCache(
+      @Value("${member.search-cache.maximum-size:10000}") long maximumSize,
+      @Value("${member.search-cache.expire-after-write:10m}") Duration expireAfterWrite) {
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(expireAfterWrite)
+        .executor(Runnable::run)
+        .removalListener((Key key, Object value, RemovalCause cause) -> unindex(key))
+        .build();
+  }
+
+  private MemberSearchCache() {
+    this.cache = null;
+  }
+
+  /**
+   * 캐시를 쓰지 않는 인스턴스 (스프링 빈이 아닌 MemberRepositoryImpl 용)
+   */
+  public static MemberSearchCache disabled() {
+    return new MemberSearchCache();
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T> T get(String method, MemberSearchCondition condition, Pageable pageable,
+      Supplier<T> loader) {
+    if (cache == null || !cacheable()) {
+      return loader.get();
+    }
+    Key key = new Key(method, Tag.of(condition), pageable);
+    Object cached = cache.getIfPresent(key);
+    if (cached != null) {
+      return (T) cached;
+    }
+    long version = invalidations.get();
+    T loaded = loader.get();
+    store(key, loaded, version);
+    return loaded;
+  }
+
+  /**
+   * 조회하지 않고 캐시에 있는 것만 꺼낸다. (MemberPagePrefetcher)
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T getIfPresent(String method, MemberSearchCondition condition, Pageable pageable) {
+    if (cache == null || !cacheable()) {
+      return null;
+    }
+    return (T) cache.getIfPresent(new Key(method, Tag.of(condition), pageable));
+  }
+
+  /**
+   * 다른 스레드에서 조회를 시작하기 전에 받아두고 put 에 넘긴다.
+   */
+  public long version() {
+    return invalidations.get();
+  }
+
+  /**
+   * 다른 스레드에서 조회한 결과를 넣는다. version 이후에 무효화가 있었으면 넣지 않는다.
+   *
+   * @return 넣었으면 true
+   */
+  public boolean put(String method, MemberSearchCondition condition, Pageable pageable,
+      Object value, long version) {
+    if (cache == null || !cacheable()) {
+      return false;
+    }
+    return store(new Key(method, Tag.of(condition), pageable), value, version);
+  }
+
+  private boolean store(Key key, Object value, long version) {
+    if (value == null || version != invalidations.get()) {
+      return false;
+    }
+    keysByTeam.computeIfAbsent(key.tag.team, team -> ConcurrentHashMap.newKeySet()).add(key);
+    cache.put(key, value);
+    return true;
+  }
+
+  @Override
+  public void memberChanged(MemberChange change, EventSource session) {
+    if (change.isBeforeUnknown()) {
+      invalidateLater(List.of(Tag.ANY));
+      return;
+    }
+    List<Tag> tags = new ArrayList<>(2);
+    if (change.getBefore() != null) {
+      tags.add(Tag.of(change.getBefore()));
+    }
+    if (change.getAfter() != null) {
+      tags.add(Tag.of(change.getAfter()));
+    }
+    invalidateLater(tags);
+  }
+
+  /**
+   * 팀 이름이 바뀌면 그 팀 (이전 이름, 새 이름) 조건 엔트리와, 결과에 팀 이름이 섞여있을 수 있는 팀 조건 없는 엔트리를 지운다.
+   */
+  @Override
+  public void teamChanged(TeamChange change, EventSource session) {
+    if (change.getType() == ChangeType.INSERT
+        || change.getType() == ChangeType.UPDATE && !change.isRenamed()) {
+      return;
+    }
+    List<Tag> tags = new ArrayList<>(2);
+    tags.add(Tag.team(change.getBeforeName()));
+    tags.add(Tag.team(change.getAfterName()));
+    invalidateLater(tags);
+  }
+
+  /**
+   * 벌크 update 는 변경 전 조건 범위와, 나이가 옮겨간 범위를 모두 지운다.
+   */
+  @Override
+  public void membersBulkChanged(MemberBulkChange change) {
+    Tag before = Tag.of(change.getCondition());
+    invalidateLater(List.of(before, before.shiftAge(change.getAgeDelta())));
+  }
+
+  public void invalidateAll() {
+    if (cache != null) {
+      invalidations.incrementAndGet();
+      cache.invalidateAll();
+    }
+  }
+
+  /**
+   * 지금 지우고, 트랜잭션이 있으면 커밋 후에 한번 더 지운다. (그 사이 다른 요청이 이전 데이터를 캐시에 넣을 수 있다)
+   */
+  private void invalidateLater(List<Tag> tags) {
+    if (cache == null) {
+      return;
+    }
+    invalidate(tags);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          invalidate(tags);
+        }
+      });
+    }
+  }
+
+  private void invalidate(List<Tag> tags) {
+    invalidations.incrementAndGet();
+    for (Tag tag : tags) {
+      for (Key key : candidates(tag)) {
+        if (key.tag.intersects(tag)) {
+          cache.invalidate(key);
+        }
+      }
+    }
+  }
+
+  private List<Key> candidates(Tag tag) {
+    if (ANY_TEAM.equals(tag.team)) {
+      List<Key> all = new ArrayList<>();
+      keysByTeam.values().forEach(all::addAll);
+      return all;
+    }
+    List<Key> keys = new ArrayList<>(keysByTeam.getOrDefault(tag.team, Set.of()));
+    keys.addAll(keysByTeam.getOrDefault(ANY_TEAM, Set.of()));
+    return keys;
+  }
+
+  private void unindex(Key key) {
+    if (key == null) {
+      return;
+    }
+    keysByTeam.computeIfPresent(key.tag.team, (team, keys) -> {
+      // 지워지는 사이에 같은 키로 다시 들어왔으면 색인을 유지한다.
+      if (!cache.asMap().containsKey(key)) {
+        keys.remove(key);
+      }
+      return keys.isEmpty() ? null : keys;
+    });
+  }
+
+  private boolean cacheable() {
+    return !TransactionSynchronizationManager.isActualTransactionActive()
+        || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+  }
+
+  private static final class Key {
+
+    private final String method;
+    private final Tag tag;
+    private final Pageable pageable;
+
+    private Key(String method, Tag tag, Pageable pageable) {
+      this.method = method;
+      this.tag = tag;
+      this.pageable = pageable;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return method.equals(other.method) && tag.equals(other.tag)
+          && Objects.equals(pageable, other.pageable);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(method, tag, pageable);
+    }
+  }
+
+  /**
+   * 검색 조건 또는 변경된 회원이 차지하는 범위. team / username 이 null 이면 전체, 나이는 [ageGoe, ageLoe].
+   * <p>
+   * 팀이 없는 회원의 team 은 "" 이다. (팀 조건이 있는 엔트리와는 겹치지 않는다)
+   * 팀 / 회원명은 DB 비교 규칙 (_ci collation) 처럼 대소문자, 뒤 공백, 악센트를 무시하고 비교한다.
+   */
+  private static final class Tag {
+
+    private static final Tag ANY = new Tag(ANY_TEAM, null, null, null);
+
+    private final String team;
+    private final String username;
+    private final Integer ageGoe;
+    private final Integer ageLoe;
+
+    private Tag(String team, String username, Integer ageGoe, Integer ageLoe) {
+      this.team = ANY_TEAM.equals(team) ? team : CollationKey.of(team);
+      this.username = username == null ? null : CollationKey.of(username);
+      this.ageGoe = ageGoe;
+      this.ageLoe = ageLoe;
+    }
+
+    static Tag of(MemberSearchCondition condition) {
+      return new Tag(
+          hasText(condition.getTeamName()) ? condition.getTeamName() : ANY_TEAM,
+          hasText(condition.getUsername()) ? condition.getUsername() : null,
+          condition.getAgeGoe(),
+          condition.getAgeLoe());
+    }
+
+    static Tag of(MemberState state) {
+      return new Tag(state.getTeamName() == null ? "" : state.getTeamName(), state.getUsername(),
+          state.getAge(), state.getAge());
+    }
+
+    static Tag team(String teamName) {
+      return new Tag(teamName == null ? ANY_TEAM : teamName, null, null, null);
+    }
+
+    Tag shiftAge(int delta) {
+      return new Tag(team, username,
+          ageGoe == null ? null : ageGoe + delta,
+          ageLoe == null ? null : ageLoe + delta);
+    }
+
+    boolean intersects(Tag other) {
+      boolean teamOverlaps = ANY_TEAM.equals(team) || ANY_TEAM.equals(other.team)
+          || team.equals(other.team);
+      boolean usernameOverlaps = username == null || other.username == null
+          || username.equals(other.username);
+      long low = Math.max(ageGoe == null ? Long.MIN_VALUE : ageGoe,
+          other.ageGoe == null ? Long.MIN_VALUE : other.ageGoe);
+      long high = Math.min(ageLoe == null ? Long.MAX_VALUE : ageLoe,
+          other.ageLoe == null ? Long.MAX_VALUE : other.ageLoe);
+      return teamOverlaps && usernameOverlaps && low <= high;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Tag)) {
+        return false;
+      }
+      Tag other = (Tag) o;
+      return team.equals(other.team) && Objects.equals(username, other.username)
+          && Objects.equals(ageGoe, other.ageGoe) && Objects.equals(ageLoe, other.ageLoe);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(team, username, ageGoe, ageLoe);
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package study.querydsl.repository;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberChangeFeed;
+
+/**
+ * 다른 인스턴스의 Member / Team 변경으로 검색 결과 캐시 (MemberSearchCache, 미리 조회 캐시) 를 지운다.
+ * <p>
+ * 캐시의 Tag 무효화는 이 인스턴스의 Hibernate 이벤트로만 일어난다. 다른 인스턴스의 커밋은 변경 피드 (member_outbox) 를 feed-interval
+ * 마다 읽어서, 새 행이 있으면 캐시를 모두 지운다. outbox payload 에는 변경 전 상태 / 팀 이름이 없어서 겹치는 Tag 를 계산할 수 없다.
+ * 그래서 다른 인스턴스의 커밋은 피드 지연 (outbox settle + feed-interval) 동안 이전 결과로 보일 수 있다. (MemberUsernameFilter 와 같다)
+ * <p>
+ * 이 인스턴스의 변경도 피드에 있으므로 쓰기가 많으면 캐시가 자주 비워진다. 한 인스턴스로만 돌리면 enabled=false 로 끈다.
+ */
+@Slf4j
+@Component
+public class MemberSearchCacheFeed {
+
+  private static final int FEED_PAGE_SIZE = 1000;
+
+  private final MemberOutboxRepository outboxRepository;
+  private final MemberSearchCache searchCache;
+  private final MemberPagePrefetcher pagePrefetcher;
+  private final boolean enabled;
+  private final Duration feedInterval;
+  private final ScheduledExecutorService scheduler;
+
+  /**
+   * 피드를 어디까지 읽었는지 (outbox id)
+   */
+  private long feedCursor;
+
+  public MemberSearchCacheFeed(MemberOutboxRepository outboxRepository,
+      MemberSearchCache searchCache, MemberPagePrefetcher pagePrefetcher,
+      @Value("${member.search-cache.feed.enabled:true}") boolean enabled,
+      @Value("${member.search-cache.feed.interval:1s}") Duration feedInterval) {
+    this.outboxRepository = outboxRepository;
+    this.searchCache = searchCache;
+    this.pagePrefetcher = pagePrefetcher;
+    this.enabled = enabled;
+    this.feedInterval = feedInterval;
+    this.scheduler = enabled ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "member-search-cache-feed");
+      thread.setDaemon(true);
+      return thread;
+    }) : null;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    if (!enabled) {
+      return;
+    }
+    // 기동 전의 변경은 비어있는 캐시와 상관없다.
+    synchronized (this) {
+      feedCursor = outboxRepository.lastSettledId();
+    }
+    long interval = feedInterval.toMillis();
+    scheduler.scheduleWithFixedDelay(() -> {
+      try {
+        feed();
+      } catch (RuntimeException e) {
+        // 읽지 못한 변경은 다음 번에 읽는다. 그동안은 TTL 까지 이전 결과일 수 있다.
+        log.warn("search cache feed failed. retry in {}", feedInterval, e);
+      }
+    }, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+
+  /**
+   * 피드에 새 변경이 있으면 캐시를 지운다.
+   *
+   * @return 읽은 변경 수
+   */
+  public synchronized int feed() {
+    int changes = 0;
+    MemberChangeFeed page;
+    do {
+      page = outboxRepository.findSince(feedCursor, FEED_PAGE_SIZE);
+      changes += page.getChanges().size();
+      feedCursor = page.getNext();
+    } while (page.getChanges().size() == FEED_PAGE_SIZE);
+    if (changes > 0) {
+      searchCache.invalidateAll();
+      pagePrefetcher.invalidateAll();
+    }
+    return changes;
+  }
+}
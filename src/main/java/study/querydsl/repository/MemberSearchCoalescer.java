@@ -0,0 +1,268 @@
+package study.querydsl.repository;
+
+import static org.springframework.util.StringUtils.hasText;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.SQLTimeoutException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.hibernate.event.spi.EventSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.deadline.DeadlineExceededException;
+import study.querydsl.deadline.RequestDeadline;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.event.MemberBulkChange;
+import study.querydsl.event.MemberChange;
+import study.querydsl.event.MemberChangeListener;
+import study.querydsl.event.TeamChange;
+
+/**
+ * 같은 검색 (메서드 + 조건 + 페이지) 이 동시에 여러 번 들어오면 먼저 온 요청만 쿼리를 실행하고 나머지는 그 결과를 기다린다.
+ * <p>
+ * 실행 중인 쿼리에만 붙으므로 캐시와 달리 오래된 결과를 돌려주는 구간이 없다. (끝난 쿼리는 바로 목록에서 빠진다)
+ * 결과 객체는 기다린 요청들이 같이 쓴다. 먼저 온 요청이 실패하면 기다린 요청도 같은 예외를 받는다.
+ * 단 먼저 온 요청의 마감 시각 때문에 실패했으면 (DeadlineExceededException, query timeout) 기다린 요청은 그 예외를 받지 않고
+ * 자기가 다시 실행한다. 기다리는 동안에도 자기 RequestDeadline 을 지킨다.
+ * <p>
+ * 이 인스턴스에서 Member / Team 변경이 커밋되면 그 전에 시작한 쿼리에는 붙지 않는다. (방금 쓴 요청이 쓰기 전 결과를 받지 않는다)
+ * 다른 인스턴스의 커밋은 알 수 없으므로, 그 커밋보다 먼저 시작한 쿼리 결과를 받을 수 있다. (묶지 않은 조회가 커밋과 겹친 경우와 같다)
+ * <p>
+ * 읽기/쓰기 트랜잭션 안에서는 아직 커밋 안 된 변경이 보여야 하므로 묶지 않는다. 읽기 전용 트랜잭션 안에서 기다리는 요청은 커넥션을 쥐지 않는다.
+ * (LazyConnectionDataSourcePostProcessor - 첫 쿼리 때 빌린다)
+ */
+@Component
+public class MemberSearchCoalescer implements MemberChangeListener {
+
+  /**
+   * 먼저 온 요청만의 사정으로 실패했다. 기다린 요청은 다시 실행한다.
+   */
+  private static final Object RETRY = new Object();
+
+  private final Map<Key, Flight> inFlight;
+  /**
+   * 이 인스턴스에서 Member / Team 변경이 커밋된 횟수
+   */
+  private final AtomicLong commits;
+  private final Counter leaders;
+  private final Counter followers;
+
+  @Autowired
+  public MemberSearchCoalescer(MeterRegistry meterRegistry) {
+    this.inFlight = new ConcurrentHashMap<>();
+    this.commits = new AtomicLong();
+    this.leaders = meterRegistry.counter("member.search.coalesce", "role", "leader");
+    this.followers = meterRegistry.counter("member.search.coalesce", "role", "follower");
+  }
+
+  private MemberSearchCoalescer() {
+    this.inFlight = null;
+    this.commits = null;
+    this.leaders = null;
+    this.followers = null;
+  }
+
+  /**
+   * 묶지 않는 인스턴스 (스프링 빈이 아닌 MemberRepositoryImpl 용)
+   */
+  public static MemberSearchCoalescer disabled() {
+    return new MemberSearchCoalescer();
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T> T coalesce(String method, MemberSearchCondition condition, Pageable pageable,
+      Supplier<T> loader) {
+    if (inFlight == null || !coalescable()) {
+      return loader.get();
+    }
+    Key key = new Key(method, condition, pageable);
+    while (true) {
+      Flight flight = new Flight(commits.get());
+      Flight running = inFlight.putIfAbsent(key, flight);
+      if (running == null) {
+        return lead(key, flight, loader);
+      }
+      if (running.commits != flight.commits) {
+        // 마지막 커밋 전에 시작한 쿼리다. 새로 실행하고 뒤에 오는 요청은 이쪽에 붙인다.
+        if (inFlight.replace(key, running, flight)) {
+          return lead(key, flight, loader);
+        }
+        continue;
+      }
+      followers.increment();
+      Object result = await(running.result);
+      if (result != RETRY) {
+        return (T) result;
+      }
+    }
+  }
+
+  private <T> T lead(Key key, Flight flight, Supplier<T> loader) {
+    leaders.increment();
+    try {
+      T loaded = loader.get();
+      // 완료 전에 빼야 끝난 결과에 새 요청이 붙지 않는다.
+      inFlight.remove(key, flight);
+      flight.result.complete(loaded);
+      return loaded;
+    } catch (RuntimeException | Error e) {
+      inFlight.remove(key, flight);
+      flight.result.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  private static Object await(CompletableFuture<Object> running) {
+    long remaining = RequestDeadline.remainingMillis();
+    try {
+      if (remaining == Long.MAX_VALUE) {
+        return running.join();
+      }
+      return running.get(Math.max(remaining, 0), TimeUnit.MILLISECONDS);
+    } catch (CompletionException | ExecutionException e) {
+      if (callerSpecific(e.getCause())) {
+        return RETRY;
+      }
+      throw rethrow(e.getCause());
+    } catch (TimeoutException e) {
+      throw new DeadlineExceededException("request deadline exceeded while waiting for query");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DeadlineExceededException("interrupted while waiting for query");
+    }
+  }
+
+  private static RuntimeException rethrow(Throwable cause) {
+    if (cause instanceof RuntimeException) {
+      return (RuntimeException) cause;
+    }
+    if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    return new IllegalStateException(cause);
+  }
+
+  /**
+   * 먼저 온 요청의 마감 시각 (DeadlineDataSource 가 건 query timeout 포함) 때문에 난 실패인지
+   */
+  private static boolean callerSpecific(Throwable failure) {
+    for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+      if (cause instanceof DeadlineExceededException || cause instanceof SQLTimeoutException
+          || cause instanceof QueryTimeoutException
+          || cause instanceof javax.persistence.QueryTimeoutException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void memberChanged(MemberChange change, EventSource session) {
+    countCommit();
+  }
+
+  @Override
+  public void teamChanged(TeamChange change, EventSource session) {
+    countCommit();
+  }
+
+  @Override
+  public void membersBulkChanged(MemberBulkChange change) {
+    countCommit();
+  }
+
+  /**
+   * 트랜잭션이 있으면 커밋 후에 (트랜잭션마다 한번), 없으면 바로 센다.
+   */
+  private void countCommit() {
+    if (commits == null) {
+      return;
+    }
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      commits.incrementAndGet();
+      return;
+    }
+    if (TransactionSynchronizationManager.hasResource(this)) {
+      return;
+    }
+    TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCompletion(int status) {
+        TransactionSynchronizationManager.unbindResourceIfPossible(MemberSearchCoalescer.this);
+        if (status == STATUS_COMMITTED) {
+          commits.incrementAndGet();
+        }
+      }
+    });
+  }
+
+  private boolean coalescable() {
+    return !TransactionSynchronizationManager.isActualTransactionActive()
+        || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+  }
+
+  private static final class Flight {
+
+    private final long commits;
+    private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+    private Flight(long commits) {
+      this.commits = commits;
+    }
+  }
+
+  /**
+   * 빈 문자열 조건은 조건 없음과 같은 쿼리다.
+   */
+  private static final class Key {
+
+    private final String method;
+    private final String username;
+    private final String teamName;
+    private final Integer ageGoe;
+    private final Integer ageLoe;
+    private final Pageable pageable;
+
+    private Key(String method, MemberSearchCondition condition, Pageable pageable) {
+      this.method = method;
+      this.username = hasText(condition.getUsername()) ? condition.getUsername() : null;
+      this.teamName = hasText(condition.getTeamName()) ? condition.getTeamName() : null;
+      this.ageGoe = condition.getAgeGoe();
+      this.ageLoe = condition.getAgeLoe();
+      this.pageable = pageable;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return method.equals(other.method) && Objects.equals(username, other.username)
+          && Objects.equals(teamName, other.teamName) && Objects.equals(ageGoe, other.ageGoe)
+          && Objects.equals(ageLoe, other.ageLoe) && pageable.equals(other.pageable);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(method, username, teamName, ageGoe, ageLoe, pageable);
+    }
+  }
+}
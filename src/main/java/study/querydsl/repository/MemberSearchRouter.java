@@ -0,0 +1,59 @@
+package study.querydsl.repository;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 검색 구현 선택. 요청에 engine 이 없으면 member.search.engine 설정값을 쓴다.
+ * <ul>
+ *   <li>jpa : MemberRepository (Querydsl JPA)</li>
+ *   <li>sql : MemberSqlRepository (querydsl-sql)</li>
+ *   <li>memory : MemberMemorySearch (메모리 색인, 로딩 전에는 jpa)</li>
+ *   <li>shard : ShardedMemberRepository (member.shard.urls 가 있을 때만)</li>
+ * </ul>
+ */
+@Component
+public class MemberSearchRouter {
+
+  public static final String JPA = "jpa";
+  public static final String SQL = "sql";
+  public static final String MEMORY = "memory";
+  public static final String SHARD = "shard";
+
+  private final Map<String, MemberRepositoryCustom> engines = new LinkedHashMap<>();
+  private final String defaultEngine;
+
+  public MemberSearchRouter(MemberRepository memberRepository,
+      MemberSqlRepository memberSqlRepository, MemberMemorySearch memberMemorySearch,
+      ObjectProvider<ShardedMemberRepository> shardedMemberRepository,
+      @Value("${member.search.engine:jpa}") String defaultEngine) {
+    engines.put(JPA, memberRepository);
+    engines.put(SQL, memberSqlRepository);
+    engines.put(MEMORY, memberMemorySearch);
+    shardedMemberRepository.ifAvailable(repository -> engines.put(SHARD, repository));
+    this.defaultEngine = defaultEngine;
+    engine(defaultEngine);
+  }
+
+  public MemberRepositoryCustom engine(String engine) {
+    return engines.get(name(engine));
+  }
+
+  /**
+   * 요청의 engine 을 실제로 쓸 구현 이름으로 (없으면 설정값)
+   */
+  public String name(String engine) {
+    String name = engine == null || engine.isBlank() ? defaultEngine : engine;
+    if (!engines.containsKey(name)) {
+      throw new UnsupportedSearchEngineException("unknown search engine : " + name);
+    }
+    return name;
+  }
+
+  public boolean isJpa(String engine) {
+    return engine(engine) == engines.get(JPA);
+  }
+}
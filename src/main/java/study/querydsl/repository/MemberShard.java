@@ -0,0 +1,85 @@
+package study.querydsl.repository;
+
+import java.util.List;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberFacetPage;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+/**
+ * 샤드 하나 - 자기 DataSource 의 member / team 테이블을 querydsl-sql 로 검색하고 저장한다.
+ * <p>
+ * 스프링 트랜잭션 (JpaTransactionManager) 은 기본 DataSource 것이라서 샤드마다 DataSourceTransactionManager 로 읽기 전용
+ * 트랜잭션을 연다. (MemberSqlRepository 는 트랜잭션 커넥션만 쓴다)
+ */
+public class MemberShard implements MemberRepositoryCustom {
+
+  private static final String INSERT_TEAM_SQL = "insert into team (team_id, name) values (?, ?)";
+  private static final String INSERT_MEMBER_SQL =
+      "insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)";
+
+  private final int index;
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate readOnly;
+  private final MemberSqlRepository repository;
+
+  public MemberShard(int index, DataSource dataSource, MemberSortPolicy sortPolicy,
+      ResultMemoryGovernor governor) {
+    this.index = index;
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.readOnly = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    this.readOnly.setReadOnly(true);
+    this.repository = new MemberSqlRepository(dataSource, sortPolicy, governor);
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  @Override
+  public List<MemberTeamDto> search(MemberSearchCondition condition) {
+    return read(() -> repository.search(condition));
+  }
+
+  @Override
+  public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+    return read(() -> repository.searchPageSimple(condition, pageable));
+  }
+
+  @Override
+  public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+    return read(() -> repository.searchPageComplex(condition, pageable));
+  }
+
+  @Override
+  public MemberFacetPage searchFacets(MemberSearchCondition condition, Pageable pageable,
+      List<Integer> ageBounds) {
+    return read(() -> repository.searchFacets(condition, pageable, ageBounds));
+  }
+
+  /**
+   * 기동 시 TeamShardDirectory 에 등록한다.
+   */
+  void registerTeams(TeamShardDirectory directory) {
+    jdbcTemplate.query("select team_id, name from team",
+        rs -> directory.register(index, rs.getLong(1), rs.getString(2)));
+  }
+
+  void insertTeam(long teamId, String name) {
+    jdbcTemplate.update(INSERT_TEAM_SQL, teamId, name);
+  }
+
+  void insertMember(long memberId, String username, int age, Long teamId) {
+    jdbcTemplate.update(INSERT_MEMBER_SQL, memberId, username, age, teamId);
+  }
+
+  private <T> T read(Supplier<T> query) {
+    return readOnly.execute(status -> query.get());
+  }
+}
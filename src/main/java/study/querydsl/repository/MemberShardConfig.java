@@ -0,0 +1,112 @@
+package study.querydsl.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+import javax.persistence.EntityManager;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.deadline.DeadlineDataSource;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+/**
+ * member.shard.urls (쉼표로 구분) 가 있으면 샤드마다 DataSource 를 만들고 샤드 검색 / 저장 빈을 등록한다.
+ * <p>
+ * 샤드의 member / team 테이블은 미리 만들어져 있어야 한다. 기동할 때 각 샤드의 team 을 읽어 TeamShardDirectory 에 등록한다.
+ * 검색은 engine=shard (MemberSearchRouter), 저장은 ShardedMemberWriter 로 한다.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "member.shard", name = "urls")
+public class MemberShardConfig implements DisposableBean {
+
+  private final List<HikariDataSource> dataSources = new ArrayList<>();
+  private final List<MemberShard> shards = new ArrayList<>();
+
+  public MemberShardConfig(@Value("${member.shard.urls}") List<String> urls,
+      @Value("${member.shard.username:}") String username,
+      @Value("${member.shard.password:}") String password,
+      @Value("${member.shard.pool-size:10}") int poolSize,
+      MemberSortPolicy sortPolicy, ResultMemoryGovernor governor) {
+    for (int i = 0; i < urls.size(); i++) {
+      HikariDataSource dataSource = DataSourceBuilder.create()
+          .type(HikariDataSource.class)
+          .url(urls.get(i).strip())
+          .username(username)
+          .password(password)
+          .build();
+      dataSource.setPoolName("member-shard-" + i);
+      dataSource.setMaximumPoolSize(poolSize);
+      dataSources.add(dataSource);
+      shards.add(new MemberShard(i, new DeadlineDataSource(dataSource), sortPolicy,
+          governor));
+    }
+  }
+
+  @Bean
+  public TeamShardDirectory teamShardDirectory() {
+    TeamShardDirectory directory = new TeamShardDirectory(shards.size());
+    for (MemberShard shard : shards) {
+      shard.registerTeams(directory);
+    }
+    return directory;
+  }
+
+  @Bean
+  public ThreadPoolTaskExecutor memberShardExecutor(
+      @Value("${member.shard.threads:16}") int threads) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(threads);
+    executor.setMaxPoolSize(threads);
+    executor.setThreadNamePrefix("member-shard-");
+    return executor;
+  }
+
+  @Bean
+  public ShardedMemberRepository shardedMemberRepository(TeamShardDirectory teamShardDirectory,
+      @Qualifier("memberShardExecutor") ThreadPoolTaskExecutor memberShardExecutor) {
+    return new ShardedMemberRepository(List.copyOf(shards), teamShardDirectory,
+        memberShardExecutor);
+  }
+
+  /**
+   * id 는 기본 DB 의 Team / Member id generator 에서 받는다. (샤드끼리, JPA 로 넣은 것과도 겹치지 않는다)
+   */
+  @Bean
+  public ShardedMemberWriter shardedMemberWriter(TeamShardDirectory teamShardDirectory,
+      EntityManager em, PlatformTransactionManager transactionManager) {
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    return new ShardedMemberWriter(shards, teamShardDirectory,
+        ids(em, transactionTemplate, Team.class), ids(em, transactionTemplate, Member.class));
+  }
+
+  @Override
+  public void destroy() {
+    dataSources.forEach(HikariDataSource::close);
+  }
+
+  private static LongSupplier ids(EntityManager em, TransactionTemplate transactionTemplate,
+      Class<?> entityClass) {
+    return () -> {
+      Long id = transactionTemplate.execute(status -> {
+        EventSource session = em.unwrap(EventSource.class);
+        IdentifierGenerator generator = session.getFactory().getMetamodel()
+            .entityPersister(entityClass)
+            .getIdentifierGenerator();
+        return (Long) generator.generate(session, null);
+      });
+      return id;
+    };
+  }
+}
@@ -0,0 +1,89 @@
+package study.querydsl.repository;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QMemberSearch.memberSearch;
+import static study.querydsl.entity.QTeam.team;
+
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.function.Function;
+import study.querydsl.dto.MemberTeamDto;
+
+/**
+ * 정렬 가능한 속성 (화이트리스트). 속성 이름은 MemberTeamDto 필드 이름과 같다.
+ * <p>
+ * indexed 는 member 테이블에서 인덱스로 정렬할 수 있는지 여부 - 아니면 큰 테이블에서 filesort 가 발생한다.
+ * searchPath 는 읽기 모델 (member_search) 의 컬럼, searchIndexed 는 그 테이블에서의 여부다. team_name 인덱스는 (team_name, age)
+ * 라서 정렬 (team_name, member_search_id) 에는 쓸 수 없다.
+ */
+enum MemberSortKey {
+
+  MEMBER_ID("memberId", member.id, memberSearch.id, true, true,
+      Comparator.comparing(MemberTeamDto::getMemberId)),
+  USERNAME("username", member.username, memberSearch.username, true, true,
+      comparingNullable(MemberTeamDto::getUsername, CollationKey.ORDER)),
+  AGE("age", member.age, memberSearch.age, true, true,
+      Comparator.comparingInt(MemberTeamDto::getAge)),
+  TEAM_ID("teamId", member.team.id, memberSearch.teamId, true, true,
+      comparingNullable(MemberTeamDto::getTeamId, Comparator.naturalOrder())),
+  TEAM_NAME("teamName", team.name, memberSearch.teamName, false, false,
+      comparingNullable(MemberTeamDto::getTeamName, CollationKey.ORDER));
+
+  private final String property;
+  private final ComparableExpressionBase<?> path;
+  private final ComparableExpressionBase<?> searchPath;
+  private final boolean indexed;
+  private final boolean searchIndexed;
+  private final Comparator<MemberTeamDto> comparator;
+
+  MemberSortKey(String property, ComparableExpressionBase<?> path,
+      ComparableExpressionBase<?> searchPath, boolean indexed, boolean searchIndexed,
+      Comparator<MemberTeamDto> comparator) {
+    this.property = property;
+    this.path = path;
+    this.searchPath = searchPath;
+    this.indexed = indexed;
+    this.searchIndexed = searchIndexed;
+    this.comparator = comparator;
+  }
+
+  static Optional<MemberSortKey> of(String property) {
+    return Arrays.stream(values())
+        .filter(key -> key.property.equals(property))
+        .findFirst();
+  }
+
+  String getProperty() {
+    return property;
+  }
+
+  ComparableExpressionBase<?> getPath() {
+    return path;
+  }
+
+  ComparableExpressionBase<?> getSearchPath() {
+    return searchPath;
+  }
+
+  boolean isIndexed() {
+    return indexed;
+  }
+
+  boolean isSearchIndexed() {
+    return searchIndexed;
+  }
+
+  /**
+   * DB 와 같은 순서 (오름차순이면 null 이 먼저). 문자열은 _ci collation 처럼 비교한다. (CollationKey)
+   */
+  Comparator<MemberTeamDto> getComparator() {
+    return comparator;
+  }
+
+  private static <T> Comparator<MemberTeamDto> comparingNullable(
+      Function<MemberTeamDto, T> extractor, Comparator<? super T> order) {
+    return Comparator.comparing(extractor, Comparator.nullsFirst(order));
+  }
+}
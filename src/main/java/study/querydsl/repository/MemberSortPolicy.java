@@ -0,0 +1,172 @@
+package study.querydsl.repository;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QMemberSearch.memberSearch;
+
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.MemberSearch;
+
+/**
+ * Pageable 의 Sort 를 Querydsl OrderSpecifier 로 바꾼다.
+ * <p>
+ * MemberSortKey 에 없는 속성은 거절하고, 페이징이 흔들리지 않도록 마지막에 member.id 를 붙인다.
+ * rejectUnindexed 이면 조회하는 테이블 (member / member_search) 의 추정 건수가 threshold 를 넘을 때 그 테이블에서 인덱스 없는 정렬을
+ * 거절한다.
+ */
+@Component
+public class MemberSortPolicy {
+
+  private static final long ROW_ESTIMATE_TTL = TimeUnit.MINUTES.toNanos(1);
+  private static final String MEMBER_TABLE = "member";
+  private static final String SEARCH_TABLE = MemberSearch.TABLE;
+
+  private final EntityManager em;
+  private final boolean rejectUnindexed;
+  private final long largeTableThreshold;
+
+  private final Map<String, RowEstimate> estimates = new ConcurrentHashMap<>();
+
+  public MemberSortPolicy(EntityManager em,
+      @Value("${member.sort.reject-unindexed:false}") boolean rejectUnindexed,
+      @Value("${member.sort.large-table-threshold:100000}") long largeTableThreshold) {
+    this.em = em;
+    this.rejectUnindexed = rejectUnindexed;
+    this.largeTableThreshold = largeTableThreshold;
+  }
+
+  /**
+   * 화이트리스트만 검사하는 정책 (추정 건수 조회 없음)
+   */
+  public static MemberSortPolicy lenient() {
+    return new MemberSortPolicy(null, false, Long.MAX_VALUE);
+  }
+
+  public OrderSpecifier<?>[] toOrderSpecifiers(Sort sort) {
+    List<OrderSpecifier<?>> orders = new ArrayList<>();
+    boolean hasMemberId = false;
+    for (Sort.Order order : sort) {
+      MemberSortKey key = resolve(order);
+      checkIndexed(key, key.isIndexed(), MEMBER_TABLE);
+      orders.add(order.isAscending() ? key.getPath().asc() : key.getPath().desc());
+      hasMemberId |= key == MemberSortKey.MEMBER_ID;
+    }
+    if (!hasMemberId) {
+      orders.add(member.id.asc());
+    }
+    return orders.toArray(new OrderSpecifier<?>[0]);
+  }
+
+  /**
+   * 읽기 모델 (member_search) 용. 인덱스 검사도 member_search 기준이다.
+   */
+  public OrderSpecifier<?>[] toSearchOrderSpecifiers(Sort sort) {
+    List<OrderSpecifier<?>> orders = new ArrayList<>();
+    boolean hasMemberId = false;
+    for (Sort.Order order : sort) {
+      MemberSortKey key = resolve(order);
+      checkIndexed(key, key.isSearchIndexed(), SEARCH_TABLE);
+      ComparableExpressionBase<?> path = key.getSearchPath();
+      orders.add(order.isAscending() ? path.asc() : path.desc());
+      hasMemberId |= key == MemberSortKey.MEMBER_ID;
+    }
+    if (!hasMemberId) {
+      orders.add(memberSearch.id.asc());
+    }
+    return orders.toArray(new OrderSpecifier<?>[0]);
+  }
+
+  /**
+   * 화이트리스트 / 인덱스 검사만 한다. (JPA 가 아닌 구현용)
+   */
+  public void check(Sort sort) {
+    for (Sort.Order order : sort) {
+      MemberSortKey key = resolve(order);
+      checkIndexed(key, key.isIndexed(), MEMBER_TABLE);
+    }
+  }
+
+  /**
+   * toOrderSpecifiers() 와 같은 순서로 메모리에서 비교한다. (샤드 결과 merge 용)
+   */
+  public static Comparator<MemberTeamDto> comparator(Sort sort) {
+    Comparator<MemberTeamDto> comparator = null;
+    boolean hasMemberId = false;
+    for (Sort.Order order : sort) {
+      MemberSortKey key = resolve(order);
+      Comparator<MemberTeamDto> next = order.isAscending()
+          ? key.getComparator() : key.getComparator().reversed();
+      comparator = comparator == null ? next : comparator.thenComparing(next);
+      hasMemberId |= key == MemberSortKey.MEMBER_ID;
+    }
+    if (!hasMemberId) {
+      Comparator<MemberTeamDto> byId = MemberSortKey.MEMBER_ID.getComparator();
+      comparator = comparator == null ? byId : comparator.thenComparing(byId);
+    }
+    return comparator;
+  }
+
+  private static MemberSortKey resolve(Sort.Order order) {
+    return MemberSortKey.of(order.getProperty())
+        .orElseThrow(() -> new UnsupportedSortException(
+            "sort property not allowed : " + order.getProperty()));
+  }
+
+  private void checkIndexed(MemberSortKey key, boolean indexed, String table) {
+    if (!rejectUnindexed || indexed) {
+      return;
+    }
+    if (estimateRows(table) > largeTableThreshold) {
+      throw new UnsupportedSortException(
+          "sort property is not backed by an index on " + table + " : " + key.getProperty());
+    }
+  }
+
+  /**
+   * information_schema 의 통계값 (정확한 count 가 아니라 옵티마이저 추정치). 테이블마다 1분간 재사용한다.
+   */
+  private long estimateRows(String table) {
+    long now = System.nanoTime();
+    RowEstimate estimate = estimates.get(table);
+    if (estimate != null && now - estimate.at < ROW_ESTIMATE_TTL) {
+      return estimate.rows;
+    }
+    long rows;
+    try {
+      Object result = em.createNativeQuery(
+              "select table_rows from information_schema.tables"
+                  + " where table_schema = database() and table_name = :table")
+          .setParameter("table", table)
+          .getSingleResult();
+      rows = result == null ? 0 : ((Number) result).longValue();
+    } catch (PersistenceException e) {
+      // 추정할 수 없으면 큰 테이블로 본다.
+      rows = Long.MAX_VALUE;
+    }
+    estimates.put(table, new RowEstimate(rows, now));
+    return rows;
+  }
+
+  private static final class RowEstimate {
+
+    private final long rows;
+    private final long at;
+
+    private RowEstimate(long rows, long at) {
+      this.rows = rows;
+      this.at = at;
+    }
+  }
+}
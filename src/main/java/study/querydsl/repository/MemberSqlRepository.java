@@ -0,0 +1,220 @@
+package study.querydsl.repository;
+
+import static org.springframework.util.StringUtils.hasText;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import com.querydsl.core.types.dsl.NumberTemplate;
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.MySQLTemplates;
+import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.SQLQueryFactory;
+import com.querydsl.sql.spring.SpringConnectionProvider;
+import com.querydsl.sql.spring.SpringExceptionTranslator;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberFacetPage;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.sql.SMember;
+import study.querydsl.sql.STeam;
+
+/**
+ * querydsl-sql 로 구현한 검색 (JPA 구현과 같은 결과)
+ * <p>
+ * HQL 파싱, 엔티티 메타데이터, 영속성 컨텍스트를 거치지 않고 ResultSet 에서 바로 MemberTeamDto 를 만든다.
+ * 커넥션은 스프링 트랜잭션의 것을 쓰므로 JPA 로 저장한 내용은 flush 후에 보인다.
+ * <p>
+ * 읽기 모델 (member_search) 이 아니라 member / team 을 조인한다. 샤드 (MemberShard) 에는 member / team 테이블만 있다.
+ * 그래서 MemberRepositoryImpl 과 결과는 같지만 실행 계획은 다르다. (MemberJpaRepository 의 조인과 같다)
+ * <p>
+ * 결과 크기는 JPA 구현과 같이 ResultMemoryGovernor 로 제한한다. (search 는 행 수 제한, 페이지는 예산만)
+ */
+@Repository
+@Transactional(readOnly = true)
+public class MemberSqlRepository implements MemberRepositoryCustom {
+
+  private static final SMember m = SMember.member;
+  private static final STeam t = STeam.team;
+
+  private final SQLQueryFactory queryFactory;
+  private final MemberSortPolicy sortPolicy;
+  private final ResultMemoryGovernor governor;
+
+  public MemberSqlRepository(DataSource dataSource, MemberSortPolicy sortPolicy,
+      ResultMemoryGovernor governor) {
+    Configuration configuration = new Configuration(MySQLTemplates.builder().quote().build());
+    configuration.setExceptionTranslator(new SpringExceptionTranslator());
+    this.queryFactory = new SQLQueryFactory(configuration, new SpringConnectionProvider(dataSource));
+    this.sortPolicy = sortPolicy;
+    this.governor = governor;
+  }
+
+  @Override
+  public List<MemberTeamDto> search(MemberSearchCondition condition) {
+    SQLQuery<?> query = selectMemberTeam(condition).orderBy(m.memberId.asc());
+    return governor.fetch(limit -> fetch(limit == null ? query : query.limit(limit)),
+        ResultMemoryGovernor.DTO_ROW_BYTES);
+  }
+
+  /**
+   * 전체 카운트를 항상 같이 조회한다. (JPA 구현의 fetchResults() 와 같음)
+   */
+  @Override
+  public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+    List<MemberTeamDto> content = fetchPage(condition, pageable);
+    Long total = selectCount(condition).fetchOne();
+    return new PageImpl<>(content, pageable, total == null ? 0 : total);
+  }
+
+  /**
+   * 마지막 페이지처럼 content 로 전체 수를 알 수 있으면 카운트를 생략한다.
+   */
+  @Override
+  public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+    List<MemberTeamDto> content = fetchPage(condition, pageable);
+    SQLQuery<Long> countQuery = selectCount(condition);
+    return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchOne);
+  }
+
+  @Override
+  public MemberFacetPage searchFacets(MemberSearchCondition condition, Pageable pageable,
+      List<Integer> ageBounds) {
+    MemberAgeBuckets buckets = MemberAgeBuckets.of(ageBounds);
+    List<MemberTeamDto> content = fetchPage(condition, pageable);
+
+    NumberTemplate<Integer> bucket = buckets.index(m.age);
+    List<Tuple> rows = queryFactory
+        .select(t.name, bucket, m.memberId.count())
+        .from(m)
+        .leftJoin(t).on(m.teamId.eq(t.teamId))
+        .where(
+            usernameEqual(condition.getUsername()),
+            teamNameEqual(condition.getTeamName()),
+            ageGoe(condition.getAgeGoe()),
+            ageLoe(condition.getAgeLoe()))
+        .groupBy(t.name, bucket)
+        .fetch();
+    MemberFacetCounter counter = new MemberFacetCounter(buckets);
+    for (Tuple row : rows) {
+      counter.add(row.get(t.name), row.get(1, Number.class).intValue(),
+          row.get(2, Number.class).longValue());
+    }
+    return new MemberFacetPage(new PageImpl<>(content, pageable, counter.total()),
+        counter.teams(), counter.ageBuckets());
+  }
+
+  private List<MemberTeamDto> fetchPage(MemberSearchCondition condition, Pageable pageable) {
+    return governor.account(fetch(selectMemberTeam(condition)
+        .orderBy(orderBy(pageable.getSort()))
+        .offset(pageable.getOffset())
+        .limit(pageable.getPageSize())), ResultMemoryGovernor.DTO_ROW_BYTES);
+  }
+
+  private SQLQuery<Long> selectCount(MemberSearchCondition condition) {
+    return queryFactory
+        .select(m.memberId.count())
+        .from(m)
+        .leftJoin(t).on(m.teamId.eq(t.teamId))
+        .where(
+            usernameEqual(condition.getUsername()),
+            teamNameEqual(condition.getTeamName()),
+            ageGoe(condition.getAgeGoe()),
+            ageLoe(condition.getAgeLoe()));
+  }
+
+  private SQLQuery<?> selectMemberTeam(MemberSearchCondition condition) {
+    return queryFactory
+        .select(m.memberId, m.username, m.age, t.teamId, t.name)
+        .from(m)
+        .leftJoin(t).on(m.teamId.eq(t.teamId))
+        .where(
+            usernameEqual(condition.getUsername()),
+            teamNameEqual(condition.getTeamName()),
+            ageGoe(condition.getAgeGoe()),
+            ageLoe(condition.getAgeLoe()));
+  }
+
+  /**
+   * Tuple 을 만들지 않고 ResultSet 에서 바로 읽는다. (select 순서 = 컬럼 순서)
+   */
+  private List<MemberTeamDto> fetch(SQLQuery<?> query) {
+    List<MemberTeamDto> result = new ArrayList<>();
+    try (ResultSet rs = query.getResults()) {
+      while (rs.next()) {
+        long teamId = rs.getLong(4);
+        result.add(new MemberTeamDto(
+            rs.getLong(1),
+            rs.getString(2),
+            rs.getInt(3),
+            rs.wasNull() ? null : teamId,
+            rs.getString(5)));
+      }
+    } catch (SQLException e) {
+      throw new UncategorizedSQLException("member search", query.toString(), e);
+    }
+    return result;
+  }
+
+  private OrderSpecifier<?>[] orderBy(Sort sort) {
+    sortPolicy.check(sort);
+    List<OrderSpecifier<?>> orders = new ArrayList<>();
+    boolean hasMemberId = false;
+    for (Sort.Order order : sort) {
+      MemberSortKey key = MemberSortKey.of(order.getProperty()).orElseThrow();
+      ComparableExpressionBase<?> path = sqlPath(key);
+      orders.add(order.isAscending() ? path.asc() : path.desc());
+      hasMemberId |= key == MemberSortKey.MEMBER_ID;
+    }
+    if (!hasMemberId) {
+      orders.add(m.memberId.asc());
+    }
+    return orders.toArray(new OrderSpecifier<?>[0]);
+  }
+
+  private ComparableExpressionBase<?> sqlPath(MemberSortKey key) {
+    switch (key) {
+      case MEMBER_ID:
+        return m.memberId;
+      case USERNAME:
+        return m.username;
+      case AGE:
+        return m.age;
+      case TEAM_ID:
+        return m.teamId;
+      case TEAM_NAME:
+        return t.name;
+      default:
+        throw new UnsupportedSortException("sort property not allowed : " + key.getProperty());
+    }
+  }
+
+  private BooleanExpression usernameEqual(String username) {
+    return hasText(username) ? m.username.eq(username) : null;
+  }
+
+  private BooleanExpression teamNameEqual(String teamName) {
+    return hasText(teamName) ? t.name.eq(teamName) : null;
+  }
+
+  private BooleanExpression ageGoe(Integer ageGoe) {
+    return ageGoe != null ? m.age.goe(ageGoe) : null;
+  }
+
+  private BooleanExpression ageLoe(Integer ageLoe) {
+    return ageLoe != null ? m.age.loe(ageLoe) : null;
+  }
+}
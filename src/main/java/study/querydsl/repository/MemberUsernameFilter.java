@@ -0,0 +1,365 @@
+package study.querydsl.repository;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.querydsl.jpa.hibernate.HibernateQueryFactory;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberChangeFeed;
+import study.querydsl.dto.MemberChangeRecord;
+import study.querydsl.entity.MemberOutbox;
+import study.querydsl.event.MemberChange;
+import study.querydsl.event.MemberChangeListener;
+
+/**
+ * 없는 회원명 조회를 DB 에 보내지 않기 위한 Bloom filter
+ * <p>
+ * 기동할 때와 rebuild-interval 마다 member 의 회원명을 모두 읽어 새로 만든다. 회원명은 목록으로 모으지 않고 forward-only 커서로
+ * FETCH_SIZE 건씩 받아 바로 필터에 넣는다. (필터 크기는 먼저 센 회원 수로 정한다) 그 사이 insert / 이름 변경은
+ * 이 인스턴스의 것은 flush 때 바로, 다른 인스턴스의 것은 변경 피드 (member_outbox) 를 feed-interval 마다 읽어서 넣는다.
+ * 그래서 다른 인스턴스에서 커밋된 이름은 피드 지연 (outbox settle + feed-interval) 동안 없다고 판단될 수 있다. (복제 지연과 같다)
+ * 피드를 max-feed-lag 보다 오래 못 읽으면 판단하지 않는다.
+ * <p>
+ * member 쓰기는 모두 outbox 를 남기는 경로 (Hibernate 변경 이벤트, MemberBatchWriter) 로 한다고 가정한다.
+ * 애플리케이션 밖에서 직접 넣은 회원은 다음 rebuild 전까지 없다고 판단한다.
+ * 삭제 / 이전 이름은 다음 rebuild 까지 남는다. (오탐만 늘어난다)
+ * <p>
+ * 키는 DB 비교 규칙 (MariaDB 기본 _ci collation) 에 맞춰 대소문자 / 뒤 공백을 무시하고, 저장된 이름은 악센트를 뗀 형태도 같이 넣는다.
+ * ASCII 가 아닌 문자가 남는 조회는 판단하지 않는다. 읽기/쓰기 트랜잭션 안에서는 아직 flush 안 된 이름이 있을 수 있어서 쓰지 않는다.
+ */
+@Slf4j
+@Component
+public class MemberUsernameFilter implements MemberChangeListener {
+
+  private static final int FEED_PAGE_SIZE = 1000;
+  private static final int FETCH_SIZE = 1000;
+
+  private final EntityManager em;
+  private final JPAQueryFactory queryFactory;
+  private final TransactionTemplate readOnly;
+  private final MemberOutboxRepository outboxRepository;
+  private final ObjectMapper objectMapper;
+  private final boolean enabled;
+  private final double fpp;
+  private final Duration rebuildInterval;
+  private final Duration feedInterval;
+  private final long maxFeedLagNanos;
+  private final ScheduledExecutorService scheduler;
+
+  private volatile UsernameBloomFilter filter;
+  /**
+   * 피드를 어디까지 넣었는지 (outbox id) / 마지막으로 피드를 다 읽은 시각 (nanoTime)
+   */
+  private long feedCursor;
+  private volatile long fedAt;
+  /**
+   * rebuild 중에 들어온 이름 (새 필터에 옮겨 넣는다)
+   */
+  private Set<String> recording;
+  /**
+   * 커밋 전인 트랜잭션 (세션) 이 넣은 이름. rebuild 가 DB 에서 못 읽는 이름이다.
+   */
+  private final Map<SessionImplementor, Queue<String>> inFlight = new ConcurrentHashMap<>();
+  private final Object feedLock = new Object();
+  /**
+   * bypass 중인 스레드 (warm-up 처럼 쿼리를 꼭 실행해야 하는 곳)
+   */
+  private final ThreadLocal<Boolean> bypassed = new ThreadLocal<>();
+
+  @Autowired
+  public MemberUsernameFilter(EntityManager em, PlatformTransactionManager transactionManager,
+      MemberOutboxRepository outboxRepository, ObjectMapper objectMapper,
+      @Value("${member.username-filter.enabled:true}") boolean enabled,
+      @Value("${member.username-filter.fpp:0.01}") double fpp,
+      @Value("${member.username-filter.rebuild-interval:1h}") Duration rebuildInterval,
+      @Value("${member.username-filter.feed-interval:1s}") Duration feedInterval,
+      @Value("${member.username-filter.max-feed-lag:30s}") Duration maxFeedLag) {
+    this.em = em;
+    this.queryFactory = new JPAQueryFactory(em);
+    this.readOnly = new TransactionTemplate(transactionManager);
+    this.readOnly.setReadOnly(true);
+    this.outboxRepository = outboxRepository;
+    this.objectMapper = objectMapper;
+    this.enabled = enabled;
+    this.fpp = fpp;
+    this.rebuildInterval = rebuildInterval;
+    this.feedInterval = feedInterval;
+    this.maxFeedLagNanos = maxFeedLag.toNanos();
+    // 피드를 한번 읽기 전까지는 판단하지 않는다.
+    this.fedAt = System.nanoTime() - maxFeedLagNanos - 1;
+    this.scheduler = enabled ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "member-username-filter");
+      thread.setDaemon(true);
+      return thread;
+    }) : null;
+  }
+
+  private MemberUsernameFilter() {
+    this.em = null;
+    this.queryFactory = null;
+    this.readOnly = null;
+    this.outboxRepository = null;
+    this.objectMapper = null;
+    this.enabled = false;
+    this.fpp = 0;
+    this.rebuildInterval = null;
+    this.feedInterval = null;
+    this.maxFeedLagNanos = 0;
+    this.scheduler = null;
+  }
+
+  /**
+   * 항상 "있을 수 있다" 로 답하는 인스턴스 (스프링 빈이 아닌 MemberRepositoryImpl 용)
+   */
+  public static MemberUsernameFilter disabled() {
+    return new MemberUsernameFilter();
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    if (!enabled) {
+      return;
+    }
+    rebuild();
+    long interval = rebuildInterval.toMillis();
+    scheduler.scheduleWithFixedDelay(() -> {
+      try {
+        rebuild();
+      } catch (RuntimeException e) {
+        log.warn("username filter rebuild failed. keep the previous filter", e);
+      }
+    }, interval, interval, TimeUnit.MILLISECONDS);
+    long feed = feedInterval.toMillis();
+    scheduler.scheduleWithFixedDelay(() -> {
+      try {
+        feed();
+      } catch (RuntimeException e) {
+        log.warn("username filter feed failed. retry in {}", feedInterval, e);
+      }
+    }, feed, feed, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+
+  /**
+   * action 안에서는 판단하지 않는다. (없는 이름으로 조회해도 DB 까지 간다)
+   */
+  public void bypass(Runnable action) {
+    Boolean previous = bypassed.get();
+    bypassed.set(Boolean.TRUE);
+    try {
+      action.run();
+    } finally {
+      if (previous == null) {
+        bypassed.remove();
+      }
+    }
+  }
+
+  /**
+   * @return username 인 회원이 확실히 없으면 true. (필터가 없거나 판단할 수 없으면 false)
+   */
+  public boolean definitelyAbsent(String username) {
+    UsernameBloomFilter current = filter;
+    if (current == null || username == null || bypassed.get() != null
+        || System.nanoTime() - fedAt > maxFeedLagNanos
+        || TransactionSynchronizationManager.isActualTransactionActive()
+        && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      return false;
+    }
+    String key = normalize(username);
+    if (!isAscii(key)) {
+      return false;
+    }
+    return !current.mightContain(key);
+  }
+
+  /**
+   * 검색 조건의 username 이 확실히 없는 이름인지 (조건이 비어있으면 false)
+   */
+  public boolean definitelyAbsentCondition(String username) {
+    return hasText(username) && definitelyAbsent(username);
+  }
+
+  public void rebuild() {
+    long start = System.nanoTime();
+    Set<String> recorded = ConcurrentHashMap.newKeySet();
+    synchronized (this) {
+      recording = recorded;
+    }
+    // DB 에서 읽기 전에 찍어둬야 읽는 사이 커밋된 이름이 빠지지 않는다.
+    List<String> uncommitted = new ArrayList<>();
+    inFlight.values().forEach(uncommitted::addAll);
+    // 이 id 까지는 커밋이 끝났으므로 아래에서 읽는 회원명에 들어있다. 이후는 피드로 넣는다.
+    long cursor = outboxRepository.lastSettledId();
+
+    Long count = readOnly.execute(status ->
+        queryFactory.select(member.count()).from(member).fetchOne());
+    UsernameBloomFilter next = UsernameBloomFilter.create(
+        Math.max((count == null ? 0 : count) * 2L, 1024), fpp);
+    Long names = readOnly.execute(status -> putUsernames(next));
+    uncommitted.forEach(next::put);
+    synchronized (this) {
+      recorded.forEach(next::put);
+      filter = next;
+      recording = null;
+    }
+    synchronized (feedLock) {
+      feedCursor = cursor;
+    }
+    feed();
+    log.info("username filter rebuilt. names={}, bits={}, elapsed={}ms", names,
+        next.bitCount(), (System.nanoTime() - start) / 1_000_000);
+  }
+
+  /**
+   * 회원명을 커서로 읽으면서 넣는다. 스칼라 조회라서 영속성 컨텍스트에도 쌓이지 않는다.
+   *
+   * @return 읽은 회원명 수
+   */
+  private long putUsernames(UsernameBloomFilter filter) {
+    long names = 0;
+    try (ScrollableResults rows = new HibernateQueryFactory(em.unwrap(Session.class))
+        .select(member.username)
+        .from(member)
+        .setFetchSize(FETCH_SIZE)
+        .setReadOnly(true)
+        .scroll(ScrollMode.FORWARD_ONLY)) {
+      while (rows.next()) {
+        putAll(filter, (String) rows.get(0));
+        names++;
+      }
+    }
+    return names;
+  }
+
+  /**
+   * 변경 피드에서 새로 생긴 회원명을 넣는다. (다른 인스턴스의 변경)
+   */
+  public void feed() {
+    synchronized (feedLock) {
+      long start = System.nanoTime();
+      MemberChangeFeed page;
+      do {
+        page = outboxRepository.findSince(feedCursor, FEED_PAGE_SIZE);
+        for (MemberChangeRecord record : page.getChanges()) {
+          String username = username(record);
+          if (username != null) {
+            add(keys(username));
+          }
+        }
+        feedCursor = page.getNext();
+      } while (page.getChanges().size() == FEED_PAGE_SIZE);
+      fedAt = start;
+    }
+  }
+
+  private String username(MemberChangeRecord record) {
+    if (!MemberOutbox.MEMBER.equals(record.getAggregate()) || record.getPayload() == null) {
+      return null;
+    }
+    try {
+      return objectMapper.readTree(record.getPayload()).path("username").textValue();
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("invalid outbox payload : " + record.getId(), e);
+    }
+  }
+
+  private synchronized void add(List<String> keys) {
+    if (filter != null) {
+      keys.forEach(filter::put);
+    }
+    if (recording != null) {
+      recording.addAll(keys);
+    }
+  }
+
+  @Override
+  public void memberChanged(MemberChange change, EventSource session) {
+    if (change.getAfter() == null || change.getAfter().getUsername() == null) {
+      return;
+    }
+    if (change.getBefore() != null
+        && change.getAfter().getUsername().equals(change.getBefore().getUsername())) {
+      return;
+    }
+    List<String> keys = keys(change.getAfter().getUsername());
+    // rebuild 가 찍어두는 목록에 먼저 넣어야 어느 순서로 겹쳐도 새 필터에서 빠지지 않는다.
+    inFlight.computeIfAbsent(session, s -> {
+      s.getActionQueue().registerProcess((success, completed) -> inFlight.remove(completed));
+      return new ConcurrentLinkedQueue<>();
+    }).addAll(keys);
+    add(keys);
+  }
+
+  private static void putAll(UsernameBloomFilter filter, String username) {
+    if (username != null) {
+      keys(username).forEach(filter::put);
+    }
+  }
+
+  private static List<String> keys(String username) {
+    String key = normalize(username);
+    String folded = fold(key);
+    return folded.equals(key) ? List.of(key) : List.of(key, folded);
+  }
+
+  /**
+   * 결과 행을 조건 값에 다시 맞출 때와 같은 규칙 (대소문자 무시, 뒤 공백 무시)
+   */
+  private static String normalize(String value) {
+    return value.stripTrailing().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * 악센트 제거 (é -> e). _ci collation 에서는 같은 문자다.
+   */
+  private static String fold(String value) {
+    return Normalizer.normalize(value, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+  }
+
+  private static boolean isAscii(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) > 0x7f) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
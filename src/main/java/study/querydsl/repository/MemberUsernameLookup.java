@@ -0,0 +1,12 @@
+package study.querydsl.repository;
+
+import java.util.List;
+import study.querydsl.entity.Member;
+
+/**
+ * MemberRepository.findByUsername - 없는 이름이면 MemberUsernameFilter 로 DB 조회 없이 빈 결과를 준다.
+ */
+public interface MemberUsernameLookup {
+
+  List<Member> findByUsername(String username);
+}
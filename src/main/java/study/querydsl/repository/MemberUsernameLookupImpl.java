@@ -0,0 +1,43 @@
+package study.querydsl.repository;
+
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.entity.Member;
+
+/**
+ * 쿼리 메서드 (findByUsername) 와 같은 결과. username 이 null 이면 is null 로 찾는다.
+ */
+@Transactional(readOnly = true)
+public class MemberUsernameLookupImpl implements MemberUsernameLookup {
+
+  private final EntityManager em;
+  private final MemberUsernameFilter usernameFilter;
+
+  public MemberUsernameLookupImpl(EntityManager em, MemberUsernameFilter usernameFilter) {
+    this.em = em;
+    this.usernameFilter = usernameFilter;
+  }
+
+  @Override
+  public List<Member> findByUsername(String username) {
+    if (username == null) {
+      return em.createQuery("select m from Member m where m.username is null", Member.class)
+          .setHint(QueryHints.HINT_READONLY, readOnly())
+          .getResultList();
+    }
+    if (usernameFilter.definitelyAbsent(username)) {
+      return List.of();
+    }
+    return em.createQuery("select m from Member m where m.username = :username", Member.class)
+        .setHint(QueryHints.HINT_READONLY, readOnly())
+        .setParameter("username", username)
+        .getResultList();
+  }
+
+  private boolean readOnly() {
+    return TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+  }
+}
@@ -0,0 +1,105 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import org.hibernate.jpa.QueryHints;
+
+/**
+ * 쿼리 하나에 붙일 MariaDB 힌트 (인덱스 힌트, 조인 순서 고정, 실행 시간 제한)
+ * <p>
+ * JPQL 로는 표현할 수 없어서 SQL 주석으로 실어 보내고, QueryHintInspector 가 실행 직전에 SQL 을 고친다.
+ * hibernate.use_sql_comments 가 꺼져 있으면 주석이 빠지므로 힌트도 적용되지 않는다. (결과는 같고 계획만 달라진다)
+ */
+public final class QueryHint {
+
+  static final String PREFIX = "query-hint";
+
+  private static final QueryHint NONE = new QueryHint(List.of(), false, Duration.ZERO);
+
+  private final List<String> indexHints;
+  private final boolean straightJoin;
+  private final Duration maxStatementTime;
+
+  private QueryHint(List<String> indexHints, boolean straightJoin, Duration maxStatementTime) {
+    this.indexHints = indexHints;
+    this.straightJoin = straightJoin;
+    this.maxStatementTime = maxStatementTime;
+  }
+
+  public static QueryHint none() {
+    return NONE;
+  }
+
+  /**
+   * table 을 읽을 때 index 만 쓰게 한다. (FORCE INDEX)
+   */
+  public QueryHint forceIndex(String table, String... indexes) {
+    return withIndexHint("force", table, indexes);
+  }
+
+  /**
+   * table 을 읽을 때 index 중에서만 고르게 한다. (USE INDEX)
+   */
+  public QueryHint useIndex(String table, String... indexes) {
+    return withIndexHint("use", table, indexes);
+  }
+
+  /**
+   * FROM 절에 적힌 순서대로 조인한다. (SELECT STRAIGHT_JOIN)
+   */
+  public QueryHint straightJoin() {
+    return new QueryHint(indexHints, true, maxStatementTime);
+  }
+
+  /**
+   * 서버에서 실행 시간을 제한한다. (SET STATEMENT max_statement_time = ... FOR). 0 이면 제한 없음
+   */
+  public QueryHint maxStatementTime(Duration timeout) {
+    return new QueryHint(indexHints, straightJoin, timeout);
+  }
+
+  public boolean isEmpty() {
+    return indexHints.isEmpty() && !straightJoin && maxStatementTime.isZero();
+  }
+
+  /**
+   * Querydsl 쿼리에 주석으로 건다. 비어 있으면 아무것도 하지 않는다.
+   */
+  public <T> JPAQuery<T> applyTo(JPAQuery<T> query) {
+    return isEmpty() ? query : query.setHint(QueryHints.HINT_COMMENT, toComment());
+  }
+
+  /**
+   * "query-hint force_index(member_search:idx_a,idx_b) straight_join max_statement_time(1.500)"
+   */
+  public String toComment() {
+    StringBuilder comment = new StringBuilder(PREFIX);
+    indexHints.forEach(hint -> comment.append(' ').append(hint));
+    if (straightJoin) {
+      comment.append(" straight_join");
+    }
+    if (!maxStatementTime.isZero()) {
+      comment.append(String.format(Locale.ROOT, " max_statement_time(%.3f)",
+          maxStatementTime.toMillis() / 1000.0));
+    }
+    return comment.toString();
+  }
+
+  @Override
+  public String toString() {
+    return toComment();
+  }
+
+  private QueryHint withIndexHint(String kind, String table, String... indexes) {
+    if (indexes.length == 0) {
+      throw new IllegalArgumentException("index hint needs at least one index : " + table);
+    }
+    List<String> hints = new ArrayList<>(indexHints);
+    hints.add(kind + "_index(" + table + ":" + String.join(",", indexes) + ")");
+    return new QueryHint(Collections.unmodifiableList(hints), straightJoin, maxStatementTime);
+  }
+}
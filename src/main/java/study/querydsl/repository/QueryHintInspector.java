@@ -0,0 +1,65 @@
+package study.querydsl.repository;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * QueryHint 주석이 붙은 select 를 MariaDB 힌트 문법으로 고친다. (hibernate.session_factory.statement_inspector)
+ * <p>
+ * 힌트는 주석에 모두 들어있으므로 상태가 없다. 주석이 없거나 select 가 아니면 SQL 을 그대로 둔다.
+ * <pre>
+ * force_index(t:i)         from t alias  ->  from t alias FORCE INDEX (i)
+ * straight_join            select        ->  select STRAIGHT_JOIN
+ * max_statement_time(1.5)  select ...    ->  SET STATEMENT max_statement_time=1.5 FOR select ...
+ * </pre>
+ */
+public class QueryHintInspector implements StatementInspector {
+
+  private static final String COMMENT_START = "/* " + QueryHint.PREFIX + " ";
+  private static final Pattern INDEX_HINT = Pattern.compile("(force|use)_index\\((\\w+):([\\w,]+)\\)");
+  private static final Pattern MAX_STATEMENT_TIME =
+      Pattern.compile("max_statement_time\\(([0-9.]+)\\)");
+  private static final Pattern SELECT = Pattern.compile("^\\s*select\\b", Pattern.CASE_INSENSITIVE);
+  /**
+   * FROM / JOIN / 콤마 뒤의 테이블 + 별칭. 별칭 자리에 오는 키워드는 별칭으로 보지 않는다.
+   */
+  private static final String TABLE_REFERENCE = "(?:\\bfrom|\\bjoin|,)\\s+%s"
+      + "(?:\\s+(?!(?:where|on|order|group|having|limit|left|right|inner|cross|join|for)\\b)\\w+)?\\b";
+
+  @Override
+  public String inspect(String sql) {
+    if (!sql.startsWith(COMMENT_START)) {
+      return sql;
+    }
+    int commentEnd = sql.indexOf("*/");
+    if (commentEnd < 0) {
+      return sql;
+    }
+    String comment = sql.substring(0, commentEnd + 2);
+    String statement = sql.substring(commentEnd + 2);
+    if (!SELECT.matcher(statement).find()) {
+      return sql;
+    }
+
+    Matcher index = INDEX_HINT.matcher(comment);
+    while (index.find()) {
+      String hint = " " + index.group(1).toUpperCase(Locale.ROOT) + " INDEX ("
+          + index.group(3) + ")";
+      Pattern table = Pattern.compile(String.format(TABLE_REFERENCE, Pattern.quote(index.group(2))),
+          Pattern.CASE_INSENSITIVE);
+      statement = table.matcher(statement).replaceAll(match -> Matcher.quoteReplacement(
+          match.group() + hint));
+    }
+    if (comment.contains(" straight_join")) {
+      statement = SELECT.matcher(statement).replaceFirst(match -> match.group() + " STRAIGHT_JOIN");
+    }
+    Matcher timeout = MAX_STATEMENT_TIME.matcher(comment);
+    if (timeout.find()) {
+      statement = " SET STATEMENT max_statement_time=" + timeout.group(1) + " FOR"
+          + statement;
+    }
+    return comment + statement;
+  }
+}
@@ -0,0 +1,15 @@
+package study.querydsl.repository;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 결과가 쿼리당 최대 행 수를 넘음 - 조건을 좁히거나 페이징 API 를 써야 한다.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class ResultLimitExceededException extends RuntimeException {
+
+  public ResultLimitExceededException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,15 @@
+package study.querydsl.repository;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 동시에 들고 있는 결과가 전체 메모리 예산을 넘음 - 잠시 후 다시 시도
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ResultMemoryBudgetException extends RuntimeException {
+
+  public ResultMemoryBudgetException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,173 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.JPQLQuery;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import javax.persistence.TypedQuery;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * 제한 없는 목록 조회 (search, findAll ...) 의 결과 크기를 제한한다.
+ * <p>
+ * 쿼리마다 최대 행 수 (maxRows + 1 건만 조회해서 넘었는지 확인) 를 두고, 모든 요청이 들고 있는 결과의 추정 크기 합이 전체 예산을 넘지 않게
+ * 한다. 예산은 조회 전에 최악의 크기로 잡았다가 실제 크기로 줄이고, 요청이 끝날 때 (요청 밖이면 조회 직후) 돌려준다.
+ * <p>
+ * 행 수를 넘으면 mode 에 따라 TRUNCATE (기본) - 앞의 maxRows 건만 TruncatedResultList 로 돌려준다. 응답에는
+ * X-Result-Truncated 헤더가 붙는다. (TruncatedResultAdvice) FAIL - ResultLimitExceededException. 잘린 결과를 받으면 안 되는
+ * 곳에서 member.result.mode=FAIL 로 켠다.
+ */
+@Component
+public class ResultMemoryGovernor {
+
+  public enum Mode {
+    FAIL, TRUNCATE
+  }
+
+  /**
+   * 행 하나의 대략적인 힙 크기. 엔티티는 스냅샷 / EntityEntry / 1차 캐시 항목까지 포함한다.
+   */
+  public static final long DTO_ROW_BYTES = 200;
+  public static final long ENTITY_ROW_BYTES = 600;
+
+  private static final int UNLIMITED = Integer.MAX_VALUE;
+
+  private final int maxRows;
+  private final long budgetBytes;
+  private final Mode mode;
+  private final AtomicLong inFlightBytes = new AtomicLong();
+  private final AtomicLong callbackSequence = new AtomicLong();
+
+  public ResultMemoryGovernor(@Value("${member.result.max-rows:10000}") int maxRows,
+      @Value("${member.result.memory-budget:256MB}") DataSize budget,
+      @Value("${member.result.mode:TRUNCATE}") Mode mode) {
+    this.maxRows = maxRows;
+    this.budgetBytes = budget.toBytes();
+    this.mode = mode;
+  }
+
+  /**
+   * 제한 없음 - 스프링 빈이 아닌 곳 (샤드 등) 에서 쓴다.
+   */
+  public static ResultMemoryGovernor unlimited() {
+    return new ResultMemoryGovernor(UNLIMITED, DataSize.ofBytes(Long.MAX_VALUE), Mode.FAIL);
+  }
+
+  public <T> List<T> fetch(JPQLQuery<T> query, long rowBytes) {
+    if (maxRows == UNLIMITED) {
+      return query.fetch();
+    }
+    return fetch(() -> query.limit(maxRows + 1L).fetch(), rowBytes);
+  }
+
+  public <T> List<T> fetch(TypedQuery<T> query, long rowBytes) {
+    if (maxRows == UNLIMITED) {
+      return query.getResultList();
+    }
+    return fetch(() -> query.setMaxResults(maxRows + 1).getResultList(), rowBytes);
+  }
+
+  /**
+   * JPQLQuery / TypedQuery 가 아닌 조회 (querydsl-sql 등). 조회 함수는 받은 limit 만큼만 읽는다. (null 이면 제한 없음)
+   */
+  public <T> List<T> fetch(Function<Long, List<T>> fetch, long rowBytes) {
+    if (maxRows == UNLIMITED) {
+      return fetch.apply(null);
+    }
+    return fetch(() -> fetch.apply(maxRows + 1L), rowBytes);
+  }
+
+  /**
+   * 각각 제한된 정렬 결과 여러 개 (hot + archive 등) 를 합치고 다시 maxRows 로 제한한다. 하나라도 잘렸으면 합친 결과도 잘린 결과다.
+   * 각 결과는 이미 예산에 들어가 있다.
+   */
+  public <T> List<T> merge(List<List<T>> sortedLists, Comparator<? super T> comparator) {
+    int limit = maxRows == UNLIMITED ? UNLIMITED : maxRows + 1;
+    List<T> merged = limit(ShardedMemberRepository.mergeTopN(sortedLists, comparator, 0, limit));
+    if (merged instanceof TruncatedResultList) {
+      return merged;
+    }
+    for (List<T> sortedList : sortedLists) {
+      if (sortedList instanceof TruncatedResultList) {
+        return new TruncatedResultList<>(merged);
+      }
+    }
+    return merged;
+  }
+
+  /**
+   * 이미 크기가 제한된 결과 (페이지 등) 는 예산에만 넣는다.
+   */
+  public <T> List<T> account(List<T> rows, long rowBytes) {
+    long bytes = rows.size() * rowBytes;
+    reserve(bytes);
+    releaseLater(bytes);
+    return rows;
+  }
+
+  public long getInFlightBytes() {
+    return inFlightBytes.get();
+  }
+
+  private <T> List<T> fetch(Supplier<List<T>> fetch, long rowBytes) {
+    long reserved = (maxRows + 1L) * rowBytes;
+    reserve(reserved);
+    List<T> rows;
+    try {
+      rows = fetch.get();
+    } catch (RuntimeException e) {
+      release(reserved);
+      throw e;
+    }
+    long actual = Math.min(rows.size(), maxRows) * rowBytes;
+    release(reserved - actual);
+    releaseLater(actual);
+    return limit(rows);
+  }
+
+  private <T> List<T> limit(List<T> rows) {
+    if (rows.size() <= maxRows) {
+      return rows;
+    }
+    if (mode == Mode.TRUNCATE) {
+      return new TruncatedResultList<>(rows.subList(0, maxRows));
+    }
+    throw new ResultLimitExceededException(
+        "result exceeds " + maxRows + " rows. narrow the condition or use paging");
+  }
+
+  private void reserve(long bytes) {
+    long current;
+    do {
+      current = inFlightBytes.get();
+      if (current + bytes > budgetBytes) {
+        throw new ResultMemoryBudgetException("result memory budget exceeded. in-flight="
+            + current + ", requested=" + bytes + ", budget=" + budgetBytes);
+      }
+    } while (!inFlightBytes.compareAndSet(current, current + bytes));
+  }
+
+  private void release(long bytes) {
+    inFlightBytes.addAndGet(-bytes);
+  }
+
+  /**
+   * 결과는 응답을 쓸 때까지 살아있으므로 요청이 끝날 때 돌려준다.
+   */
+  private void releaseLater(long bytes) {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (attributes == null) {
+      release(bytes);
+      return;
+    }
+    attributes.registerDestructionCallback(
+        ResultMemoryGovernor.class.getName() + "." + callbackSequence.incrementAndGet(),
+        () -> release(bytes), RequestAttributes.SCOPE_REQUEST);
+  }
+}
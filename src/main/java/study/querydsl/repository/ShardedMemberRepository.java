@@ -0,0 +1,207 @@
+package study.querydsl.repository;
+
+import static org.springframework.util.StringUtils.hasText;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import study.querydsl.dto.MemberFacetPage;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.deadline.RequestDeadline;
+import study.querydsl.dto.MemberTeamDto;
+
+/**
+ * team_id 로 샤딩된 Member 에 대한 scatter-gather 검색
+ * <p>
+ * teamName 이 하나의 샤드로 결정되면 그 샤드만 조회하고, 아니면 모든 샤드를 병렬로 조회해서 정렬된 결과를 k-way merge 한다.
+ * 각 샤드는 MemberRepositoryImpl 과 같은 순서 (Sort + memberId) 로 결과를 돌려줘야 한다.
+ * <p>
+ * 샤드 조회는 executor 스레드에서 하므로 요청의 마감 (RequestDeadline) 을 옮겨 붙인다.
+ */
+public class ShardedMemberRepository implements MemberRepositoryCustom {
+
+  private static final Comparator<MemberTeamDto> MEMBER_ID_ORDER =
+      Comparator.comparing(MemberTeamDto::getMemberId);
+
+  private final List<MemberRepositoryCustom> shards;
+  private final TeamShardDirectory directory;
+  private final Executor executor;
+
+  public ShardedMemberRepository(List<MemberRepositoryCustom> shards, TeamShardDirectory directory,
+      Executor executor) {
+    if (shards.size() != directory.getShardCount()) {
+      throw new IllegalArgumentException(
+          "shard count mismatch : " + shards.size() + " != " + directory.getShardCount());
+    }
+    this.shards = List.copyOf(shards);
+    this.directory = directory;
+    this.executor = executor;
+  }
+
+  @Override
+  public List<MemberTeamDto> search(MemberSearchCondition condition) {
+    Optional<MemberRepositoryCustom> target = route(condition);
+    if (target.isPresent()) {
+      return target.get().search(condition);
+    }
+    List<List<MemberTeamDto>> results = scatter(shard -> shard.search(condition));
+    return mergeTopN(results, MEMBER_ID_ORDER, 0, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+    Optional<MemberRepositoryCustom> target = route(condition);
+    if (target.isPresent()) {
+      return target.get().searchPageSimple(condition, pageable);
+    }
+    Pageable shardPageable = topN(pageable);
+    return gather(scatter(shard -> shard.searchPageSimple(condition, shardPageable)), pageable);
+  }
+
+  @Override
+  public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+    Optional<MemberRepositoryCustom> target = route(condition);
+    if (target.isPresent()) {
+      return target.get().searchPageComplex(condition, pageable);
+    }
+    Pageable shardPageable = topN(pageable);
+    return gather(scatter(shard -> shard.searchPageComplex(condition, shardPageable)), pageable);
+  }
+
+  /**
+   * 패싯은 샤드별 건수를 더한다. (같은 이름의 팀이 여러 샤드에 있으면 하나로 합쳐진다)
+   */
+  @Override
+  public MemberFacetPage searchFacets(MemberSearchCondition condition, Pageable pageable,
+      List<Integer> ageBounds) {
+    Optional<MemberRepositoryCustom> target = route(condition);
+    if (target.isPresent()) {
+      return target.get().searchFacets(condition, pageable, ageBounds);
+    }
+    Pageable shardPageable = topN(pageable);
+    List<MemberFacetPage> results =
+        scatter(shard -> shard.searchFacets(condition, shardPageable, ageBounds));
+    MemberFacetCounter counter = new MemberFacetCounter(MemberAgeBuckets.of(ageBounds));
+    List<Page<MemberTeamDto>> pages = new ArrayList<>(results.size());
+    for (MemberFacetPage result : results) {
+      counter.merge(result);
+      pages.add(result.getPage());
+    }
+    return new MemberFacetPage(gather(pages, pageable), counter.teams(), counter.ageBuckets());
+  }
+
+  private Optional<MemberRepositoryCustom> route(MemberSearchCondition condition) {
+    if (!hasText(condition.getTeamName())) {
+      return Optional.empty();
+    }
+    return directory.shardOf(condition.getTeamName()).map(shards::get);
+  }
+
+  /**
+   * 요청 페이지까지 포함하는 첫 페이지 (offset + size 건) - 각 샤드의 상위 N 건만 있으면 merge 가 가능하다.
+   */
+  private Pageable topN(Pageable pageable) {
+    long size = Math.min(pageable.getOffset() + pageable.getPageSize(), Integer.MAX_VALUE);
+    return PageRequest.of(0, (int) size, pageable.getSort());
+  }
+
+  private <T> List<T> scatter(Function<MemberRepositoryCustom, T> call) {
+    RequestDeadline deadline = RequestDeadline.current();
+    List<CompletableFuture<T>> futures = shards.stream()
+        .map(shard -> CompletableFuture.supplyAsync(() -> {
+          RequestDeadline previous = RequestDeadline.current();
+          RequestDeadline.attach(deadline);
+          try {
+            return call.apply(shard);
+          } finally {
+            RequestDeadline.attach(previous);
+          }
+        }, executor))
+        .collect(Collectors.toList());
+    try {
+      return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    } catch (CompletionException e) {
+      futures.forEach(future -> future.cancel(true));
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private Page<MemberTeamDto> gather(List<Page<MemberTeamDto>> pages, Pageable pageable) {
+    List<List<MemberTeamDto>> contents = new ArrayList<>();
+    long total = 0;
+    for (Page<MemberTeamDto> page : pages) {
+      contents.add(page.getContent());
+      total += page.getTotalElements();
+    }
+    List<MemberTeamDto> content = mergeTopN(contents, MemberSortPolicy.comparator(pageable.getSort()),
+        pageable.getOffset(), pageable.getPageSize());
+    return new PageImpl<>(content, pageable, total);
+  }
+
+  /**
+   * 정렬된 리스트들을 k-way merge 해서 offset 부터 limit 건을 꺼낸다. 같은 값이면 앞쪽 샤드가 먼저 나온다.
+   */
+  static <T> List<T> mergeTopN(List<List<T>> sortedLists, Comparator<? super T> comparator,
+      long offset, int limit) {
+    PriorityQueue<Cursor<T>> heads = new PriorityQueue<>(
+        Math.max(1, sortedLists.size()),
+        Comparator.<Cursor<T>, T>comparing(Cursor::head, comparator)
+            .thenComparingInt(cursor -> cursor.shard));
+    for (int shard = 0; shard < sortedLists.size(); shard++) {
+      List<T> list = sortedLists.get(shard);
+      if (!list.isEmpty()) {
+        heads.add(new Cursor<>(shard, list));
+      }
+    }
+
+    List<T> result = new ArrayList<>(Math.min(limit, 1024));
+    long skipped = 0;
+    while (!heads.isEmpty() && result.size() < limit) {
+      Cursor<T> cursor = heads.poll();
+      T head = cursor.head();
+      if (skipped < offset) {
+        skipped++;
+      } else {
+        result.add(head);
+      }
+      if (cursor.advance()) {
+        heads.add(cursor);
+      }
+    }
+    return result;
+  }
+
+  private static final class Cursor<T> {
+
+    private final int shard;
+    private final List<T> list;
+    private int index;
+
+    private Cursor(int shard, List<T> list) {
+      this.shard = shard;
+      this.list = list;
+    }
+
+    private T head() {
+      return list.get(index);
+    }
+
+    private boolean advance() {
+      return ++index < list.size();
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package study.querydsl.repository;
+
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * 샤드에 Team / Member 를 저장한다. 샤드는 TeamShardDirectory.shardOf(teamId) 로 정한다. (검색 라우팅과 같은 키)
+ * <p>
+ * id 는 기본 DB 의 id generator 에서 받아서 샤드끼리 겹치지 않는다. 팀이 없는 회원은 0번 샤드에 저장한다.
+ */
+public class ShardedMemberWriter {
+
+  private final List<MemberShard> shards;
+  private final TeamShardDirectory directory;
+  private final LongSupplier teamIds;
+  private final LongSupplier memberIds;
+
+  public ShardedMemberWriter(List<MemberShard> shards, TeamShardDirectory directory,
+      LongSupplier teamIds, LongSupplier memberIds) {
+    this.shards = List.copyOf(shards);
+    this.directory = directory;
+    this.teamIds = teamIds;
+    this.memberIds = memberIds;
+  }
+
+  public long createTeam(String name) {
+    long teamId = teamIds.getAsLong();
+    int shard = directory.shardOf(teamId);
+    shards.get(shard).insertTeam(teamId, name);
+    directory.register(shard, teamId, name);
+    return teamId;
+  }
+
+  public long createMember(String username, int age, Long teamId) {
+    long memberId = memberIds.getAsLong();
+    int shard = teamId == null ? 0 : directory.shardOf(teamId);
+    shards.get(shard).insertMember(memberId, username, age, teamId);
+    return memberId;
+  }
+}
@@ -0,0 +1,50 @@
+package study.querydsl.repository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.hibernate.event.spi.EventSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.event.ChangeType;
+import study.querydsl.event.MemberChangeListener;
+import study.querydsl.event.TeamChange;
+
+/**
+ * 팀 이름 -> team_id 로컬 캐시 (MemberBatchWriter). 이름은 DB 비교 규칙대로 맞춘 키 (CollationKey) 로 둔다.
+ * <p>
+ * 팀 이름이 바뀌거나 팀이 지워지면 이전 이름을 지운다. 지금 한번, 커밋 후에 한번 더 지운다. (그 사이 다른 스레드가 이전 id 를 다시 넣을 수
+ * 있다) JPQL 벌크 delete 는 이벤트가 없으므로 반영되지 않는다.
+ */
+@Component
+public class TeamIdCache implements MemberChangeListener {
+
+  private final Map<String, Long> teamIds = new ConcurrentHashMap<>();
+
+  Long get(String teamName) {
+    return teamIds.get(CollationKey.of(teamName));
+  }
+
+  void put(String teamName, Long teamId) {
+    teamIds.put(CollationKey.of(teamName), teamId);
+  }
+
+  @Override
+  public void teamChanged(TeamChange change, EventSource session) {
+    if (change.getType() == ChangeType.INSERT
+        || change.getType() == ChangeType.UPDATE && !change.isRenamed()
+        || change.getBeforeName() == null) {
+      return;
+    }
+    String key = CollationKey.of(change.getBeforeName());
+    teamIds.remove(key);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          teamIds.remove(key);
+        }
+      });
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package study.querydsl.repository;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import study.querydsl.entity.Team;
+
+/**
+ * team_id 기준 샤드 라우팅 정보
+ * <p>
+ * 한 Team 의 Member 는 항상 같은 샤드에 저장된다. (Team 과 함께 co-location) 샤드는 team_id 로만 정한다. 저장할 때도 찾을 때도
+ * shardOf(teamId) 를 쓰므로 두 규칙이 어긋날 수 없다.
+ * <p>
+ * 팀 이름은 유일하지 않아서 같은 이름의 팀이 여러 샤드에 있을 수 있다. 이름 -> 샤드 목록으로 두고, 샤드가 하나일 때만 라우팅한다.
+ * 이름은 DB 비교 규칙 (_ci collation) 처럼 대소문자, 뒤 공백, 악센트를 무시한다. (CollationKey)
+ */
+public class TeamShardDirectory {
+
+  private final int shardCount;
+  private final Map<String, Set<Integer>> shardsByTeamName = new ConcurrentHashMap<>();
+
+  public TeamShardDirectory(int shardCount) {
+    if (shardCount < 1) {
+      throw new IllegalArgumentException("shardCount must be positive : " + shardCount);
+    }
+    this.shardCount = shardCount;
+  }
+
+  public int getShardCount() {
+    return shardCount;
+  }
+
+  /**
+   * Team (과 그 Member) 이 저장되는 샤드
+   */
+  public int shardOf(long teamId) {
+    return Math.floorMod(Long.hashCode(teamId), shardCount);
+  }
+
+  /**
+   * 샤드에 저장된 Team 을 등록한다. 기동 시 각 샤드의 team 테이블을 읽어 채우고, 새 Team 을 저장한 뒤에도 부른다.
+   */
+  public void register(int shard, long teamId, String teamName) {
+    checkShard(shard);
+    if (shard != shardOf(teamId)) {
+      throw new IllegalStateException("team " + teamId + " is stored on shard " + shard
+          + " but belongs to shard " + shardOf(teamId));
+    }
+    if (teamName != null) {
+      shardsByTeamName.computeIfAbsent(CollationKey.of(teamName),
+          name -> ConcurrentHashMap.newKeySet()).add(shard);
+    }
+  }
+
+  public void register(int shard, Team team) {
+    register(shard, team.getId(), team.getName());
+  }
+
+  /**
+   * 팀 이름이 하나의 샤드로 결정되면 그 샤드를, 모르거나 여러 샤드에 있으면 empty (= 전체 샤드 조회)
+   */
+  public Optional<Integer> shardOf(String teamName) {
+    if (teamName == null) {
+      return Optional.empty();
+    }
+    Set<Integer> shards = shardsByTeamName.get(CollationKey.of(teamName));
+    if (shards == null) {
+      return Optional.empty();
+    }
+    // 등록과 겹쳐도 한번 찍은 목록으로 판단한다.
+    Integer[] snapshot = shards.toArray(new Integer[0]);
+    return snapshot.length == 1 ? Optional.of(snapshot[0]) : Optional.empty();
+  }
+
+  private void checkShard(int shard) {
+    if (shard < 0 || shard >= shardCount) {
+      throw new IllegalArgumentException("invalid shard : " + shard);
+    }
+  }
+}
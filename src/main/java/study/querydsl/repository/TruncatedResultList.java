@@ -0,0 +1,14 @@
+package study.querydsl.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * 행 수 제한으로 잘린 결과. 응답에는 X-Result-Truncated 헤더가 붙는다.
+ */
+public class TruncatedResultList<T> extends ArrayList<T> {
+
+  public TruncatedResultList(Collection<? extends T> rows) {
+    super(rows);
+  }
+}
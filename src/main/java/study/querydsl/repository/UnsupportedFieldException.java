@@ -0,0 +1,15 @@
+package study.querydsl.repository;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * fields 파라미터에 없는 컬럼 이름
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class UnsupportedFieldException extends RuntimeException {
+
+  public UnsupportedFieldException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,12 @@
+package study.querydsl.repository;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class UnsupportedSearchEngineException extends RuntimeException {
+
+  public UnsupportedSearchEngineException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,15 @@
+package study.querydsl.repository;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 허용하지 않는 정렬 요청 (화이트리스트 밖이거나 인덱스 없는 정렬)
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class UnsupportedSortException extends RuntimeException {
+
+  public UnsupportedSortException(String message) {
+    super(message);
+  }
+}
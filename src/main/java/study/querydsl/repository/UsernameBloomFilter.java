@@ -0,0 +1,85 @@
+package study.querydsl.repository;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 회원명 Bloom filter. false 면 확실히 없고, true 면 있을 수도 있다.
+ * <p>
+ * 비트 배열은 AtomicLongArray 라서 조회 중에 put 해도 된다. 삭제는 할 수 없으므로 지워진 이름은 다시 만들 때까지 남는다. (오탐만 늘어난다)
+ */
+final class UsernameBloomFilter {
+
+  private final AtomicLongArray words;
+  private final long bitCount;
+  private final int hashCount;
+
+  private UsernameBloomFilter(long bitCount, int hashCount) {
+    this.words = new AtomicLongArray((int) ((bitCount + 63) / 64));
+    this.bitCount = words.length() * 64L;
+    this.hashCount = hashCount;
+  }
+
+  /**
+   * @param expected 넣을 개수
+   * @param fpp      목표 오탐률 (0 ~ 1)
+   */
+  static UsernameBloomFilter create(long expected, double fpp) {
+    long n = Math.max(1, expected);
+    double ln2 = Math.log(2);
+    long bits = (long) Math.ceil(-n * Math.log(fpp) / (ln2 * ln2));
+    bits = Math.max(64, Math.min(bits, 1L << 32));
+    int hashes = (int) Math.max(1, Math.round((double) bits / n * ln2));
+    return new UsernameBloomFilter(bits, Math.min(hashes, 16));
+  }
+
+  void put(String key) {
+    long hash1 = hash(key);
+    long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+      int index = (int) (bit >>> 6);
+      long mask = 1L << bit;
+      long word = words.get(index);
+      while ((word & mask) == 0 && !words.compareAndSet(index, word, word | mask)) {
+        word = words.get(index);
+      }
+    }
+  }
+
+  boolean mightContain(String key) {
+    long hash1 = hash(key);
+    long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+      if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  long bitCount() {
+    return bitCount;
+  }
+
+  /**
+   * FNV-1a (64bit) 후 murmur3 finalizer 로 섞는다.
+   */
+  private static long hash(String key) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < key.length(); i++) {
+      hash ^= key.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return mix(hash);
+  }
+
+  private static long mix(long value) {
+    value ^= value >>> 33;
+    value *= 0xff51afd7ed558ccdL;
+    value ^= value >>> 33;
+    value *= 0xc4ceb9fe1a85ec53L;
+    value ^= value >>> 33;
+    return value;
+  }
+}
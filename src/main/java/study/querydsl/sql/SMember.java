@@ -0,0 +1,45 @@
+package study.querydsl.sql;
+
+import static com.querydsl.core.types.PathMetadataFactory.forVariable;
+
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.sql.ColumnMetadata;
+import com.querydsl.sql.ForeignKey;
+import com.querydsl.sql.PrimaryKey;
+import com.querydsl.sql.RelationalPathBase;
+import java.sql.Types;
+
+/**
+ * member 테이블 querydsl-sql Q 타입 (MetaDataExporter 가 만드는 형태와 같다)
+ * <p>
+ * MetaDataExporter 는 빌드할 때 DB 에 접속해야 해서 손으로 유지한다. 엔티티 매핑 (컬럼 이름 / 타입) 을 바꾸면 같이 바꾼다.
+ */
+public class SMember extends RelationalPathBase<SMember> {
+
+  public static final SMember member = new SMember("member");
+
+  public final NumberPath<Long> memberId = createNumber("memberId", Long.class);
+  public final StringPath username = createString("username");
+  public final NumberPath<Integer> age = createNumber("age", Integer.class);
+  public final NumberPath<Long> teamId = createNumber("teamId", Long.class);
+
+  public final PrimaryKey<SMember> primary = createPrimaryKey(memberId);
+  public final ForeignKey<STeam> teamFk = createForeignKey(teamId, "team_id");
+
+  public SMember(String variable) {
+    super(SMember.class, forVariable(variable), null, "member");
+    addMetadata();
+  }
+
+  public void addMetadata() {
+    addMetadata(memberId, ColumnMetadata.named("member_id").withIndex(1).ofType(Types.BIGINT)
+        .withSize(19).notNull());
+    addMetadata(age, ColumnMetadata.named("age").withIndex(2).ofType(Types.INTEGER)
+        .withSize(10).notNull());
+    addMetadata(username, ColumnMetadata.named("username").withIndex(3).ofType(Types.VARCHAR)
+        .withSize(255));
+    addMetadata(teamId, ColumnMetadata.named("team_id").withIndex(4).ofType(Types.BIGINT)
+        .withSize(19));
+  }
+}
@@ -0,0 +1,37 @@
+package study.querydsl.sql;
+
+import static com.querydsl.core.types.PathMetadataFactory.forVariable;
+
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.sql.ColumnMetadata;
+import com.querydsl.sql.PrimaryKey;
+import com.querydsl.sql.RelationalPathBase;
+import java.sql.Types;
+
+/**
+ * team 테이블 querydsl-sql Q 타입 (MetaDataExporter 가 만드는 형태와 같다)
+ * <p>
+ * MetaDataExporter 는 빌드할 때 DB 에 접속해야 해서 손으로 유지한다. 엔티티 매핑 (컬럼 이름 / 타입) 을 바꾸면 같이 바꾼다.
+ */
+public class STeam extends RelationalPathBase<STeam> {
+
+  public static final STeam team = new STeam("team");
+
+  public final NumberPath<Long> teamId = createNumber("teamId", Long.class);
+  public final StringPath name = createString("name");
+
+  public final PrimaryKey<STeam> primary = createPrimaryKey(teamId);
+
+  public STeam(String variable) {
+    super(STeam.class, forVariable(variable), null, "team");
+    addMetadata();
+  }
+
+  public void addMetadata() {
+    addMetadata(teamId, ColumnMetadata.named("team_id").withIndex(1).ofType(Types.BIGINT)
+        .withSize(19).notNull());
+    addMetadata(name, ColumnMetadata.named("name").withIndex(2).ofType(Types.VARCHAR)
+        .withSize(255));
+  }
+}
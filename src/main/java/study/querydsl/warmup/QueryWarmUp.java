@@ -0,0 +1,113 @@
+package study.querydsl.warmup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberSearchCache;
+import study.querydsl.repository.MemberUsernameFilter;
+
+/**
+ * 기동 직후 (readiness 전) 모든 검색 쿼리 모양을 미리 실행해서 HQL 플랜 캐시, Querydsl serializer, JIT 를 데운다.
+ * <p>
+ * ApplicationRunner 는 ReadinessState.ACCEPTING_TRAFFIC 보다 먼저 실행된다. 읽기 전용 트랜잭션에서 돌고 (flush 없음, 커넥션도
+ * read only), 검색 조건은 모양만 같고 결과가 없는 값을 쓴다.
+ * <p>
+ * 없는 회원명은 MemberUsernameFilter 가 DB 에 보내지 않으므로 warm-up 동안은 필터를 건너뛴다. 조건이 하나도 없는 모양은 결과가 없을 수
+ * 없어서 (전체 목록 / 전체 count) 데우지 않는다.
+ * <p>
+ * 읽기 전용 트랜잭션에서는 검색 캐시를 쓰므로 반복마다 비운다. (두번째부터 캐시만 타면 쿼리 경로가 데워지지 않는다)
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "warmup.enabled", havingValue = "true")
+public class QueryWarmUp implements ApplicationRunner {
+
+  private static final String NO_SUCH_NAME = "__warmup__";
+  private static final int CONDITION_COMBINATIONS = 16;
+
+  private final MemberRepository memberRepository;
+  private final MemberJpaRepository memberJpaRepository;
+  private final MemberSearchCache searchCache;
+  private final MemberUsernameFilter usernameFilter;
+  private final TransactionTemplate transactionTemplate;
+  private final int iterations;
+
+  public QueryWarmUp(MemberRepository memberRepository, MemberJpaRepository memberJpaRepository,
+      MemberSearchCache searchCache, MemberUsernameFilter usernameFilter,
+      PlatformTransactionManager transactionManager,
+      @Value("${warmup.iterations:200}") int iterations) {
+    this.memberRepository = memberRepository;
+    this.memberJpaRepository = memberJpaRepository;
+    this.searchCache = searchCache;
+    this.usernameFilter = usernameFilter;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setReadOnly(true);
+    this.iterations = iterations;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      usernameFilter.bypass(() ->
+          transactionTemplate.executeWithoutResult(status -> runAllShapes()));
+      searchCache.invalidateAll();
+    }
+    log.info("query warm-up finished. iterations={}, elapsed={}ms", iterations,
+        (System.nanoTime() - start) / 1_000_000);
+  }
+
+  private void runAllShapes() {
+    Pageable unsorted = PageRequest.of(0, 10);
+    Pageable sorted = PageRequest.of(0, 10, Sort.by("username"));
+    // mask 0 (조건 없음) 은 전체 count 라서 건너뛴다.
+    for (int mask = 1; mask < CONDITION_COMBINATIONS; mask++) {
+      MemberSearchCondition condition = condition(mask);
+      memberJpaRepository.search(condition);
+      memberJpaRepository.searchByBuilder(condition);
+      memberRepository.search(condition);
+      memberRepository.searchPageSimple(condition, unsorted);
+      memberRepository.searchPageComplex(condition, unsorted);
+      memberRepository.searchPageComplex(condition, sorted);
+    }
+    memberRepository.findByUsername(NO_SUCH_NAME);
+    memberJpaRepository.findByUsername(NO_SUCH_NAME);
+    memberJpaRepository.findByUsername_querydsl(NO_SUCH_NAME);
+  }
+
+  /**
+   * mask 의 각 비트가 username, teamName, ageGoe, ageLoe 조건. 어떤 조합이든 결과는 비어있다.
+   */
+  private MemberSearchCondition condition(int mask) {
+    boolean username = (mask & 1) != 0;
+    boolean teamName = (mask & 2) != 0;
+    boolean ageGoe = (mask & 4) != 0;
+    boolean ageLoe = (mask & 8) != 0;
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+    if (username) {
+      condition.setUsername(NO_SUCH_NAME);
+    }
+    if (teamName) {
+      condition.setTeamName(NO_SUCH_NAME);
+    }
+    if (ageGoe) {
+      condition.setAgeGoe(ageLoe ? 1 : Integer.MAX_VALUE);
+    }
+    if (ageLoe) {
+      condition.setAgeLoe(ageGoe ? 0 : -1);
+    }
+    return condition;
+  }
+}
@@ -0,0 +1,137 @@
+package study.querydsl.archive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberArchiveRepository;
+import study.querydsl.repository.MemberRepository;
+
+/**
+ * 아카이브는 chunk 마다 새 트랜잭션이라서 테스트 데이터를 커밋하고 끝나면 지운다.
+ */
+@SpringBootTest(properties = {"member.archive.chunk-size=3", "member.archive.pause=0ms"})
+class MemberArchiverTest {
+
+  @Autowired
+  EntityManager em;
+  @Autowired
+  MemberArchiver archiver;
+  @Autowired
+  MemberRepository memberRepository;
+  @Autowired
+  MemberArchiveRepository memberArchiveRepository;
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  TransactionTemplate tx;
+
+  @BeforeEach
+  public void before() {
+    tx = new TransactionTemplate(transactionManager);
+    tx.executeWithoutResult(status -> {
+      Team team = new Team("archiveTeam");
+      em.persist(team);
+      for (int i = 0; i < 10; i++) {
+        em.persist(new Member("archive" + i, i * 10, team));
+      }
+    });
+  }
+
+  @AfterEach
+  public void after() {
+    tx.executeWithoutResult(status -> {
+      em.createQuery("delete from MemberArchive a where a.username like 'archive%'")
+          .executeUpdate();
+      em.createQuery("delete from Member m where m.username like 'archive%'").executeUpdate();
+      em.createNativeQuery("delete from member_search where username like 'archive%'")
+          .executeUpdate();
+      em.createQuery("delete from Team t where t.name = 'archiveTeam'").executeUpdate();
+    });
+  }
+
+  @Test
+  public void moveInChunks() throws InterruptedException {
+    MemberSearchCondition old = new MemberSearchCondition();
+    old.setTeamName("archiveTeam");
+    old.setAgeGoe(20);
+
+    MemberArchiveResult result = archiver.archive(old);
+
+    assertThat(result.getArchived()).isEqualTo(8);
+    assertThat(result.getChunks()).isEqualTo(3);
+    assertThat(result.isCompleted()).isTrue();
+
+    MemberSearchCondition all = new MemberSearchCondition();
+    all.setTeamName("archiveTeam");
+    assertThat(memberRepository.search(all)).extracting("username")
+        .containsExactly("archive0", "archive1");
+    assertThat(memberArchiveRepository.searchArchive(all)).hasSize(8)
+        .allSatisfy(dto -> assertThat(dto.getTeamName()).isEqualTo("archiveTeam"));
+    assertThat(memberArchiveRepository.searchIncludingArchive(all)).extracting("username")
+        .containsExactly("archive0", "archive1", "archive2", "archive3", "archive4",
+            "archive5", "archive6", "archive7", "archive8", "archive9");
+
+    // 다시 실행하면 옮길 회원이 없다.
+    assertThat(archiver.archive(old).getArchived()).isZero();
+  }
+
+  @Test
+  public void memberChangedWhileChunkIsChosenIsNotArchived() throws Exception {
+    Long id = em.createQuery("select m.id from Member m where m.username = 'archive9'", Long.class)
+        .getSingleResult();
+    CountDownLatch updated = new CountDownLatch(1);
+    CountDownLatch commit = new CountDownLatch(1);
+    // 다른 트랜잭션이 archive9 를 조건 밖으로 바꾸고 아직 커밋하지 않았다.
+    CompletableFuture<Void> update = CompletableFuture.runAsync(() ->
+        tx.executeWithoutResult(status -> {
+          em.createQuery("update Member m set m.age = 5 where m.id = :id")
+              .setParameter("id", id)
+              .executeUpdate();
+          updated.countDown();
+          try {
+            commit.await(10, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }));
+    assertThat(updated.await(10, TimeUnit.SECONDS)).isTrue();
+
+    MemberSearchCondition old = new MemberSearchCondition();
+    old.setTeamName("archiveTeam");
+    old.setAgeGoe(20);
+    CompletableFuture<MemberArchiveResult> archive = CompletableFuture.supplyAsync(() -> {
+      try {
+        return archiver.archive(old);
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+
+    // chunk 를 고를 때 잠긴 행을 기다린다.
+    assertThatThrownBy(() -> archive.get(500, TimeUnit.MILLISECONDS))
+        .isInstanceOf(TimeoutException.class);
+    commit.countDown();
+    update.get(10, TimeUnit.SECONDS);
+
+    assertThat(archive.get(10, TimeUnit.SECONDS).getArchived()).isEqualTo(7);
+    MemberSearchCondition all = new MemberSearchCondition();
+    all.setTeamName("archiveTeam");
+    assertThat(memberRepository.search(all)).extracting("username")
+        .containsExactly("archive0", "archive1", "archive9");
+  }
+}
@@ -0,0 +1,89 @@
+package study.querydsl.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+/**
+ * 행 수 제한 (ResultMemoryGovernor) 의 기본 동작은 잘라서 헤더로 알리는 것이다.
+ * <p>
+ * 검색은 Callable 로 다른 스레드에서 실행되므로 데이터를 커밋해두고 본다.
+ */
+@SpringBootTest(properties = "member.result.max-rows=3")
+@AutoConfigureMockMvc
+class MemberControllerTest {
+
+  @Autowired
+  EntityManager em;
+  @Autowired
+  MockMvc mockMvc;
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  TransactionTemplate tx;
+
+  @BeforeEach
+  public void before() {
+    tx = new TransactionTemplate(transactionManager);
+    tx.executeWithoutResult(status -> {
+      Team team = new Team("truncateTeam");
+      em.persist(team);
+      for (int i = 0; i < 5; i++) {
+        em.persist(new Member("truncate" + i, i, team));
+      }
+    });
+  }
+
+  @AfterEach
+  public void after() {
+    tx.executeWithoutResult(status -> {
+      em.createQuery("delete from Member m where m.username like 'truncate%'").executeUpdate();
+      em.createNativeQuery("delete from member_search where username like 'truncate%'")
+          .executeUpdate();
+      em.createQuery("delete from Team t where t.name = 'truncateTeam'").executeUpdate();
+    });
+  }
+
+  @Test
+  public void resultOverRowLimitIsTruncatedAndFlagged() throws Exception {
+    perform(get("/v1/members").param("teamName", "truncateTeam").param("engine", "jpa"))
+        .andExpect(status().isOk())
+        .andExpect(header().string(TruncatedResultAdvice.TRUNCATED_HEADER, "true"))
+        .andExpect(jsonPath("$.length()").value(3));
+  }
+
+  @Test
+  public void resultWithinRowLimitIsNotFlagged() throws Exception {
+    perform(get("/v1/members").param("teamName", "truncateTeam").param("ageGoe", "3")
+        .param("engine", "jpa"))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist(TruncatedResultAdvice.TRUNCATED_HEADER))
+        .andExpect(jsonPath("$.length()").value(2));
+  }
+
+  private ResultActions perform(MockHttpServletRequestBuilder builder) throws Exception {
+    MvcResult result = mockMvc.perform(builder)
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    return mockMvc.perform(asyncDispatch(result));
+  }
+}
@@ -0,0 +1,86 @@
+package study.querydsl.controller;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import study.querydsl.dto.MemberIngestRequest;
+import study.querydsl.ingest.MemberIngestBuffer;
+
+/**
+ * 큐 (MemberIngestBuffer) 는 mock 이다. 응답 코드와 건수만 확인한다.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberIngestControllerTest {
+
+  @Autowired
+  MockMvc mockMvc;
+  @MockBean
+  MemberIngestBuffer ingestBuffer;
+
+  @Test
+  public void ndjsonIsAccepted() throws Exception {
+    when(ingestBuffer.offer(anyList())).thenAnswer(invocation -> acceptAll(invocation.getArgument(0)));
+
+    mockMvc.perform(post("/members/batch")
+            .contentType("application/x-ndjson")
+            .content("{\"username\":\"a\",\"age\":1}\n\n{\"username\":\"b\",\"age\":2}\n"))
+        .andExpect(status().isAccepted())
+        .andExpect(jsonPath("$.accepted").value(2))
+        .andExpect(jsonPath("$.rejected").value(0));
+  }
+
+  @Test
+  public void invalidLineReportsWhatWasAccepted() throws Exception {
+    when(ingestBuffer.offer(anyList())).thenAnswer(invocation -> acceptAll(invocation.getArgument(0)));
+
+    mockMvc.perform(post("/members/batch")
+            .contentType("application/x-ndjson")
+            .content("{\"username\":\"a\",\"age\":1}\n"
+                + "{\"username\":\"b\",\"age\":2}\n"
+                + "{\"username\":\"c\",\"age\":\n"
+                + "{\"username\":\"d\",\"age\":4}\n"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.accepted").value(2))
+        .andExpect(jsonPath("$.invalidLine").value(3));
+
+    // 틀린 줄 앞까지만 큐에 넣는다.
+    verify(ingestBuffer).offer(List.of(request("a", 1), request("b", 2)));
+  }
+
+  @Test
+  public void fullQueueAsksToRetry() throws Exception {
+    when(ingestBuffer.offer(anyList())).thenReturn(1);
+
+    mockMvc.perform(post("/members/batch")
+            .contentType("application/json")
+            .content("[{\"username\":\"a\",\"age\":1},{\"username\":\"b\",\"age\":2}]"))
+        .andExpect(status().isServiceUnavailable())
+        .andExpect(header().string("Retry-After", "1"))
+        .andExpect(jsonPath("$.accepted").value(1))
+        .andExpect(jsonPath("$.rejected").value(1));
+  }
+
+  private static int acceptAll(List<?> requests) {
+    return requests.size();
+  }
+
+  private static MemberIngestRequest request(String username, int age) {
+    MemberIngestRequest request = new MemberIngestRequest();
+    request.setUsername(username);
+    request.setAge(age);
+    return request;
+  }
+}
@@ -0,0 +1,92 @@
+package study.querydsl.deadline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.reflect.Proxy;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class DeadlineDataSourceTest {
+
+  List<String> calls = new ArrayList<>();
+
+  @AfterEach
+  public void after() {
+    RequestDeadline.clear();
+  }
+
+  @Test
+  public void noDeadline() throws Exception {
+    DeadlineDataSource.applyDeadline(statement());
+    assertThat(calls).isEmpty();
+  }
+
+  @Test
+  public void remainingTimeRoundedUp() throws Exception {
+    RequestDeadline.start(Duration.ofMillis(1500));
+    DeadlineDataSource.applyDeadline(statement());
+    assertThat(calls).containsExactly("setQueryTimeout:2");
+  }
+
+  @Test
+  public void expired() {
+    RequestDeadline.start(Duration.ofMillis(-1));
+    assertThatThrownBy(() -> DeadlineDataSource.applyDeadline(statement()))
+        .isInstanceOf(DeadlineExceededException.class);
+    assertThat(calls).containsExactly("close");
+  }
+
+  @Test
+  public void cancelCancelsRunningStatements() throws Exception {
+    RequestDeadline deadline = RequestDeadline.start(Duration.ofSeconds(5));
+    DeadlineDataSource.applyDeadline(statement());
+    calls.clear();
+
+    deadline.cancel();
+
+    assertThat(calls).containsExactly("cancel");
+  }
+
+  @Test
+  public void noQueryAfterCancel() {
+    RequestDeadline deadline = RequestDeadline.start(Duration.ofSeconds(5));
+    deadline.cancel();
+    assertThatThrownBy(() -> DeadlineDataSource.applyDeadline(statement()))
+        .isInstanceOf(DeadlineExceededException.class);
+    assertThat(calls).containsExactly("close");
+  }
+
+  @Test
+  public void finishForgetsStatements() throws Exception {
+    RequestDeadline deadline = RequestDeadline.start(Duration.ofSeconds(5));
+    DeadlineDataSource.applyDeadline(statement());
+    calls.clear();
+
+    deadline.finish();
+    deadline.cancel();
+
+    assertThat(calls).isEmpty();
+  }
+
+  private Statement statement() {
+    return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[]{Statement.class}, (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "hashCode":
+              return System.identityHashCode(proxy);
+            case "equals":
+              return proxy == args[0];
+            case "isClosed":
+              return false;
+            default:
+              calls.add(args == null ? method.getName() : method.getName() + ":" + args[0]);
+              return null;
+          }
+        });
+  }
+}
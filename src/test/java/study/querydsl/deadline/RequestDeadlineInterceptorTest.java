@@ -0,0 +1,38 @@
+package study.querydsl.deadline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class RequestDeadlineInterceptorTest {
+
+  RequestDeadlineInterceptor interceptor =
+      new RequestDeadlineInterceptor(Duration.ofSeconds(5), Duration.ofMillis(100));
+
+  @Test
+  public void noHeader() {
+    assertThat(interceptor.budget(null)).isEqualTo(Duration.ofSeconds(5));
+    assertThat(interceptor.budget("abc")).isEqualTo(Duration.ofSeconds(5));
+  }
+
+  @Test
+  public void shorterBudget() {
+    assertThat(interceptor.budget("1500")).isEqualTo(Duration.ofMillis(1500));
+  }
+
+  @Test
+  public void cannotExtendBudget() {
+    assertThat(interceptor.budget("60000")).isEqualTo(Duration.ofSeconds(5));
+  }
+
+  /**
+   * 0 은 JDBC 에서 "제한 없음" 이다. 0 이하 / 너무 짧은 값은 최소 예산으로 올린다.
+   */
+  @Test
+  public void nonPositiveOrTinyBudgetIsClamped() {
+    assertThat(interceptor.budget("0")).isEqualTo(Duration.ofMillis(100));
+    assertThat(interceptor.budget("-5")).isEqualTo(Duration.ofMillis(100));
+    assertThat(interceptor.budget("10")).isEqualTo(Duration.ofMillis(100));
+  }
+}
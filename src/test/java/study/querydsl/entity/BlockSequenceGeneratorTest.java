@@ -0,0 +1,85 @@
+package study.querydsl.entity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 여러 스레드에서 동시에 저장하므로 @Transactional 없이 직접 커밋하고 지운다.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.study.id.block_size=100")
+class BlockSequenceGeneratorTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void after() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'blockSeq%'").executeUpdate();
+            em.createNativeQuery("delete from member_search where username like 'blockSeq%'")
+                    .executeUpdate();
+        });
+    }
+
+    @Test
+    public void oneSequenceCallPerBlock() {
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (int i = 0; i < 250; i++) {
+                em.persist(new Member("blockSeq" + i, i));
+            }
+            // flush 전이므로 지금까지의 statement 는 시퀀스 조회뿐이다. (250 건 / 블록 100, 처음이면 증가폭 조회 한 번 더)
+            assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(4);
+        });
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    public void concurrentInsertsGetDistinctIds() throws Exception {
+        int threads = 8;
+        int perThread = 500;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() ->
+                        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                            for (int i = 0; i < perThread; i++) {
+                                Member member = new Member("blockSeq" + thread + "_" + i, i);
+                                em.persist(member);
+                                ids.add(member.getId());
+                            }
+                        })));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(ids).hasSize(threads * perThread);
+    }
+}
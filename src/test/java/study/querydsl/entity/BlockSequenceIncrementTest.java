@@ -0,0 +1,60 @@
+package study.querydsl.entity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * generator 는 처음 블록을 잡을 때 증가폭을 읽으므로, 아직 Member 를 저장한 적 없는 새 context 에서 시퀀스를 바꾼다.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.study.id.block_size=100")
+@DirtiesContext(classMode = ClassMode.BEFORE_CLASS)
+class BlockSequenceIncrementTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void after() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'blockInc%'").executeUpdate();
+            em.createNativeQuery("delete from member_search where username like 'blockInc%'")
+                    .executeUpdate();
+            // 설정값으로 되돌린다. 이 context 의 generator 는 10 씩 잡으므로 100 으로 늘려도 겹치지 않는다.
+            em.createNativeQuery("alter sequence member_seq increment by 100").executeUpdate();
+        });
+    }
+
+    @Test
+    public void blockFollowsSequenceIncrement() {
+        // 다른 설정으로 시퀀스를 만든 노드가 있는 경우
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                em.createNativeQuery("alter sequence member_seq increment by 10").executeUpdate());
+
+        List<Long> ids = new ArrayList<>();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (int i = 0; i < 25; i++) {
+                Member member = new Member("blockInc" + i, i);
+                em.persist(member);
+                ids.add(member.getId());
+            }
+        });
+
+        // 다른 노드가 다음에 받을 블록은 이 노드가 나눠준 값과 겹치지 않는다.
+        long nextBlock = ((Number) em.createNativeQuery("select nextval(member_seq)")
+                .getSingleResult()).longValue();
+        assertThat(ids).doesNotHaveDuplicates().allSatisfy(id -> assertThat(id).isLessThan(nextBlock));
+    }
+}
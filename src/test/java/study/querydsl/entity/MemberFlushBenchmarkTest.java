@@ -0,0 +1,104 @@
+package study.querydsl.entity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.Consumer;
+import javax.persistence.EntityManager;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 관리 중인 Member 수에 따른 flush 시간 / 힙 할당량 (바이트코드 향상 - 필드 단위 dirty tracking)
+ * <p>
+ * 데이터를 커밋해두고 새 트랜잭션에서 전부 읽은 뒤 flush 만 잰다. 끝나면 지운다. 측정은 출력만 하므로 benchmark 태그로 뺀다.
+ */
+@SpringBootTest
+class MemberFlushBenchmarkTest {
+
+    private static final String TEAM_NAME = "flushBenchTeam";
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void after() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.team.id in "
+                            + "(select t.id from Team t where t.name = :name)")
+                    .setParameter("name", TEAM_NAME).executeUpdate();
+            em.createNativeQuery("delete from member_search where team_name = ?1")
+                    .setParameter(1, TEAM_NAME).executeUpdate();
+            em.createQuery("delete from Team t where t.name = :name")
+                    .setParameter("name", TEAM_NAME).executeUpdate();
+        });
+    }
+
+    @Test
+    public void entitiesAreEnhanced() {
+        assertThat(new Member("enhanced")).isInstanceOf(SelfDirtinessTracker.class);
+        assertThat(new Team("enhanced")).isInstanceOf(SelfDirtinessTracker.class);
+        assertThat(new Hello()).isInstanceOf(SelfDirtinessTracker.class);
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void flushTimeByEntityCount() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> em.persist(new Team(TEAM_NAME)));
+
+        System.out.println("====================");
+        int loaded = 0;
+        for (int count : new int[]{1_000, 10_000, 30_000}) {
+            int from = loaded;
+            tx.executeWithoutResult(status -> {
+                Team team = em.createQuery("select t from Team t where t.name = :name", Team.class)
+                        .setParameter("name", TEAM_NAME).getSingleResult();
+                for (int i = from; i < count; i++) {
+                    em.persist(new Member("flushBench" + i, i % 100, team));
+                }
+            });
+            loaded = count;
+
+            // 바뀐 것이 없는 flush - 스냅샷 비교라면 관리 중인 엔티티 수에 비례한다.
+            print(count + " unchanged  ", tx, members -> { });
+            // 10% 변경
+            print(count + " 10% changed", tx, members -> {
+                for (int i = 0; i < members.size(); i += 10) {
+                    members.get(i).setAge(members.get(i).getAge() + 1);
+                }
+            });
+        }
+        System.out.println("====================");
+    }
+
+    private void print(String name, TransactionTemplate tx, Consumer<List<Member>> change) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long[] result = new long[2];
+        tx.executeWithoutResult(status -> {
+            List<Member> members = em.createQuery(
+                            "select m from Member m join m.team t where t.name = :name", Member.class)
+                    .setParameter("name", TEAM_NAME).getResultList();
+            change.accept(members);
+            long bytes = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            em.flush();
+            result[0] = System.nanoTime() - start;
+            result[1] = threads.getThreadAllocatedBytes(threadId) - bytes;
+            status.setRollbackOnly();
+        });
+        System.out.println(name + " flush ms : " + result[0] / 1_000_000
+                + ", heap KB : " + result[1] / 1024);
+    }
+}
@@ -1,5 +1,10 @@
 package study.querydsl.entity;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
@@ -44,4 +49,115 @@ class MemberTest {
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    public void changeTeamDoesNotLoadMembers() {
+        Team team = new Team("bigTeam");
+        em.persist(team);
+        for (int i = 0; i < 100; i++) {
+            em.persist(new Member("member" + i, i, team));
+        }
+        em.flush();
+        em.clear();
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        Team findTeam = em.find(Team.class, team.getId());
+        Member newMember = new Member("newMember", 10);
+        newMember.changeTeam(findTeam);
+        em.persist(newMember);
+        em.flush();
+
+        // team 조회 + id 시퀀스 + member insert + member_search upsert, 팀원 수와 무관
+        assertThat(Hibernate.isInitialized(findTeam.getMembers())).isFalse();
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(4);
+
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    public void moveBetweenLoadedTeamsDoesNotLoadMembers() {
+        Team teamA = new Team("moveA");
+        Team teamB = new Team("moveB");
+        em.persist(teamA);
+        em.persist(teamB);
+        Member mover = new Member("mover", 10, teamA);
+        em.persist(mover);
+        for (int i = 0; i < 50; i++) {
+            em.persist(new Member("member" + i, i, i % 2 == 0 ? teamA : teamB));
+        }
+        em.flush();
+        em.clear();
+
+        Team findA = em.find(Team.class, teamA.getId());
+        Team findB = em.find(Team.class, teamB.getId());
+        Member findMover = em.find(Member.class, mover.getId());
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        findMover.changeTeam(findB);
+        em.flush();
+
+        // 두 팀 다 로딩되어 있어도 members 는 읽지 않는다.
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+        assertThat(Hibernate.isInitialized(findA.getMembers())).isFalse();
+        assertThat(Hibernate.isInitialized(findB.getMembers())).isFalse();
+        statistics.setStatisticsEnabled(false);
+
+        em.clear();
+        assertThat(em.find(Member.class, mover.getId()).getTeam().getId()).isEqualTo(teamB.getId());
+    }
+
+    @Test
+    public void moveKeepsLoadedMembersInSync() {
+        Team teamA = new Team("moveA");
+        Team teamB = new Team("moveB");
+        em.persist(teamA);
+        em.persist(teamB);
+        Member mover = new Member("mover", 10, teamA);
+        em.persist(mover);
+        em.flush();
+        em.clear();
+
+        Team findA = em.find(Team.class, teamA.getId());
+        Team findB = em.find(Team.class, teamB.getId());
+        Member findMover = em.find(Member.class, mover.getId());
+        Hibernate.initialize(findA.getMembers());
+        Hibernate.initialize(findB.getMembers());
+
+        findMover.changeTeam(findB);
+
+        assertThat(findA.getMembers()).isEmpty();
+        assertThat(findB.getMembers()).containsExactly(findMover);
+    }
+
+    @Test
+    public void teamProxiesAreLoadedInOneBatch() {
+        List<Team> teams = List.of(new Team("proxyA"), new Team("proxyB"), new Team("proxyC"));
+        teams.forEach(em::persist);
+        em.flush();
+        em.clear();
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        for (Team team : teams) {
+            em.persist(new Member("proxyMember", 10, em.getReference(Team.class, team.getId())));
+        }
+        em.flush();
+
+        // 변경 이벤트가 팀 이름을 꺼낼 때 팀 3개를 한 번에 읽는다.
+        // team 조회 (batch) + id 시퀀스 + member insert + member_search upsert, 팀 수와 무관
+        // context 에서 처음 저장하는 Member 면 시퀀스 증가폭 조회가 한 번 더 있다.
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(3);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(5);
+
+        statistics.setStatisticsEnabled(false);
+    }
+}
@@ -0,0 +1,90 @@
+package study.querydsl.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.MemberSearch;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+
+@SpringBootTest
+@Transactional
+class MemberSearchSyncTest {
+
+  @Autowired
+  EntityManager em;
+  @Autowired
+  MemberRepository memberRepository;
+  @Autowired
+  MemberJpaRepository memberJpaRepository;
+  @Autowired
+  MemberSearchRebuilder rebuilder;
+
+  Team teamA;
+  Member member1;
+
+  @BeforeEach
+  public void before() {
+    teamA = new Team("syncTeamA");
+    em.persist(teamA);
+    member1 = new Member("sync1", 10, teamA);
+    em.persist(member1);
+    em.persist(new Member("sync2", 20, teamA));
+    em.persist(new Member("sync3", 30));
+  }
+
+  @Test
+  public void sameTransactionChangesAreVisible() {
+    // flush 없이 바로 조회해도 @Synchronize 로 auto flush 된다.
+    assertThat(search("syncTeamA")).extracting("username").containsExactly("sync1", "sync2");
+
+    teamA.setName("syncTeamRenamed");
+    member1.setAge(11);
+    assertThat(search("syncTeamA")).isEmpty();
+    assertThat(search("syncTeamRenamed")).extracting("age").containsExactly(11, 20);
+
+    em.remove(member1);
+    assertThat(search("syncTeamRenamed")).extracting("username").containsExactly("sync2");
+  }
+
+  @Test
+  public void bulkUpdateIsApplied() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("syncTeamA");
+    condition.setAgeGoe(15);
+    memberJpaRepository.bulkAddAge(condition, 5);
+
+    assertThat(search("syncTeamA")).extracting("age").containsExactly(10, 25);
+  }
+
+  @Test
+  public void rebuild() {
+    em.flush();
+    em.createNativeQuery("delete from member_search where username like 'sync%'")
+        .executeUpdate();
+    assertThat(search("syncTeamA")).isEmpty();
+
+    rebuilder.rebuild();
+
+    assertThat(search("syncTeamA")).extracting("username").containsExactly("sync1", "sync2");
+    MemberSearch row = em.find(MemberSearch.class, member1.getId());
+    assertThat(row.getTeamId()).isEqualTo(teamA.getId());
+    assertThat(row.getTeamName()).isEqualTo("syncTeamA");
+  }
+
+  private List<MemberTeamDto> search(String teamName) {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName(teamName);
+    return memberRepository.search(condition);
+  }
+}
@@ -0,0 +1,170 @@
+package study.querydsl.ingest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.MemberImportChunk;
+import study.querydsl.repository.MemberImportChunkRepository;
+
+/**
+ * import 는 chunk 마다 커밋하므로 테스트 데이터를 직접 지운다. chunk 를 작게 잡아 파일 하나가 여러 chunk 가 되게 한다.
+ */
+@SpringBootTest(properties = {"member.import.chunk-bytes=64", "member.ingest.batch-size=3"})
+class MemberCsvImporterTest {
+
+  @Autowired
+  EntityManager em;
+  @Autowired
+  MemberCsvImporter importer;
+  @Autowired
+  MemberImportChunkRepository chunkRepository;
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @TempDir
+  Path dir;
+
+  TransactionTemplate tx;
+  String teamName;
+  List<String> importKeys = new ArrayList<>();
+
+  @BeforeEach
+  public void before() {
+    tx = new TransactionTemplate(transactionManager);
+    // 팀 id 는 writer 가 캐시하므로 테스트마다 새 팀을 쓴다.
+    teamName = "csvTeam" + System.nanoTime();
+  }
+
+  @AfterEach
+  public void after() {
+    tx.executeWithoutResult(status -> {
+      em.createQuery("delete from Member m where m.username like 'csv%'").executeUpdate();
+      em.createNativeQuery("delete from member_search where username like 'csv%'")
+          .executeUpdate();
+      em.createQuery("delete from Team t where t.name like 'csvTeam%'").executeUpdate();
+      for (String importKey : importKeys) {
+        em.createQuery("delete from MemberImportChunk c where c.importKey = :importKey")
+            .setParameter("importKey", importKey)
+            .executeUpdate();
+      }
+    });
+  }
+
+  @Test
+  public void splitsAtLineBoundaries() throws Exception {
+    Path file = write(lines("csvSplit", 20));
+    byte[] bytes = Files.readAllBytes(file);
+
+    List<long[]> chunks = importer.split(file);
+
+    assertThat(chunks.size()).isGreaterThan(1);
+    assertThat(chunks.get(0)[0]).isZero();
+    assertThat(chunks.get(chunks.size() - 1)[1]).isEqualTo(bytes.length);
+    for (int i = 1; i < chunks.size(); i++) {
+      assertThat(chunks.get(i)[0]).isEqualTo(chunks.get(i - 1)[1]);
+      assertThat(bytes[(int) chunks.get(i)[0] - 1]).isEqualTo((byte) '\n');
+    }
+  }
+
+  @Test
+  public void importKeyFollowsContentNotFileName() throws Exception {
+    Path file = write(lines("csvKey", 3));
+    Path copy = Files.copy(file, dir.resolve("copy.csv"));
+    Path changed = Files.writeString(dir.resolve("changed.csv"), lines("csvKeY", 3));
+
+    String key = importer.scan(file, new HashSet<>());
+
+    assertThat(importer.scan(copy, new HashSet<>())).isEqualTo(key);
+    // 크기가 같아도 내용이 다르면 다른 import 다.
+    assertThat(Files.size(changed)).isEqualTo(Files.size(file));
+    assertThat(importer.scan(changed, new HashSet<>())).isNotEqualTo(key);
+  }
+
+  @Test
+  public void parsesLinesAndSkipsMalformedOnes() throws Exception {
+    Path file = write("username,age,teamName\r\n"
+        + "csvA,10," + teamName + "\r\n"
+        + "\r\n"
+        + "csvBad,x," + teamName + "\n"
+        + "csvB,20,\n"
+        + "csvC,30");
+    importKey(file);
+
+    assertThat(importer.importMembers(file)).isEqualTo(3);
+
+    assertThat(em.createQuery("select m.age from Member m where m.username like 'csv%' "
+        + "order by m.username", Integer.class).getResultList()).containsExactly(10, 20, 30);
+    assertThat(em.createQuery("select m.team.name from Member m where m.username = 'csvA'",
+        String.class).getSingleResult()).isEqualTo(teamName);
+    // JDBC 로 넣어도 변경 이벤트로 읽기 모델이 같이 만들어진다.
+    assertThat(em.createNativeQuery(
+        "select team_name from member_search where username = 'csvA'").getSingleResult())
+        .isEqualTo(teamName);
+  }
+
+  @Test
+  public void resumesOnlyRemainingChunks() throws Exception {
+    Path file = write(lines("csvResume", 20));
+    String importKey = importKey(file);
+    long[] skipped = importer.split(file).get(1);
+    chunkRepository.save(new MemberImportChunk(importKey, 1, 0));
+
+    long imported = importer.importMembers(file);
+
+    long skippedLines = countLines(file, skipped);
+    assertThat(skippedLines).isPositive();
+    assertThat(imported).isEqualTo(20 - skippedLines);
+    assertThat(em.createQuery("select count(m) from Member m where m.username like 'csvResume%'",
+        Long.class).getSingleResult()).isEqualTo(imported);
+
+    // 모든 chunk 가 끝났으므로 다시 돌려도 아무것도 넣지 않는다.
+    assertThat(importer.importMembers(file)).isZero();
+    assertThat(chunkRepository.findChunkIndexes(importKey)).hasSize(importer.split(file).size());
+  }
+
+  private String lines(String prefix, int count) {
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      content.append(String.format("%s%02d,%d,%s\n", prefix, i, 20 + i, teamName));
+    }
+    return content.toString();
+  }
+
+  private Path write(String content) throws Exception {
+    return Files.writeString(dir.resolve("members-" + System.nanoTime() + ".csv"), content,
+        StandardCharsets.UTF_8);
+  }
+
+  private String importKey(Path file) throws Exception {
+    Set<String> teamNames = new HashSet<>();
+    String importKey = importer.scan(file, teamNames);
+    importKeys.add(importKey);
+    return importKey;
+  }
+
+  private long countLines(Path file, long[] range) throws Exception {
+    byte[] bytes = Files.readAllBytes(file);
+    long lines = 0;
+    for (int i = (int) range[0]; i < range[1]; i++) {
+      if (bytes[i] == '\n') {
+        lines++;
+      }
+    }
+    return lines;
+  }
+}
@@ -0,0 +1,71 @@
+package study.querydsl.ingest;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberIngestRequest;
+import study.querydsl.repository.MemberBatchWriter;
+import study.querydsl.repository.MemberIngestDeadLetterRepository;
+
+/**
+ * 저장은 mock 으로 대신한다. 요청은 flusher 를 시작하기 전에 넣어서 batch 하나로 모이게 하고, stop() 이 남은 요청을 다 저장할 때까지 기다린다.
+ */
+class MemberIngestBufferTest {
+
+  MemberBatchWriter writer = mock(MemberBatchWriter.class);
+  MemberIngestDeadLetterRepository deadLetterRepository = mock(MemberIngestDeadLetterRepository.class);
+  MemberIngestBuffer buffer = new MemberIngestBuffer(writer, deadLetterRepository, 100, 10, 10,
+      100, 3, 1);
+
+  @Test
+  public void failedFlushIsRetried() throws Exception {
+    List<MemberIngestRequest> batch = List.of(request("ingest1"), request("ingest2"));
+    when(writer.write(anyList()))
+        .thenThrow(new IllegalStateException("connection refused"))
+        .thenReturn(2);
+
+    buffer.offer(batch);
+    buffer.start();
+    buffer.stop();
+
+    verify(writer, times(2)).write(batch);
+    verifyNoInteractions(deadLetterRepository);
+  }
+
+  @Test
+  public void rowsThatKeepFailingAreDeadLettered() throws Exception {
+    List<MemberIngestRequest> batch =
+        List.of(request("ingest1"), request("ingestBad"), request("ingest2"));
+    when(writer.write(anyList())).thenAnswer(invocation -> {
+      List<MemberIngestRequest> requests = invocation.getArgument(0);
+      if (requests.stream().anyMatch(request -> request.getUsername().equals("ingestBad"))) {
+        throw new IllegalArgumentException("value too long");
+      }
+      return requests.size();
+    });
+
+    buffer.offer(batch);
+    buffer.start();
+    buffer.stop();
+
+    verify(writer, times(3)).write(batch);
+    verify(writer).write(List.of(request("ingest1")));
+    verify(writer).write(List.of(request("ingest2")));
+    verify(deadLetterRepository).save(
+        argThat(deadLetter -> deadLetter.getUsername().equals("ingestBad")));
+  }
+
+  private static MemberIngestRequest request(String username) {
+    MemberIngestRequest request = new MemberIngestRequest();
+    request.setUsername(username);
+    request.setAge(20);
+    return request;
+  }
+}
@@ -0,0 +1,57 @@
+package study.querydsl.jfr;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import jdk.jfr.EventType;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+
+class JfrRecordingEndpointTest {
+
+  JfrRecordingEndpoint endpoint = new JfrRecordingEndpoint();
+
+  @AfterEach
+  public void after() {
+    endpoint.close();
+  }
+
+  @Test
+  public void dumpHasNoEnvironmentAndIsDeletedAfterRead() throws Exception {
+    endpoint.start(60L, 16L, "profile");
+
+    Resource dump = endpoint.dump("dump");
+    Path file = dump.getFile().toPath();
+    Path copy = Files.createTempFile("jfr-endpoint", ".jfr");
+    try {
+      try (InputStream in = dump.getInputStream()) {
+        Files.copy(in, copy, StandardCopyOption.REPLACE_EXISTING);
+      }
+      // 응답을 다 쓰면 임시 파일은 지워진다.
+      assertThat(file).doesNotExist();
+
+      List<String> types = RecordingFile.readAllEvents(copy).stream()
+          .map(RecordedEvent::getEventType)
+          .map(EventType::getName)
+          .distinct()
+          .collect(Collectors.toList());
+      assertThat(types).doesNotContain("jdk.InitialEnvironmentVariable",
+          "jdk.InitialSystemProperty", "jdk.JVMInformation", "jdk.SystemProcess");
+    } finally {
+      Files.deleteIfExists(copy);
+    }
+  }
+
+  @Test
+  public void noDumpWithoutRecording() {
+    assertThat(endpoint.dump("dump")).isNull();
+  }
+}
@@ -0,0 +1,67 @@
+package study.querydsl.jfr;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+import com.querydsl.core.types.Projections;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.MemberSearchCondition;
+
+class QueryEventsTest {
+
+  @Test
+  public void queryAndMappingEvents() throws Exception {
+    Path file = Files.createTempFile("query-events", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(MemberQueryEvent.class).withoutThreshold();
+      recording.enable(MemberMappingEvent.class).withoutThreshold();
+      recording.start();
+
+      TimedFactoryExpression<MemberDto> projection = TimedFactoryExpression.of(
+          Projections.constructor(MemberDto.class, member.username, member.age));
+      MemberSearchCondition condition = new MemberSearchCondition();
+      condition.setUsername("member1");
+      condition.setAgeGoe(10);
+
+      List<MemberDto> rows = QueryEvents.fetch("test.search",
+          QueryEvents.shape(condition, PageRequest.of(0, 10, Sort.by("age"))), projection,
+          () -> List.of(projection.newInstance("member1", 10),
+              projection.newInstance("member1", 20)));
+
+      assertThat(rows).hasSize(2);
+      recording.stop();
+      recording.dump(file);
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+        .filter(event -> event.getEventType().getName().startsWith("study.querydsl."))
+        .collect(Collectors.toList());
+    Files.deleteIfExists(file);
+
+    RecordedEvent query = find(events, "study.querydsl.MemberQuery");
+    assertThat(query.getString("method")).isEqualTo("test.search");
+    assertThat(query.getString("shape")).isEqualTo("username,ageGoe|sort=age: ASC|paged");
+    assertThat(query.getInt("rowCount")).isEqualTo(2);
+
+    RecordedEvent mapping = find(events, "study.querydsl.MemberMapping");
+    assertThat(mapping.getString("projection")).isEqualTo("MemberDto");
+    assertThat(mapping.getInt("rowCount")).isEqualTo(2);
+  }
+
+  private RecordedEvent find(List<RecordedEvent> events, String name) {
+    return events.stream()
+        .filter(event -> event.getEventType().getName().equals(name))
+        .findFirst()
+        .orElseThrow();
+  }
+}
@@ -0,0 +1,80 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+/**
+ * 행 수 제한은 합친 in 쿼리가 아니라 조건마다 걸린다.
+ */
+@SpringBootTest(properties = "member.result.max-rows=3")
+@Transactional
+class MemberBatchSearchLimitTest {
+
+  @Autowired
+  EntityManager em;
+  @Autowired
+  MemberBatchSearchRepository memberBatchSearchRepository;
+
+  @BeforeEach
+  public void before() {
+    Team bigTeam = new Team("limitBig");
+    Team smallTeam = new Team("limitSmall");
+    em.persist(bigTeam);
+    em.persist(smallTeam);
+    for (int i = 0; i < 5; i++) {
+      em.persist(new Member("limitBig" + i, i, bigTeam));
+    }
+    for (int i = 0; i < 2; i++) {
+      em.persist(new Member("limitSmall" + i, i, smallTeam));
+    }
+    em.persist(new Member("limitUser", 1));
+    em.persist(new Member("limitUser", 2));
+    em.persist(new Member("limitOther", 3));
+    em.persist(new Member("limitOther", 4));
+  }
+
+  @Test
+  public void onlyConditionOverLimitIsTruncated() {
+    List<List<MemberTeamDto>> result = memberBatchSearchRepository.searchAll(
+        List.of(team("limitBig"), team("limitSmall")));
+
+    assertThat(result.get(0)).hasSize(3).isInstanceOf(TruncatedResultList.class);
+    assertThat(result.get(1)).hasSize(2).isNotInstanceOf(TruncatedResultList.class);
+  }
+
+  /**
+   * 합치면 4 건이라 제한을 넘지만 조건마다는 2 건이다.
+   */
+  @Test
+  public void mergedOverLimitIsNotTruncated() {
+    List<List<MemberTeamDto>> result = memberBatchSearchRepository.searchAll(
+        List.of(username("limitUser"), username("limitOther")));
+
+    assertThat(result.get(0)).extracting("age").containsExactly(1, 2);
+    assertThat(result.get(1)).extracting("age").containsExactly(3, 4);
+    assertThat(result).noneMatch(TruncatedResultList.class::isInstance);
+  }
+
+  private MemberSearchCondition team(String teamName) {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName(teamName);
+    return condition;
+  }
+
+  private MemberSearchCondition username(String username) {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setUsername(username);
+    return condition;
+  }
+}
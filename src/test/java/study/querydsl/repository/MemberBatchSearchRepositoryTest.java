@@ -0,0 +1,74 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+@SpringBootTest
+@Transactional
+class MemberBatchSearchRepositoryTest {
+
+  @Autowired
+  EntityManager em;
+  @Autowired
+  MemberRepository memberRepository;
+  @Autowired
+  MemberBatchSearchRepository memberBatchSearchRepository;
+
+  @BeforeEach
+  public void before() {
+    Team teamA = new Team("teamA");
+    Team teamB = new Team("teamB");
+    em.persist(teamA);
+    em.persist(teamB);
+    for (int i = 0; i < 20; i++) {
+      em.persist(new Member("member" + (i % 10), i, i % 2 == 0 ? teamA : teamB));
+    }
+    em.persist(new Member("noTeam", 10));
+  }
+
+  @Test
+  public void sameResultAsSearch() {
+    List<MemberSearchCondition> conditions = new ArrayList<>();
+    conditions.add(condition("member1", null, null));
+    conditions.add(condition("member2", null, null));
+    conditions.add(condition("MEMBER3", null, null));
+    conditions.add(condition("nobody", null, null));
+    conditions.add(condition("member1", null, null));
+    conditions.add(condition(null, "teamA", 10));
+    conditions.add(condition(null, "teamB", 10));
+    conditions.add(condition("member4", "teamA", null));
+    conditions.add(new MemberSearchCondition());
+    conditions.add(condition("mémber5 ", null, null));
+
+    List<List<MemberTeamDto>> result = memberBatchSearchRepository.searchAll(conditions);
+
+    assertThat(result).hasSize(conditions.size());
+    for (int i = 0; i < conditions.size(); i++) {
+      assertThat(result.get(i)).isEqualTo(memberRepository.search(conditions.get(i)));
+    }
+    assertThat(result.get(0)).extracting("username").containsOnly("member1").hasSize(2);
+    assertThat(result.get(3)).isEmpty();
+    // DB 처럼 악센트 / 뒤 공백을 무시하고 나눈다.
+    assertThat(result.get(9)).extracting("username").containsOnly("member5").hasSize(2);
+  }
+
+  private MemberSearchCondition condition(String username, String teamName, Integer ageGoe) {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setUsername(username);
+    condition.setTeamName(teamName);
+    condition.setAgeGoe(ageGoe);
+    return condition;
+  }
+}
@@ -0,0 +1,131 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberIngestRequest;
+import study.querydsl.entity.Team;
+
+/**
+ * writer 는 자기 트랜잭션으로 커밋하므로 테스트 데이터를 직접 지운다.
+ */
+@SpringBootTest
+class MemberBatchWriterTest {
+
+  @Autowired
+  EntityManager em;
+  @Autowired
+  MemberBatchWriter writer;
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  TransactionTemplate tx;
+  String teamName;
+
+  @BeforeEach
+  public void before() {
+    tx = new TransactionTemplate(transactionManager);
+    // 팀 id 는 writer 가 캐시하므로 테스트마다 새 팀을 쓴다.
+    teamName = "writerTeam" + System.nanoTime();
+  }
+
+  @AfterEach
+  public void after() {
+    tx.executeWithoutResult(status -> {
+      em.createQuery("delete from Member m where m.username like 'writer%'").executeUpdate();
+      em.createNativeQuery("delete from member_search where username like 'writer%'")
+          .executeUpdate();
+      em.createQuery("delete from Team t where t.name like 'writerTeam%'").executeUpdate();
+    });
+  }
+
+  @Test
+  public void writesMembersAndCreatesMissingTeams() {
+    int written = writer.write(List.of(
+        request("writer1", 10, teamName),
+        request("writer2", 20, teamName),
+        request("writer3", 30, null)));
+
+    assertThat(written).isEqualTo(3);
+    assertThat(em.createQuery("select m.username from Member m where m.team.name = :teamName "
+            + "order by m.username", String.class)
+        .setParameter("teamName", teamName)
+        .getResultList()).containsExactly("writer1", "writer2");
+    assertThat(em.createQuery("select count(m) from Member m where m.username = 'writer3' "
+        + "and m.team is null", Long.class).getSingleResult()).isEqualTo(1L);
+    assertThat(em.createNativeQuery(
+        "select count(*) from member_search where username like 'writer%'")
+        .getSingleResult()).asString().isEqualTo("3");
+  }
+
+  @Test
+  public void unknownTeamInsideTransactionFails() {
+    assertThatThrownBy(() -> tx.executeWithoutResult(status ->
+        writer.write(List.of(request("writer1", 10, teamName)))))
+        .isInstanceOf(IllegalStateException.class);
+
+    assertThat(em.createQuery("select count(t) from Team t where t.name = :teamName", Long.class)
+        .setParameter("teamName", teamName)
+        .getSingleResult()).isZero();
+  }
+
+  @Test
+  public void knownTeamInsideTransactionJoinsIt() {
+    writer.writeTeams(List.of(teamName));
+
+    tx.executeWithoutResult(status -> {
+      writer.write(List.of(request("writer1", 10, teamName)));
+      // 바깥 트랜잭션과 함께 롤백된다.
+      status.setRollbackOnly();
+    });
+
+    assertThat(em.createQuery("select count(m) from Member m where m.username = 'writer1'",
+        Long.class).getSingleResult()).isZero();
+  }
+
+  @Test
+  public void teamNamesDifferingOnlyInCaseOrTrailingSpaceShareOneTeam() {
+    writer.write(List.of(
+        request("writer1", 10, teamName),
+        request("writer2", 20, teamName.toUpperCase() + " ")));
+
+    assertThat(em.createQuery("select count(t) from Team t where t.name like 'writerTeam%'",
+        Long.class).getSingleResult()).isEqualTo(1L);
+    assertThat(em.createQuery("select count(distinct m.team) from Member m "
+        + "where m.username like 'writer%'", Long.class).getSingleResult()).isEqualTo(1L);
+  }
+
+  @Test
+  public void renamedTeamIsEvictedFromCache() {
+    writer.writeTeams(List.of(teamName));
+    tx.executeWithoutResult(status -> em.createQuery(
+            "select t from Team t where t.name = :teamName", Team.class)
+        .setParameter("teamName", teamName)
+        .getSingleResult()
+        .setName(teamName + "Renamed"));
+
+    writer.write(List.of(request("writer1", 10, teamName)));
+
+    assertThat(em.createQuery("select m.team.name from Member m where m.username = 'writer1'",
+        String.class).getSingleResult()).isEqualTo(teamName);
+    assertThat(em.createQuery("select count(t) from Team t where t.name like 'writerTeam%'",
+        Long.class).getSingleResult()).isEqualTo(2L);
+  }
+
+  private static MemberIngestRequest request(String username, int age, String teamName) {
+    MemberIngestRequest request = new MemberIngestRequest();
+    request.setUsername(username);
+    request.setAge(age);
+    request.setTeamName(teamName);
+    return request;
+  }
+}
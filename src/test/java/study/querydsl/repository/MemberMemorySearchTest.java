@@ -0,0 +1,159 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+/**
+ * 메모리 색인은 커밋된 변경만 반영하므로 @Transactional 없이 직접 커밋하고 지운다.
+ * 색인을 켠 컨텍스트를 따로 띄운다. (다른 테스트가 쓰는 컨텍스트의 빈 상태를 바꾸지 않는다)
+ */
+@SpringBootTest(properties = "member.search.memory.enabled=true")
+class MemberMemorySearchTest {
+
+  @Autowired
+  EntityManager em;
+  @Autowired
+  MemberMemorySearch memorySearch;
+  @Autowired
+  MemberRepository memberRepository;
+  @Autowired
+  MemberJpaRepository memberJpaRepository;
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  TransactionTemplate tx;
+
+  @BeforeEach
+  public void before() throws InterruptedException {
+    tx = new TransactionTemplate(transactionManager);
+    tx.executeWithoutResult(status -> {
+      Team teamA = new Team("memoryTeamA");
+      Team teamB = new Team("memoryTeamB");
+      em.persist(teamA);
+      em.persist(teamB);
+      for (int i = 0; i < 200; i++) {
+        em.persist(new Member("memory" + i % 50, i % 60, i % 3 == 0 ? teamA : teamB));
+      }
+    });
+    awaitCurrent();
+  }
+
+  @AfterEach
+  public void after() {
+    tx.executeWithoutResult(status -> {
+      em.createQuery("delete from Member m where m.username like 'memory%'").executeUpdate();
+      em.createNativeQuery("delete from member_search where username like 'memory%'")
+          .executeUpdate();
+      em.createQuery("delete from Team t where t.name like 'memory%'").executeUpdate();
+    });
+  }
+
+  @Test
+  public void sameResultAsJpa() {
+    List<MemberSearchCondition> conditions = List.of(
+        condition(null, "memoryTeamA", null, null),
+        condition(null, "MEMORYTEAMB ", 20, 40),
+        condition("memory7", null, null, null),
+        condition("memory7", "memoryTeamB", 10, null),
+        condition(null, "memoryTeamA", 59, 0));
+    List<Pageable> pageables = List.of(
+        PageRequest.of(0, 10),
+        PageRequest.of(2, 7, Sort.by(Sort.Direction.DESC, "age")),
+        PageRequest.of(1, 5, Sort.by("teamName", "username")));
+
+    for (MemberSearchCondition condition : conditions) {
+      assertThat(memorySearch.search(condition)).isEqualTo(memberRepository.search(condition));
+      for (Pageable pageable : pageables) {
+        assertThat(memorySearch.searchPageComplex(condition, pageable))
+            .isEqualTo(memberRepository.searchPageComplex(condition, pageable));
+        assertThat(memorySearch.searchFacets(condition, pageable, List.of(10, 30)))
+            .isEqualTo(memberRepository.searchFacets(condition, pageable, List.of(10, 30)));
+      }
+    }
+  }
+
+  @Test
+  public void committedChangesAreApplied() throws InterruptedException {
+    tx.executeWithoutResult(status -> {
+      Team teamA = em.createQuery("select t from Team t where t.name = 'memoryTeamA'", Team.class)
+          .getSingleResult();
+      teamA.setName("memoryTeamRenamed");
+      em.persist(new Member("memoryNew", 99, teamA));
+    });
+    MemberSearchCondition bulk = condition(null, "memoryTeamB", 50, null);
+    memberJpaRepository.bulkAddAge(bulk, 100);
+    awaitCurrent();
+
+    assertThat(memorySearch.search(condition(null, "memoryTeamA", null, null))).isEmpty();
+    for (MemberSearchCondition condition : List.of(
+        condition(null, "memoryTeamRenamed", null, null),
+        condition("memoryNew", null, null, null),
+        condition(null, "memoryTeamB", 100, null))) {
+      assertThat(memorySearch.search(condition))
+          .isNotEmpty()
+          .isEqualTo(memberRepository.search(condition));
+    }
+  }
+
+  @Test
+  public void readWriteTransactionUsesDatabase() {
+    tx.executeWithoutResult(status -> {
+      Team teamA = em.createQuery("select t from Team t where t.name = 'memoryTeamA'", Team.class)
+          .getSingleResult();
+      em.persist(new Member("memoryUncommitted", 1, teamA));
+      assertThat(memorySearch.search(condition("memoryUncommitted", null, null, null)))
+          .hasSize(1);
+      status.setRollbackOnly();
+    });
+    assertThat(memorySearch.search(condition("memoryUncommitted", null, null, null))).isEmpty();
+  }
+
+  @Test
+  public void reloadMatchesIncrementalRefresh() throws InterruptedException {
+    MemberSearchCondition condition = condition(null, "memoryTeamB", 20, null);
+    List<MemberTeamDto> refreshed = memorySearch.search(condition);
+
+    memorySearch.reload();
+    awaitCurrent();
+
+    assertThat(memorySearch.search(condition)).isNotEmpty().isEqualTo(refreshed);
+  }
+
+  /**
+   * 스냅샷은 전용 스레드가 커밋 뒤에 만든다. 정해진 시간까지만 기다린다.
+   */
+  private void awaitCurrent() throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!memorySearch.isCurrent()) {
+      assertThat(System.nanoTime()).as("memory index refresh").isLessThan(deadline);
+      Thread.sleep(10);
+    }
+  }
+
+  private MemberSearchCondition condition(String username, String teamName, Integer ageGoe,
+      Integer ageLoe) {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setUsername(username);
+    condition.setTeamName(teamName);
+    condition.setAgeGoe(ageGoe);
+    condition.setAgeLoe(ageLoe);
+    return condition;
+  }
+}
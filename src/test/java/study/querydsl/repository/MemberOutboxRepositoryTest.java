@@ -0,0 +1,114 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberChangeFeed;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+/**
+ * outbox 는 커밋 직전에 쓰이므로 @Transactional 없이 직접 커밋하고 지운다.
+ */
+@SpringBootTest(properties = "member.outbox.settle=0s")
+class MemberOutboxRepositoryTest {
+
+  @Autowired
+  EntityManager em;
+  @Autowired
+  MemberJpaRepository memberJpaRepository;
+  @Autowired
+  MemberOutboxRepository outboxRepository;
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  TransactionTemplate tx;
+  long since;
+
+  @BeforeEach
+  public void before() {
+    tx = new TransactionTemplate(transactionManager);
+    since = lastId();
+  }
+
+  @AfterEach
+  public void after() {
+    tx.executeWithoutResult(status -> {
+      em.createQuery("delete from Member m where m.username like 'outbox%'").executeUpdate();
+      em.createNativeQuery("delete from member_search where username like 'outbox%'")
+          .executeUpdate();
+      em.createQuery("delete from Team t where t.name = 'outboxTeam'").executeUpdate();
+      em.createQuery("delete from MemberOutbox o where o.id > :since")
+          .setParameter("since", since).executeUpdate();
+    });
+  }
+
+  @Test
+  public void committedChangesAreFed() {
+    Long memberId = tx.execute(status -> {
+      Team team = new Team("outboxTeam");
+      em.persist(team);
+      Member member = new Member("outbox1", 10, team);
+      em.persist(member);
+      return member.getId();
+    });
+    tx.executeWithoutResult(status -> em.find(Member.class, memberId).setAge(11));
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("outboxTeam");
+    memberJpaRepository.bulkAddAge(condition, 1);
+
+    MemberChangeFeed feed = outboxRepository.findSince(since, 100);
+
+    assertThat(feed.getChanges()).extracting("aggregate", "changeType")
+        .containsExactly(
+            tuple("TEAM", "INSERT"),
+            tuple("MEMBER", "INSERT"),
+            tuple("MEMBER", "UPDATE"),
+            tuple("MEMBER_BULK", "UPDATE"));
+    assertThat(feed.getChanges().get(2).getPayload()).contains("\"age\":11");
+    assertThat(outboxRepository.findSince(feed.getNext(), 100).getChanges()).isEmpty();
+  }
+
+  @Test
+  public void rolledBackChangesAreNotFed() {
+    tx.executeWithoutResult(status -> {
+      em.persist(new Member("outbox2", 20));
+      em.flush();
+      status.setRollbackOnly();
+    });
+
+    assertThat(outboxRepository.findSince(since, 100).getChanges()).isEmpty();
+  }
+
+  @Test
+  public void createdAtIsTakenAtInsertNotAtChange() {
+    LocalDateTime afterChange = tx.execute(status -> {
+      em.persist(new Member("outbox3", 30));
+      em.flush();
+      // 변경 이벤트는 이미 났고, outbox insert 는 커밋 직전에 나간다.
+      return ((Timestamp) em.createNativeQuery("select now(6)").getSingleResult())
+          .toLocalDateTime();
+    });
+
+    MemberChangeFeed feed = outboxRepository.findSince(since, 100);
+
+    assertThat(feed.getChanges()).hasSize(1);
+    assertThat(feed.getChanges().get(0).getCreatedAt()).isAfterOrEqualTo(afterChange);
+  }
+
+  private long lastId() {
+    MemberChangeFeed feed = outboxRepository.findSince(0, Integer.MAX_VALUE);
+    return feed.getNext();
+  }
+}
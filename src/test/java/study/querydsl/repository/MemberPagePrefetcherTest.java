@@ -0,0 +1,160 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+/**
+ * 미리 조회는 다른 스레드 / 트랜잭션에서 하므로 @Transactional 없이 직접 커밋하고 지운다.
+ * 미리 조회가 끝났는지는 미리 조회 캐시에 페이지가 들어왔는지로 기다린다. 테스트 데이터의 outbox 로 캐시가 비워지지 않도록
+ * 변경 피드 (MemberSearchCacheFeed) 는 끈다.
+ */
+@SpringBootTest(properties = {"member.prefetch.min-idle-connections=0",
+    "member.search-cache.feed.enabled=false"})
+class MemberPagePrefetcherTest {
+
+  @Autowired
+  EntityManager em;
+  @Autowired
+  MemberRepository memberRepository;
+  @Autowired
+  MemberPagePrefetcher prefetcher;
+  @Autowired
+  MemberSearchCache searchCache;
+  @Autowired
+  MeterRegistry meterRegistry;
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  TransactionTemplate tx;
+  MemberSearchCondition condition;
+  AtomicInteger searches = new AtomicInteger();
+  BiFunction<MemberSearchCondition, Pageable, Page<MemberTeamDto>> search =
+      (c, pageable) -> {
+        Page<MemberTeamDto> page = memberRepository.searchPageComplex(c, pageable);
+        searches.incrementAndGet();
+        return page;
+      };
+
+  @BeforeEach
+  public void before() {
+    tx = new TransactionTemplate(transactionManager);
+    tx.executeWithoutResult(status -> {
+      Team team = new Team("prefetchTeam");
+      em.persist(team);
+      for (int i = 0; i < 10; i++) {
+        em.persist(new Member("prefetch" + i, i, team));
+      }
+      em.persist(new Team("prefetchOther"));
+    });
+    searchCache.invalidateAll();
+    prefetcher.invalidateAll();
+    condition = new MemberSearchCondition();
+    condition.setTeamName("prefetchTeam");
+  }
+
+  @AfterEach
+  public void after() {
+    tx.executeWithoutResult(status -> {
+      em.createQuery("delete from Member m where m.username like 'prefetch%'").executeUpdate();
+      em.createNativeQuery("delete from member_search where username like 'prefetch%'")
+          .executeUpdate();
+      em.createQuery("delete from Team t where t.name like 'prefetch%'").executeUpdate();
+    });
+  }
+
+  @Test
+  public void nextPageIsServedFromMemory() throws Exception {
+    double hits = hits();
+    double submitted = submitted();
+
+    Page<MemberTeamDto> first = prefetcher.fetch("test", condition, PageRequest.of(0, 4), search);
+    assertThat(first.getContent()).extracting("username")
+        .containsExactly("prefetch0", "prefetch1", "prefetch2", "prefetch3");
+    awaitPrefetched(PageRequest.of(1, 4));
+    // 미리 조회한 페이지는 검색 결과 캐시에 넣지 않는다. (만료 / 크기 제한이 따로다)
+    assertThat(searchCache.<Page<MemberTeamDto>>getIfPresent("test", condition,
+        PageRequest.of(1, 4))).isNull();
+
+    Page<MemberTeamDto> second = prefetcher.fetch("test", condition, PageRequest.of(1, 4), search);
+    assertThat(second.getContent()).extracting("username")
+        .containsExactly("prefetch4", "prefetch5", "prefetch6", "prefetch7");
+    assertThat(second.getTotalElements()).isEqualTo(10);
+    assertThat(hits()).isEqualTo(hits + 1);
+
+    // 두번째 페이지를 응답하면서 마지막 페이지를 미리 조회한다. 마지막 페이지 다음은 없다.
+    awaitPrefetched(PageRequest.of(2, 4));
+    prefetcher.fetch("test", condition, PageRequest.of(2, 4), search);
+    assertThat(hits()).isEqualTo(hits + 2);
+    assertThat(submitted()).isEqualTo(submitted + 2);
+    // 응답한 첫 페이지 + 미리 조회 두 번
+    assertThat(searches.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void changeDropsOverlappingPrefetchedPages() throws Exception {
+    prefetcher.fetch("test", condition, PageRequest.of(0, 4), search);
+    awaitPrefetched(PageRequest.of(1, 4));
+
+    // 다른 팀의 변경은 미리 조회한 페이지와 상관없다.
+    tx.executeWithoutResult(status ->
+        em.persist(new Member("prefetchElsewhere", 0, team("prefetchOther"))));
+    assertThat(prefetched(PageRequest.of(1, 4))).isNotNull();
+
+    tx.executeWithoutResult(status ->
+        em.persist(new Member("prefetchNew", 0, team("prefetchTeam"))));
+    assertThat(prefetched(PageRequest.of(1, 4))).isNull();
+
+    int searched = searches.get();
+    Page<MemberTeamDto> second = prefetcher.fetch("test", condition, PageRequest.of(1, 4), search);
+    assertThat(searches.get()).isGreaterThan(searched);
+    assertThat(second.getTotalElements()).isEqualTo(11);
+  }
+
+  private Team team(String name) {
+    return em.createQuery("select t from Team t where t.name = :name", Team.class)
+        .setParameter("name", name)
+        .getSingleResult();
+  }
+
+  private Page<MemberTeamDto> prefetched(Pageable pageable) {
+    return prefetcher.prefetched("test", condition, pageable);
+  }
+
+  /**
+   * 미리 조회한 페이지가 캐시에 들어올 때까지 (최대 5초)
+   */
+  private void awaitPrefetched(Pageable pageable) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (prefetched(pageable) == null && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(prefetched(pageable)).isNotNull();
+  }
+
+  private double hits() {
+    return meterRegistry.counter("member.prefetch.requests", "result", "hit").count();
+  }
+
+  private double submitted() {
+    return meterRegistry.counter("member.prefetch.tasks", "outcome", "submitted").count();
+  }
+}
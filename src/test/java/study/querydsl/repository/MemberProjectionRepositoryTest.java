@@ -0,0 +1,74 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.Map;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+@SpringBootTest
+@Transactional
+class MemberProjectionRepositoryTest {
+
+  @Autowired
+  EntityManager em;
+  @Autowired
+  MemberProjectionRepository memberProjectionRepository;
+
+  @BeforeEach
+  public void before() {
+    Team teamA = new Team("teamA");
+    Team teamB = new Team("teamB");
+    em.persist(teamA);
+    em.persist(teamB);
+    em.persist(new Member("member1", 10, teamA));
+    em.persist(new Member("member2", 20, teamA));
+    em.persist(new Member("member3", 30, teamB));
+    em.persist(new Member("member4", 40, teamB));
+  }
+
+  @Test
+  public void onlyRequestedFields() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setAgeGoe(35);
+
+    List<Map<String, Object>> result = memberProjectionRepository.search(condition,
+        "username, memberId");
+    assertThat(result).hasSize(1);
+    // 순서는 MemberTeamDto 필드 순서
+    assertThat(result.get(0).keySet()).containsExactly("memberId", "username");
+    assertThat(result.get(0).get("username")).isEqualTo("member4");
+  }
+
+  @Test
+  public void teamNameConditionWithoutTeamField() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("teamB");
+
+    Page<Map<String, Object>> result = memberProjectionRepository.searchPage(condition,
+        PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "age")), "username,teamId");
+    assertThat(result.getTotalElements()).isEqualTo(2);
+    assertThat(result.getContent()).extracting(row -> row.get("username"))
+        .containsExactly("member4");
+    assertThat(result.getContent().get(0)).containsOnlyKeys("username", "teamId");
+  }
+
+  @Test
+  public void unknownField() {
+    assertThatThrownBy(() ->
+        memberProjectionRepository.search(new MemberSearchCondition(), "memberId,password"))
+        .isInstanceOf(UnsupportedFieldException.class);
+  }
+}
@@ -0,0 +1,144 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+/**
+ * 10,000 건 엔티티 조회 - 쓰기 트랜잭션 vs 읽기 전용 트랜잭션 vs StatelessSession 의 요청당 힙 할당량 / CPU 시간
+ * <p>
+ * 트랜잭션 경계 (커밋 시 flush / dirty checking) 까지 재야 하므로 @Transactional 을 붙이지 않고 직접 커밋한 뒤 지운다.
+ * 다른 데이터가 있어도 되도록 이 테스트의 팀 회원만 센다. 측정 (measure) 은 benchmark 태스크에서만 돈다.
+ */
+@SpringBootTest
+class MemberReadOnlyQueryTest {
+
+  private static final int COUNT = 10_000;
+  private static final String TEAM_NAME = "readOnlyTeam";
+
+  @Autowired
+  EntityManager em;
+  @Autowired
+  MemberJpaRepository memberJpaRepository;
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  TransactionTemplate readWrite;
+  TransactionTemplate readOnly;
+  Long teamId;
+
+  @BeforeEach
+  public void before() {
+    readWrite = new TransactionTemplate(transactionManager);
+    readOnly = new TransactionTemplate(transactionManager);
+    readOnly.setReadOnly(true);
+
+    teamId = readWrite.execute(status -> {
+      Team team = new Team(TEAM_NAME);
+      em.persist(team);
+      for (int i = 0; i < COUNT; i++) {
+        em.persist(new Member("readOnly" + i, i % 100, team));
+      }
+      return team.getId();
+    });
+  }
+
+  @AfterEach
+  public void after() {
+    readWrite.executeWithoutResult(status -> {
+      em.createQuery("delete from Member m where m.team.id in "
+              + "(select t.id from Team t where t.name = :name)")
+          .setParameter("name", TEAM_NAME).executeUpdate();
+      em.createNativeQuery("delete from member_search where team_name = ?1")
+          .setParameter(1, TEAM_NAME).executeUpdate();
+      em.createQuery("delete from Team t where t.name = :name")
+          .setParameter("name", TEAM_NAME).executeUpdate();
+    });
+  }
+
+  @Test
+  public void readOnlyEntitiesAreNotDirtyChecked() {
+    readOnly.executeWithoutResult(status -> {
+      List<Member> members = ofTeam(memberJpaRepository.findAll_Querydsl());
+      assertThat(members).hasSize(COUNT);
+      assertThat(em.unwrap(Session.class).isReadOnly(members.get(0))).isTrue();
+    });
+    readWrite.executeWithoutResult(status -> {
+      List<Member> members = ofTeam(memberJpaRepository.findAll_Querydsl());
+      assertThat(em.unwrap(Session.class).isReadOnly(members.get(0))).isFalse();
+    });
+  }
+
+  @Test
+  public void stateless() {
+    List<Member> members = readOnly.execute(status -> {
+      List<Member> result = ofTeam(memberJpaRepository.findAll_Stateless());
+      assertThat(em.contains(result.get(0))).isFalse();
+      return result;
+    });
+    assertThat(members).hasSize(COUNT);
+    assertThat(members.get(0).getTeam().getId()).isEqualTo(teamId);
+  }
+
+  @Test
+  @Tag("benchmark")
+  public void measure() {
+    int iterations = 10;
+    Supplier<List<Member>> rw = () -> readWrite.execute(s -> memberJpaRepository.findAll_Querydsl());
+    Supplier<List<Member>> ro = () -> readOnly.execute(s -> memberJpaRepository.findAll_Querydsl());
+    Supplier<List<Member>> stateless = () ->
+        readOnly.execute(s -> memberJpaRepository.findAll_Stateless());
+
+    // warm-up
+    for (int i = 0; i < iterations; i++) {
+      rw.get();
+      ro.get();
+      stateless.get();
+    }
+
+    System.out.println("====================");
+    print("read-write", rw, iterations);
+    print("read-only ", ro, iterations);
+    print("stateless ", stateless, iterations);
+    System.out.println("====================");
+  }
+
+  private void print(String name, Supplier<List<Member>> query, int iterations) {
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+    long bytes = threads.getThreadAllocatedBytes(threadId);
+    long cpu = threads.getCurrentThreadCpuTime();
+    for (int i = 0; i < iterations; i++) {
+      assertThat(ofTeam(query.get())).hasSize(COUNT);
+    }
+    long allocated = (threads.getThreadAllocatedBytes(threadId) - bytes) / iterations;
+    long cpuNanos = (threads.getCurrentThreadCpuTime() - cpu) / iterations;
+    System.out.println(name + " heap KB/request : " + allocated / 1024
+        + ", cpu ms/request : " + cpuNanos / 1_000_000);
+  }
+
+  /**
+   * 이 테스트가 만든 팀의 회원만 (team 프록시의 id 는 초기화 없이 읽힌다)
+   */
+  private List<Member> ofTeam(List<Member> members) {
+    return members.stream()
+        .filter(member -> member.getTeam() != null && teamId.equals(member.getTeam().getId()))
+        .collect(Collectors.toList());
+  }
+}
@@ -2,6 +2,7 @@ package study.querydsl.repository;
 
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.util.List;
 import javax.persistence.EntityManager;
@@ -10,7 +11,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.FacetCount;
+import study.querydsl.dto.MemberFacetPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
@@ -109,4 +113,60 @@ public class MemberRepositoryTest {
 
   }
 
+  @Test
+  public void searchPageSortTest() {
+
+    Team teamA = new Team("teamA");
+    Team teamB = new Team("teamB");
+    em.persist(teamA);
+    em.persist(teamB);
+
+    em.persist(new Member("member1", 10, teamA));
+    em.persist(new Member("member2", 20, teamA));
+    em.persist(new Member("member3", 30, teamB));
+    em.persist(new Member("member4", 40, teamB));
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+    PageRequest byAgeDesc = PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "age"));
+
+    Page<MemberTeamDto> result = memberRepository.searchPageComplex(condition, byAgeDesc);
+
+    assertThat(result.getContent()).extracting("username")
+        .containsExactly("member4", "member3", "member2");
+
+    // 화이트리스트에 없는 속성은 거절
+    assertThatThrownBy(() -> memberRepository.searchPageSimple(condition,
+        PageRequest.of(0, 3, Sort.by("team.members"))))
+        .isInstanceOf(UnsupportedSortException.class);
+  }
+
+  @Test
+  public void searchFacetsTest() {
+
+    Team teamA = new Team("teamA");
+    Team teamB = new Team("teamB");
+    em.persist(teamA);
+    em.persist(teamB);
+
+    em.persist(new Member("member1", 10, teamA));
+    em.persist(new Member("member2", 20, teamA));
+    em.persist(new Member("member3", 30, teamB));
+    em.persist(new Member("member4", 40, teamB));
+    em.persist(new Member("member5", 45));
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setAgeGoe(20);
+
+    MemberFacetPage result = memberRepository.searchFacets(condition, PageRequest.of(0, 2),
+        List.of(30, 40));
+
+    assertThat(result.getPage().getContent()).extracting("username")
+        .containsExactly("member2", "member3");
+    assertThat(result.getPage().getTotalElements()).isEqualTo(4);
+    assertThat(result.getTeams()).containsExactly(
+        new FacetCount("teamB", 2), new FacetCount("teamA", 1), new FacetCount(null, 1));
+    assertThat(result.getAgeBuckets()).containsExactly(
+        new FacetCount("<30", 1), new FacetCount("30-39", 1), new FacetCount(">=40", 2));
+  }
+
 }
@@ -0,0 +1,66 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+
+/**
+ * 다른 인스턴스의 변경은 member_outbox 에 직접 넣어서 흉내낸다. (이 인스턴스의 Hibernate 이벤트는 없다)
+ * 피드는 테스트에서 직접 읽는다. (주기 실행은 멀리 미룬다)
+ */
+@SpringBootTest(properties = "member.search-cache.feed.interval=1h")
+class MemberSearchCacheFeedTest {
+
+  @Autowired
+  EntityManager em;
+  @Autowired
+  MemberSearchCache searchCache;
+  @Autowired
+  MemberSearchCacheFeed cacheFeed;
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  TransactionTemplate tx;
+
+  @BeforeEach
+  public void before() {
+    tx = new TransactionTemplate(transactionManager);
+    cacheFeed.feed();
+  }
+
+  @AfterEach
+  public void after() {
+    tx.executeWithoutResult(status -> em.createNativeQuery(
+            "delete from member_outbox where payload like '%cacheFeedRemote%'")
+        .executeUpdate());
+  }
+
+  @Test
+  public void changesFromOtherNodesClearTheCache() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("cacheFeedTeam");
+    searchCache.get("feedTest", condition, Pageable.unpaged(), () -> "before");
+    assertThat((Object) searchCache.getIfPresent("feedTest", condition, Pageable.unpaged()))
+        .isEqualTo("before");
+
+    // settle 이 지난 행으로 넣는다.
+    tx.executeWithoutResult(status -> em.createNativeQuery("insert into member_outbox "
+            + "(aggregate, change_type, aggregate_id, payload, created_at) values "
+            + "('MEMBER', 'INSERT', null, '{\"username\":\"cacheFeedRemote\",\"age\":50}', "
+            + "now(6) - interval 1 minute)")
+        .executeUpdate());
+    cacheFeed.feed();
+
+    assertThat((Object) searchCache.getIfPresent("feedTest", condition, Pageable.unpaged()))
+        .isNull();
+  }
+}
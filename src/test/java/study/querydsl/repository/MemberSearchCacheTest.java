@@ -0,0 +1,105 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.event.ChangeType;
+import study.querydsl.event.MemberBulkChange;
+import study.querydsl.event.MemberChange;
+import study.querydsl.event.MemberState;
+import study.querydsl.event.TeamChange;
+
+class MemberSearchCacheTest {
+
+  MemberSearchCache cache = new MemberSearchCache(100, Duration.ofMinutes(1));
+  AtomicInteger loads = new AtomicInteger();
+
+  @Test
+  public void unrelatedTeamSurvives() {
+    MemberSearchCondition teamA = condition("teamA", null, null);
+    MemberSearchCondition teamB = condition("teamB", null, null);
+    search(teamA);
+    search(teamB);
+
+    // teamA 에 회원 추가 -> teamA 엔트리만 지워진다.
+    cache.memberChanged(new MemberChange(ChangeType.INSERT, 1L, null,
+        new MemberState("member1", 10, 1L, "teamA")), null);
+
+    search(teamA);
+    search(teamB);
+    assertThat(loads.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void ageRangeIsRespected() {
+    MemberSearchCondition young = condition(null, null, 20);
+    MemberSearchCondition all = condition(null, null, null);
+    search(young);
+    search(all);
+
+    cache.memberChanged(new MemberChange(ChangeType.INSERT, 1L, null,
+        new MemberState("member1", 40, 1L, "teamA")), null);
+
+    search(young);
+    search(all);
+    assertThat(loads.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void teamRenameAndBulkUpdate() {
+    MemberSearchCondition teamA = condition("teamA", null, null);
+    MemberSearchCondition teamB = condition("teamB", 30, null);
+    search(teamA);
+    search(teamB);
+
+    cache.teamChanged(new TeamChange(ChangeType.UPDATE, 1L, "teamA", "teamC"), null);
+    search(teamA);
+    search(teamB);
+    assertThat(loads.get()).isEqualTo(3);
+
+    // teamB 의 10 ~ 20 살을 +15 -> 25 ~ 35 살, ageGoe 30 엔트리와 겹친다.
+    cache.membersBulkChanged(new MemberBulkChange(condition("teamB", 10, 20), 15, 2));
+    search(teamA);
+    search(teamB);
+    assertThat(loads.get()).isEqualTo(4);
+  }
+
+  @Test
+  public void teamAndUsernameCompareLikeTheDatabase() {
+    MemberSearchCondition upper = condition("TeamA ", null, null);
+    upper.setUsername("JOSE");
+    search(upper);
+
+    // DB 에서 같은 회원 (대소문자 / 뒤 공백 / 악센트 무시) 이 바뀌면 지워진다.
+    cache.memberChanged(new MemberChange(ChangeType.UPDATE, 1L,
+        new MemberState("José", 10, 1L, "teama"), new MemberState("José", 11, 1L, "teama")), null);
+    search(upper);
+    assertThat(loads.get()).isEqualTo(2);
+
+    // DB 에서 같은 조건이면 같은 엔트리를 쓴다.
+    MemberSearchCondition lower = condition("teama", null, null);
+    lower.setUsername("josé");
+    search(lower);
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  private void search(MemberSearchCondition condition) {
+    cache.get("search", condition, Pageable.unpaged(), () -> {
+      loads.incrementAndGet();
+      return List.of();
+    });
+  }
+
+  private MemberSearchCondition condition(String teamName, Integer ageGoe, Integer ageLoe) {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName(teamName);
+    condition.setAgeGoe(ageGoe);
+    condition.setAgeLoe(ageLoe);
+    return condition;
+  }
+}
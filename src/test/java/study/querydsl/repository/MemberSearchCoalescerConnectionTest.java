@@ -0,0 +1,111 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+
+/**
+ * 기다리는 요청은 읽기 전용 트랜잭션 안에 있어도 커넥션을 쥐지 않는다. (LazyConnectionDataSourcePostProcessor)
+ */
+@SpringBootTest
+class MemberSearchCoalescerConnectionTest {
+
+  private static final int FOLLOWERS = 6;
+
+  @Autowired
+  EntityManager em;
+  @Autowired
+  DataSource dataSource;
+  @Autowired
+  MemberSearchCoalescer coalescer;
+  @Autowired
+  MeterRegistry meterRegistry;
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  TransactionTemplate readOnly;
+  ExecutorService executor = Executors.newFixedThreadPool(FOLLOWERS + 1);
+
+  @BeforeEach
+  public void before() {
+    readOnly = new TransactionTemplate(transactionManager);
+    readOnly.setReadOnly(true);
+  }
+
+  @AfterEach
+  public void after() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void followersDoNotHoldConnections() throws Exception {
+    HikariPoolMXBean pool = dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+    CountDownLatch queried = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("coalesceConnection");
+    double followers = followers();
+
+    List<Future<Long>> results = new ArrayList<>();
+    results.add(executor.submit(() -> readOnly.execute(status ->
+        coalescer.coalesce("connectionTest", condition, Pageable.unpaged(), () -> {
+          Long count = em.createQuery("select count(m) from Member m", Long.class)
+              .getSingleResult();
+          queried.countDown();
+          await(release);
+          return count;
+        }))));
+    assertThat(queried.await(5, TimeUnit.SECONDS)).isTrue();
+    for (int i = 0; i < FOLLOWERS; i++) {
+      results.add(executor.submit(() -> readOnly.execute(status ->
+          coalescer.coalesce("connectionTest", condition, Pageable.unpaged(), () -> -1L))));
+    }
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (followers() < followers + FOLLOWERS && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(followers()).isEqualTo(followers + FOLLOWERS);
+
+    // 쿼리를 실행 중인 리더의 커넥션만 쓰인다. (백그라운드 작업이 잠깐 쓰는 것 하나까지 허용)
+    assertThat(pool.getActiveConnections()).isBetween(1, 2);
+
+    release.countDown();
+    Long count = results.get(0).get(5, TimeUnit.SECONDS);
+    for (Future<Long> result : results) {
+      assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(count);
+    }
+  }
+
+  private double followers() {
+    return meterRegistry.counter("member.search.coalesce", "role", "follower").count();
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+}
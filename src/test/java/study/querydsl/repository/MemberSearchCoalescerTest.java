@@ -0,0 +1,182 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import study.querydsl.deadline.DeadlineExceededException;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.event.MemberBulkChange;
+
+class MemberSearchCoalescerTest {
+
+  SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  MemberSearchCoalescer coalescer = new MemberSearchCoalescer(meterRegistry);
+  ExecutorService executor = Executors.newFixedThreadPool(8);
+
+  @AfterEach
+  public void after() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void concurrentIdenticalSearchesRunOnce() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger loads = new AtomicInteger();
+    Supplier<Long> count = () -> {
+      loads.incrementAndGet();
+      await(release);
+      return 42L;
+    };
+
+    List<Future<Long>> results = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      // 빈 문자열 조건은 조건 없음과 같다.
+      MemberSearchCondition condition = condition(i % 2 == 0 ? "" : null);
+      results.add(executor.submit(
+          () -> coalescer.coalesce("count", condition, Pageable.unpaged(), count)));
+    }
+    while (followers() < 7) {
+      Thread.sleep(10);
+    }
+    release.countDown();
+
+    for (Future<Long> result : results) {
+      assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(42L);
+    }
+    assertThat(loads.get()).isEqualTo(1);
+
+    // 끝난 쿼리에는 붙지 않는다. (캐시가 아니다)
+    assertThat(coalescer.coalesce("count", condition(null), Pageable.unpaged(), () -> 7L))
+        .isEqualTo(7L);
+  }
+
+  @Test
+  public void differentPagesAreNotCoalesced() {
+    AtomicInteger loads = new AtomicInteger();
+    coalescer.coalesce("search", condition("teamA"), PageRequest.of(0, 10),
+        () -> coalescer.coalesce("search", condition("teamA"), PageRequest.of(1, 10),
+            loads::incrementAndGet));
+
+    assertThat(loads.get()).isEqualTo(1);
+    assertThat(followers()).isZero();
+  }
+
+  @Test
+  public void followersReceiveLeaderFailure() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Supplier<Long> failing = () -> {
+      await(release);
+      throw new IllegalStateException("boom");
+    };
+
+    Future<Long> leader = executor.submit(
+        () -> coalescer.coalesce("count", condition(null), Pageable.unpaged(), failing));
+    Future<Long> follower = executor.submit(
+        () -> coalescer.coalesce("count", condition(null), Pageable.unpaged(), failing));
+    while (followers() < 1) {
+      Thread.sleep(10);
+    }
+    release.countDown();
+
+    assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS))
+        .hasCauseInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS))
+        .hasCauseInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void followersRetryWhenLeaderDeadlineExpires() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Supplier<Long> expiring = () -> {
+      await(release);
+      throw new DeadlineExceededException("leader deadline");
+    };
+
+    Future<Long> leader = executor.submit(
+        () -> coalescer.coalesce("count", condition(null), Pageable.unpaged(), expiring));
+    while (leaders() < 1) {
+      Thread.sleep(10);
+    }
+    Future<Long> follower = executor.submit(
+        () -> coalescer.coalesce("count", condition(null), Pageable.unpaged(), () -> 42L));
+    while (followers() < 1) {
+      Thread.sleep(10);
+    }
+    release.countDown();
+
+    // 먼저 온 요청의 마감 시각은 기다린 요청과 상관없다. 다시 실행해서 결과를 받는다.
+    assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo(42L);
+    assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS))
+        .hasCauseInstanceOf(DeadlineExceededException.class);
+    assertThat(leaders()).isEqualTo(2);
+  }
+
+  @Test
+  public void searchesAfterCommitDoNotJoinEarlierQuery() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Future<Long> before = executor.submit(
+        () -> coalescer.coalesce("count", condition(null), Pageable.unpaged(), () -> {
+          await(release);
+          return 1L;
+        }));
+    while (leaders() < 1) {
+      Thread.sleep(10);
+    }
+
+    // 트랜잭션 밖의 변경은 바로 커밋된 것으로 센다.
+    coalescer.membersBulkChanged(new MemberBulkChange(condition(null), 1, 1));
+
+    assertThat(coalescer.coalesce("count", condition(null), Pageable.unpaged(), () -> 2L))
+        .isEqualTo(2L);
+    assertThat(followers()).isZero();
+    release.countDown();
+    assertThat(before.get(5, TimeUnit.SECONDS)).isEqualTo(1L);
+  }
+
+  @Test
+  public void disabledRunsEveryLoad() {
+    AtomicInteger loads = new AtomicInteger();
+    MemberSearchCoalescer disabled = MemberSearchCoalescer.disabled();
+
+    disabled.coalesce("count", condition(null), Pageable.unpaged(), loads::incrementAndGet);
+    disabled.coalesce("count", condition(null), Pageable.unpaged(), loads::incrementAndGet);
+
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  private double leaders() {
+    return meterRegistry.counter("member.search.coalesce", "role", "leader").count();
+  }
+
+  private double followers() {
+    return meterRegistry.counter("member.search.coalesce", "role", "follower").count();
+  }
+
+  private static MemberSearchCondition condition(String teamName) {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName(teamName);
+    return condition;
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+
+/**
+ * threshold 를 -1 로 두어 테이블 크기와 상관없이 인덱스 없는 정렬을 거절하게 한다.
+ */
+@SpringBootTest(properties = {"member.sort.reject-unindexed=true",
+    "member.sort.large-table-threshold=-1"})
+@Transactional
+class MemberSortRejectTest {
+
+  @Autowired
+  MemberRepository memberRepository;
+
+  /**
+   * v2 / v3 (MemberRepositoryImpl) 는 member_search 를 조회한다. team_name 인덱스는 (team_name, age) 라서 정렬에 못 쓴다.
+   */
+  @Test
+  public void unindexedSortRejectedOnSearchModel() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    Pageable byTeamName = PageRequest.of(0, 10, Sort.by("teamName"));
+
+    assertThatThrownBy(() -> memberRepository.searchPageSimple(condition, byTeamName))
+        .isInstanceOf(UnsupportedSortException.class);
+    assertThatThrownBy(() -> memberRepository.searchPageComplex(condition, byTeamName))
+        .isInstanceOf(UnsupportedSortException.class);
+  }
+
+  @Test
+  public void indexedSortAllowed() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+
+    assertThat(memberRepository.searchPageComplex(condition,
+        PageRequest.of(0, 10, Sort.by("username", "age")))).isNotNull();
+  }
+}
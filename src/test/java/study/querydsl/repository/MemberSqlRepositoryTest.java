@@ -0,0 +1,119 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+@SpringBootTest
+@Transactional
+class MemberSqlRepositoryTest {
+
+  @Autowired
+  EntityManager em;
+  @Autowired
+  MemberRepository memberRepository;
+  @Autowired
+  MemberJpaRepository memberJpaRepository;
+  @Autowired
+  MemberSqlRepository memberSqlRepository;
+
+  @BeforeEach
+  public void before() {
+    Team teamA = new Team("teamA");
+    Team teamB = new Team("teamB");
+    em.persist(teamA);
+    em.persist(teamB);
+    for (int i = 0; i < 1000; i++) {
+      em.persist(new Member("member" + i, i % 100, i % 2 == 0 ? teamA : teamB));
+    }
+    em.persist(new Member("noTeam", 10));
+    // querydsl-sql 은 JDBC 로 바로 조회하므로 flush 가 필요하다.
+    em.flush();
+    em.clear();
+  }
+
+  @Test
+  public void sameResultAsJpa() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("teamB");
+    condition.setAgeGoe(35);
+    condition.setAgeLoe(40);
+
+    assertThat(memberSqlRepository.search(condition))
+        .isEqualTo(memberRepository.search(condition));
+
+    PageRequest pageable = PageRequest.of(1, 20, Sort.by(Sort.Direction.DESC, "age"));
+    Page<MemberTeamDto> sqlPage = memberSqlRepository.searchPageComplex(
+        new MemberSearchCondition(), pageable);
+    Page<MemberTeamDto> jpaPage = memberRepository.searchPageComplex(
+        new MemberSearchCondition(), pageable);
+    assertThat(sqlPage.getContent()).isEqualTo(jpaPage.getContent());
+    assertThat(sqlPage.getTotalElements()).isEqualTo(jpaPage.getTotalElements()).isEqualTo(1001);
+  }
+
+  @Test
+  public void searchPageSimpleCountsEveryPage() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("teamA");
+    // 마지막 페이지 - content 가 페이지 크기보다 작아도 카운트 결과를 쓴다.
+    PageRequest pageable = PageRequest.of(4, 120, Sort.by(Sort.Direction.ASC, "username"));
+
+    Page<MemberTeamDto> sqlPage = memberSqlRepository.searchPageSimple(condition, pageable);
+    Page<MemberTeamDto> jpaPage = memberRepository.searchPageSimple(condition, pageable);
+
+    assertThat(sqlPage.getContent()).hasSize(20).isEqualTo(jpaPage.getContent());
+    assertThat(sqlPage.getTotalElements()).isEqualTo(jpaPage.getTotalElements()).isEqualTo(500);
+    assertThat(sqlPage.getTotalPages()).isEqualTo(5);
+  }
+
+  /**
+   * 벤치마크 - QMemberTeamDto (JPA) vs querydsl-sql. 실제 판단은 운영과 같은 데이터 크기로 해야 한다.
+   * <p>
+   * 같은 테이블이 아니다. MemberRepository 는 읽기 모델 (member_search, 조인 없음) 을, MemberSqlRepository 는 샤드와 같은
+   * member / team 조인을 조회한다. 매핑 방식 (JPA vs ResultSet) 만 비교하려면 같은 조인을 하는 MemberJpaRepository 와 비교한다.
+   */
+  @Test
+  @Tag("benchmark")
+  public void benchmark() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    int iterations = 200;
+
+    // warm-up
+    for (int i = 0; i < iterations; i++) {
+      memberRepository.search(condition);
+      memberJpaRepository.search(condition);
+      memberSqlRepository.search(condition);
+    }
+
+    long jpaNanos = time(() -> memberRepository.search(condition), iterations);
+    long joinNanos = time(() -> memberJpaRepository.search(condition), iterations);
+    long sqlNanos = time(() -> memberSqlRepository.search(condition), iterations);
+
+    System.out.println("====================");
+    System.out.println("jpa member_search     avg us : " + jpaNanos / iterations / 1000);
+    System.out.println("jpa member/team join  avg us : " + joinNanos / iterations / 1000);
+    System.out.println("querydsl-sql join     avg us : " + sqlNanos / iterations / 1000);
+    System.out.println("====================");
+  }
+
+  private long time(Runnable search, int iterations) {
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      search.run();
+    }
+    return System.nanoTime() - start;
+  }
+}
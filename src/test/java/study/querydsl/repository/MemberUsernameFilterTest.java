@@ -0,0 +1,120 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+
+/**
+ * 필터는 커밋된 이름 기준으로 판단하므로 @Transactional 없이 직접 커밋하고 지운다.
+ */
+@SpringBootTest
+class MemberUsernameFilterTest {
+
+  @Autowired
+  EntityManager em;
+  @Autowired
+  MemberUsernameFilter usernameFilter;
+  @Autowired
+  MemberRepository memberRepository;
+  @Autowired
+  MemberJpaRepository memberJpaRepository;
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  TransactionTemplate tx;
+
+  @BeforeEach
+  public void before() {
+    tx = new TransactionTemplate(transactionManager);
+    tx.executeWithoutResult(status -> {
+      em.persist(new Member("filterKnown", 10));
+      em.persist(new Member("filterJosé", 20));
+    });
+    usernameFilter.rebuild();
+  }
+
+  @AfterEach
+  public void after() {
+    tx.executeWithoutResult(status -> {
+      em.createQuery("delete from Member m where m.username like 'filter%'").executeUpdate();
+      em.createNativeQuery("delete from member_search where username like 'filter%'")
+          .executeUpdate();
+      em.createNativeQuery("delete from member_outbox where payload like '%filterRemote%'")
+          .executeUpdate();
+    });
+  }
+
+  @Test
+  public void noFalseNegatives() {
+    UsernameBloomFilter filter = UsernameBloomFilter.create(10_000, 0.01);
+    for (int i = 0; i < 10_000; i++) {
+      filter.put("member" + i);
+    }
+    int falsePositives = 0;
+    for (int i = 0; i < 10_000; i++) {
+      assertThat(filter.mightContain("member" + i)).isTrue();
+      if (filter.mightContain("unknown" + i)) {
+        falsePositives++;
+      }
+    }
+    assertThat(falsePositives).isLessThan(300);
+  }
+
+  @Test
+  public void unknownNamesAreAbsent() {
+    assertThat(usernameFilter.definitelyAbsent("filterUnknown")).isTrue();
+    assertThat(memberRepository.findByUsername("filterUnknown")).isEmpty();
+    assertThat(memberJpaRepository.findByUsername_querydsl("filterUnknown")).isEmpty();
+
+    // 대소문자 / 뒤 공백 / 악센트는 DB 비교와 같게 무시한다.
+    assertThat(usernameFilter.definitelyAbsent("FILTERKNOWN ")).isFalse();
+    assertThat(usernameFilter.definitelyAbsent("filterjose")).isFalse();
+    assertThat(memberRepository.findByUsername("filterKnown")).hasSize(1);
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setUsername("filterKnown");
+    assertThat(memberRepository.search(condition)).hasSize(1);
+  }
+
+  @Test
+  public void insertedNamesAreAddedWithoutRebuild() {
+    tx.executeWithoutResult(status -> em.persist(new Member("filterNew", 30)));
+
+    assertThat(usernameFilter.definitelyAbsent("filterNew")).isFalse();
+    assertThat(memberJpaRepository.findByUsername("filterNew")).hasSize(1);
+  }
+
+  @Test
+  public void namesFromOtherNodesAreAddedFromOutbox() {
+    // 다른 인스턴스가 커밋한 변경 (이 인스턴스의 flush 이벤트는 없다). settle 이 지난 행으로 넣는다.
+    tx.executeWithoutResult(status -> em.createNativeQuery("insert into member_outbox "
+            + "(aggregate, change_type, aggregate_id, payload, created_at) values "
+            + "('MEMBER', 'INSERT', null, '{\"username\":\"filterRemote\",\"age\":50}', "
+            + "now(6) - interval 1 minute)")
+        .executeUpdate());
+    assertThat(usernameFilter.definitelyAbsent("filterRemote")).isTrue();
+
+    usernameFilter.feed();
+
+    assertThat(usernameFilter.definitelyAbsent("filterRemote")).isFalse();
+  }
+
+  @Test
+  public void readWriteTransactionSkipsFilter() {
+    tx.executeWithoutResult(status -> {
+      em.persist(new Member("filterPending", 40));
+      assertThat(usernameFilter.definitelyAbsent("filterUnknown")).isFalse();
+      assertThat(memberRepository.findByUsername("filterPending")).hasSize(1);
+      status.setRollbackOnly();
+    });
+  }
+}
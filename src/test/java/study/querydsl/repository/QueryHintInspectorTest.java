@@ -0,0 +1,74 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberSearchCondition;
+
+class QueryHintInspectorTest {
+
+  QueryHintInspector inspector = new QueryHintInspector();
+
+  @Test
+  public void forceIndexAfterAlias() {
+    QueryHint hint = QueryHint.none()
+        .forceIndex("member_search", "idx_member_search_team_name_age");
+
+    String sql = inspector.inspect("/* " + hint.toComment() + " */ select m.member_id "
+        + "from member_search m where m.team_name=? and m.age>=? limit ?");
+
+    assertThat(sql).isEqualTo("/* " + hint.toComment() + " */ select m.member_id "
+        + "from member_search m FORCE INDEX (idx_member_search_team_name_age) "
+        + "where m.team_name=? and m.age>=? limit ?");
+  }
+
+  @Test
+  public void tableWithoutAlias() {
+    QueryHint hint = QueryHint.none().useIndex("member_search", "a", "b");
+
+    String sql = inspector.inspect("/* " + hint.toComment() + " */ select count(*) "
+        + "from member_search where age>=?");
+
+    assertThat(sql).endsWith("from member_search USE INDEX (a,b) where age>=?");
+  }
+
+  @Test
+  public void straightJoinAndMaxStatementTime() {
+    QueryHint hint = QueryHint.none().straightJoin().maxStatementTime(Duration.ofMillis(1500));
+
+    String sql = inspector.inspect("/* " + hint.toComment() + " */ select m.id "
+        + "from member m join team t on m.team_id=t.id");
+
+    assertThat(sql).isEqualTo("/* " + hint.toComment() + " */ SET STATEMENT "
+        + "max_statement_time=1.500 FOR select STRAIGHT_JOIN m.id "
+        + "from member m join team t on m.team_id=t.id");
+  }
+
+  @Test
+  public void untouchedWithoutHint() {
+    String select = "/* select m from Member m */ select m.id from member_search m";
+    String update = "/* " + QueryHint.none().forceIndex("member_search", "a").toComment()
+        + " */ update member_search set age=?";
+
+    assertThat(inspector.inspect(select)).isSameAs(select);
+    assertThat(inspector.inspect(update)).isSameAs(update);
+  }
+
+  @Test
+  public void teamNameAndAgeRangeForcesIndex() {
+    MemberQueryHints hints = new MemberQueryHints(true, Duration.ZERO);
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("teamA");
+    assertThat(hints.forSearch(condition).isEmpty()).isTrue();
+
+    condition.setAgeGoe(20);
+    assertThat(hints.forSearch(condition).toComment())
+        .isEqualTo("query-hint force_index(member_search:idx_member_search_team_name_age)");
+
+    // username 인덱스가 더 좁다.
+    condition.setUsername("member1");
+    assertThat(hints.forSearch(condition).isEmpty()).isTrue();
+    assertThat(MemberQueryHints.disabled().forSearch(condition).isEmpty()).isTrue();
+  }
+}
@@ -0,0 +1,89 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.reflect.Proxy;
+import java.util.Comparator;
+import java.util.List;
+import javax.persistence.TypedQuery;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import study.querydsl.repository.ResultMemoryGovernor.Mode;
+
+class ResultMemoryGovernorTest {
+
+  @Test
+  public void failOverRowLimit() {
+    ResultMemoryGovernor governor = new ResultMemoryGovernor(2, DataSize.ofMegabytes(1), Mode.FAIL);
+
+    assertThat(governor.fetch(query(List.of(1, 2)), 100)).containsExactly(1, 2);
+    assertThatThrownBy(() -> governor.fetch(query(List.of(1, 2, 3)), 100))
+        .isInstanceOf(ResultLimitExceededException.class);
+    // 요청 밖에서는 조회 직후 예산을 돌려준다.
+    assertThat(governor.getInFlightBytes()).isZero();
+  }
+
+  @Test
+  public void truncateOverRowLimit() {
+    ResultMemoryGovernor governor =
+        new ResultMemoryGovernor(2, DataSize.ofMegabytes(1), Mode.TRUNCATE);
+
+    List<Integer> result = governor.fetch(query(List.of(1, 2, 3)), 100);
+
+    assertThat(result).isInstanceOf(TruncatedResultList.class).containsExactly(1, 2);
+  }
+
+  @Test
+  public void globalBudget() {
+    // 최악의 경우 (maxRows + 1 건) 를 먼저 잡으므로 3 * 100 > 250 이면 조회하지 않는다.
+    ResultMemoryGovernor governor = new ResultMemoryGovernor(2, DataSize.ofBytes(250), Mode.FAIL);
+
+    assertThatThrownBy(() -> governor.fetch(query(List.of(1)), 100))
+        .isInstanceOf(ResultMemoryBudgetException.class);
+    assertThat(governor.account(List.of(1, 2), 100)).hasSize(2);
+    assertThat(governor.getInFlightBytes()).isZero();
+  }
+
+  @Test
+  public void limitPassedToCustomFetch() {
+    ResultMemoryGovernor governor =
+        new ResultMemoryGovernor(2, DataSize.ofMegabytes(1), Mode.TRUNCATE);
+
+    List<Integer> result = governor.fetch(limit -> {
+      assertThat(limit).isEqualTo(3L);
+      return List.of(1, 2, 3);
+    }, 100);
+
+    assertThat(result).isInstanceOf(TruncatedResultList.class).containsExactly(1, 2);
+    assertThat(ResultMemoryGovernor.unlimited().<Integer>fetch(limit -> {
+      assertThat(limit).isNull();
+      return List.of(1);
+    }, 100)).containsExactly(1);
+  }
+
+  @Test
+  public void mergeKeepsRowLimitAndTruncatedFlag() {
+    ResultMemoryGovernor governor =
+        new ResultMemoryGovernor(3, DataSize.ofMegabytes(1), Mode.TRUNCATE);
+    Comparator<Integer> order = Comparator.naturalOrder();
+
+    assertThat(governor.merge(List.of(List.of(1, 4), List.of(2, 3, 5)), order))
+        .isInstanceOf(TruncatedResultList.class).containsExactly(1, 2, 3);
+    assertThat(governor.merge(List.of(new TruncatedResultList<>(List.of(1)), List.of(2)), order))
+        .isInstanceOf(TruncatedResultList.class).containsExactly(1, 2);
+    assertThat(governor.merge(List.of(List.of(1), List.of(2)), order))
+        .isNotInstanceOf(TruncatedResultList.class).containsExactly(1, 2);
+
+    ResultMemoryGovernor failing = new ResultMemoryGovernor(3, DataSize.ofMegabytes(1), Mode.FAIL);
+    assertThatThrownBy(() -> failing.merge(List.of(List.of(1, 4), List.of(2, 3)), order))
+        .isInstanceOf(ResultLimitExceededException.class);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> TypedQuery<T> query(List<T> rows) {
+    return (TypedQuery<T>) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[]{TypedQuery.class}, (proxy, method, args) ->
+            method.getName().equals("getResultList") ? rows : proxy);
+  }
+}
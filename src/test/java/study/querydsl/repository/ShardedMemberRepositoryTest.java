@@ -0,0 +1,183 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import study.querydsl.dto.FacetCount;
+import study.querydsl.dto.MemberFacetPage;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Team;
+
+/**
+ * 샤드는 DB 대신 메모리 리스트로 흉내낸다. (샤드 라우팅, merge, count 합산만 검증)
+ */
+class ShardedMemberRepositoryTest {
+
+  FakeShard shard0;
+  FakeShard shard1;
+  ShardedMemberRepository repository;
+
+  @BeforeEach
+  public void before() {
+    shard0 = new FakeShard();
+    shard1 = new FakeShard();
+    // 샤드는 team_id 로 정한다. teamA(2) -> 0번 샤드, teamB(1) -> 1번 샤드
+    shard0.add(new MemberTeamDto(1L, "member1", 10, 2L, "teamA"));
+    shard0.add(new MemberTeamDto(4L, "member4", 40, 2L, "teamA"));
+    shard0.add(new MemberTeamDto(5L, "member5", 50, 2L, "teamA"));
+    shard1.add(new MemberTeamDto(2L, "member2", 20, 1L, "teamB"));
+    shard1.add(new MemberTeamDto(3L, "member3", 30, 1L, "teamB"));
+    shard1.add(new MemberTeamDto(6L, "member6", 60, 1L, "teamB"));
+
+    TeamShardDirectory directory = new TeamShardDirectory(2);
+    directory.register(0, team(2L, "teamA"));
+    directory.register(1, team(1L, "teamB"));
+    repository = new ShardedMemberRepository(List.of(shard0, shard1), directory, Runnable::run);
+  }
+
+  @Test
+  public void routeToSingleShard() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("teamB");
+
+    List<MemberTeamDto> result = repository.search(condition);
+
+    assertThat(result).extracting("username").containsExactly("member2", "member3", "member6");
+    assertThat(shard0.calls).isEqualTo(0);
+    assertThat(shard1.calls).isEqualTo(1);
+  }
+
+  @Test
+  public void sameTeamNameOnTwoShardsScatters() {
+    // 다른 팀이지만 이름이 같다. (DB 비교로는 대소문자가 달라도 같은 이름)
+    shard1.add(new MemberTeamDto(7L, "member7", 70, 3L, "teamA"));
+    TeamShardDirectory directory = new TeamShardDirectory(2);
+    directory.register(0, team(2L, "teamA"));
+    directory.register(1, team(1L, "teamB"));
+    directory.register(1, team(3L, "TEAMA"));
+    repository = new ShardedMemberRepository(List.of(shard0, shard1), directory, Runnable::run);
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("teamA");
+
+    List<MemberTeamDto> result = repository.search(condition);
+
+    assertThat(result).extracting("username")
+        .containsExactly("member1", "member4", "member5", "member7");
+    assertThat(shard0.calls).isEqualTo(1);
+    assertThat(shard1.calls).isEqualTo(1);
+    assertThat(directory.shardOf("teamB")).contains(1);
+  }
+
+  @Test
+  public void scatterGatherPage() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+
+    Page<MemberTeamDto> result = repository.searchPageComplex(condition, PageRequest.of(1, 2));
+
+    assertThat(result.getContent()).extracting("username").containsExactly("member3", "member4");
+    assertThat(result.getTotalElements()).isEqualTo(6);
+    assertThat(shard0.calls).isEqualTo(1);
+    assertThat(shard1.calls).isEqualTo(1);
+  }
+
+  @Test
+  public void scatterGatherFacets() {
+    MemberFacetPage result = repository.searchFacets(new MemberSearchCondition(),
+        PageRequest.of(0, 2), List.of(30));
+
+    assertThat(result.getPage().getContent()).extracting("username")
+        .containsExactly("member1", "member2");
+    assertThat(result.getPage().getTotalElements()).isEqualTo(6);
+    assertThat(result.getTeams()).containsExactly(
+        new FacetCount("teamA", 3), new FacetCount("teamB", 3));
+    assertThat(result.getAgeBuckets()).containsExactly(
+        new FacetCount("<30", 2), new FacetCount(">=30", 4));
+  }
+
+  @Test
+  public void teamMustBeStoredOnItsShard() {
+    TeamShardDirectory directory = new TeamShardDirectory(2);
+
+    assertThat(directory.shardOf(4L)).isEqualTo(0);
+    assertThat(directory.shardOf(5L)).isEqualTo(1);
+    assertThatThrownBy(() -> directory.register(1, team(4L, "teamC")))
+        .isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void mergeTopN() {
+    List<Integer> merged = ShardedMemberRepository.mergeTopN(
+        List.of(List.of(1, 5, 9), List.of(2, 3, 10), List.of()),
+        Comparator.naturalOrder(), 2, 3);
+
+    assertThat(merged).containsExactly(3, 5, 9);
+  }
+
+  private Team team(Long id, String name) {
+    Team team = new Team(name);
+    team.setId(id);
+    return team;
+  }
+
+  static class FakeShard implements MemberRepositoryCustom {
+
+    final List<MemberTeamDto> rows = new ArrayList<>();
+    int calls;
+
+    void add(MemberTeamDto dto) {
+      rows.add(dto);
+    }
+
+    @Override
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+      calls++;
+      return rows.stream()
+          .filter(row -> condition.getTeamName() == null
+              || condition.getTeamName().equals(row.getTeamName()))
+          .sorted(Comparator.comparing(MemberTeamDto::getMemberId))
+          .collect(Collectors.toList());
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition,
+        Pageable pageable) {
+      List<MemberTeamDto> all = search(condition);
+      List<MemberTeamDto> content = all.stream()
+          .skip(pageable.getOffset())
+          .limit(pageable.getPageSize())
+          .collect(Collectors.toList());
+      return new PageImpl<>(content, pageable, all.size());
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition,
+        Pageable pageable) {
+      return searchPageSimple(condition, pageable);
+    }
+
+    @Override
+    public MemberFacetPage searchFacets(MemberSearchCondition condition, Pageable pageable,
+        List<Integer> ageBounds) {
+      MemberAgeBuckets buckets = MemberAgeBuckets.of(ageBounds);
+      MemberFacetCounter counter = new MemberFacetCounter(buckets);
+      for (MemberTeamDto row : search(condition)) {
+        int bucket = (int) buckets.getBounds().stream().filter(bound -> row.getAge() >= bound)
+            .count();
+        counter.add(row.getTeamName(), bucket, 1);
+      }
+      return new MemberFacetPage(searchPageSimple(condition, pageable), counter.teams(),
+          counter.ageBuckets());
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+/**
+ * 샤드마다 H2 메모리 DB 를 두고 실제 쿼리로 scatter-gather 한다. 결과는 모든 행을 가진 DB 하나 (reference) 의 결과와 같아야 한다.
+ * <p>
+ * H2 는 PRIMARY strength collation 으로 _ci 처럼 대소문자, 악센트, 뒤 공백을 무시하게 둔다. 대소문자 / 악센트 / 뒤 공백만 다른
+ * 이름은 DB 에서 같은 값이라 member_id 순서가 되는데, 샤드 결과를 합치는 비교 (MemberSortPolicy.comparator) 도 그래야 한다.
+ */
+class ShardedMemberSearchH2Test {
+
+  List<MemberShard> shards;
+  MemberShard reference;
+  TeamShardDirectory directory;
+  ShardedMemberRepository repository;
+
+  @BeforeEach
+  public void before() {
+    shards = List.of(shard(0), shard(1));
+    reference = shard(0);
+    directory = new TeamShardDirectory(shards.size());
+    ShardedMemberWriter writer = new ShardedMemberWriter(shards, directory,
+        new AtomicLong()::incrementAndGet, new AtomicLong()::incrementAndGet);
+
+    // team_id 1 -> 1번 샤드, 2 -> 0번 샤드
+    long teamB = writer.createTeam("teamB");
+    long teamA = writer.createTeam("teamA");
+    reference.insertTeam(teamB, "teamB");
+    reference.insertTeam(teamA, "teamA");
+
+    String[] usernames = {"émile", "bob ", "bob", "alice", "Alice", "emile", "Fred", "dave"};
+    for (int i = 0; i < usernames.length; i++) {
+      long teamId = i % 2 == 0 ? teamA : teamB;
+      long memberId = writer.createMember(usernames[i], 10 + i, teamId);
+      reference.insertMember(memberId, usernames[i], 10 + i, teamId);
+    }
+
+    // 기동할 때처럼 샤드의 team 테이블을 다시 읽어 등록한다.
+    directory = new TeamShardDirectory(shards.size());
+    shards.forEach(shard -> shard.registerTeams(directory));
+    repository = new ShardedMemberRepository(List.copyOf(shards), directory, Runnable::run);
+  }
+
+  @Test
+  public void writesAreRoutedByTeamId() {
+    assertThat(directory.shardOf("teamA")).contains(0);
+    assertThat(directory.shardOf("TEAMB ")).contains(1);
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("teamA");
+
+    assertThat(shards.get(0).search(condition)).extracting("memberId")
+        .containsExactly(1L, 3L, 5L, 7L);
+    assertThat(shards.get(1).search(condition)).isEmpty();
+    assertThat(repository.search(condition)).extracting("memberId")
+        .containsExactly(1L, 3L, 5L, 7L);
+  }
+
+  @Test
+  public void mergedSortMatchesSingleDatabase() {
+    Pageable pageable = PageRequest.of(0, 10, Sort.by("username"));
+
+    Page<MemberTeamDto> merged =
+        repository.searchPageComplex(new MemberSearchCondition(), pageable);
+
+    assertThat(memberIds(merged))
+        .isEqualTo(memberIds(reference.searchPageComplex(new MemberSearchCondition(), pageable)))
+        .containsExactly(4L, 5L, 2L, 3L, 8L, 1L, 6L, 7L);
+  }
+
+  @Test
+  public void mergedPageMatchesSingleDatabase() {
+    Pageable pageable = PageRequest.of(1, 3, Sort.by(Sort.Order.desc("username")));
+
+    Page<MemberTeamDto> merged =
+        repository.searchPageSimple(new MemberSearchCondition(), pageable);
+    Page<MemberTeamDto> expected =
+        reference.searchPageSimple(new MemberSearchCondition(), pageable);
+
+    assertThat(memberIds(merged)).isEqualTo(memberIds(expected));
+    assertThat(merged.getTotalElements()).isEqualTo(expected.getTotalElements()).isEqualTo(8);
+  }
+
+  private List<Long> memberIds(Page<MemberTeamDto> page) {
+    List<Long> ids = new ArrayList<>();
+    page.forEach(dto -> ids.add(dto.getMemberId()));
+    return ids;
+  }
+
+  private MemberShard shard(int index) {
+    DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID()
+        + ";MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute("set collation english strength primary");
+    jdbcTemplate.execute("create table team (team_id bigint primary key, name varchar(255))");
+    jdbcTemplate.execute("create table member (member_id bigint primary key,"
+        + " age int not null, username varchar(255), team_id bigint)");
+    return new MemberShard(index, dataSource, MemberSortPolicy.lenient(),
+        ResultMemoryGovernor.unlimited());
+  }
+}
@@ -0,0 +1,95 @@
+package study.querydsl.warmup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberSearchCache;
+
+/**
+ * warm-up 은 기동할 때도 돈다. 여기서는 데이터를 커밋해두고 한번 더 돌려서 아무것도 바뀌지 않는지 본다.
+ */
+@SpringBootTest(properties = {"warmup.enabled=true", "warmup.iterations=2"})
+class QueryWarmUpTest {
+
+  @Autowired
+  EntityManager em;
+  @Autowired
+  QueryWarmUp warmUp;
+  @Autowired
+  MemberSearchCache searchCache;
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  TransactionTemplate tx;
+
+  @BeforeEach
+  public void before() {
+    tx = new TransactionTemplate(transactionManager);
+    tx.executeWithoutResult(status -> {
+      Team team = new Team("warmupTeam");
+      em.persist(team);
+      for (int i = 0; i < 3; i++) {
+        em.persist(new Member("warmup" + i, i, team));
+      }
+    });
+  }
+
+  @AfterEach
+  public void after() {
+    tx.executeWithoutResult(status -> {
+      em.createQuery("delete from Member m where m.username like 'warmup%'").executeUpdate();
+      em.createNativeQuery("delete from member_search where username like 'warmup%'")
+          .executeUpdate();
+      em.createQuery("delete from Team t where t.name = 'warmupTeam'").executeUpdate();
+    });
+  }
+
+  @Test
+  public void runsWithoutTouchingData() {
+    List<?> before = snapshot();
+    Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    statistics.setStatisticsEnabled(true);
+    statistics.clear();
+
+    warmUp.run(new DefaultApplicationArguments());
+
+    assertThat(statistics.getEntityInsertCount()).isZero();
+    assertThat(statistics.getEntityUpdateCount()).isZero();
+    assertThat(statistics.getEntityDeleteCount()).isZero();
+    assertThat(statistics.getFlushCount()).isZero();
+    // 없는 회원명 조건도 Bloom filter 에 막히지 않고 DB 까지 간다.
+    assertThat(statistics.getQueries())
+        .anyMatch(query -> query.matches("(?s).*where.*username.*"));
+    statistics.setStatisticsEnabled(false);
+    assertThat(snapshot()).isEqualTo(before);
+
+    // 검색 캐시에 warm-up 결과를 남기지 않는다.
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("__warmup__");
+    assertThat((Object) searchCache.getIfPresent("search", condition, Pageable.unpaged())).isNull();
+  }
+
+  private List<?> snapshot() {
+    return List.of(
+        em.createQuery("select count(m) from Member m").getSingleResult(),
+        em.createQuery("select count(t) from Team t").getSingleResult(),
+        em.createNativeQuery("select count(*) from member_search").getSingleResult(),
+        em.createQuery("select m.age from Member m where m.username like 'warmup%' "
+            + "order by m.username").getResultList());
+  }
+}